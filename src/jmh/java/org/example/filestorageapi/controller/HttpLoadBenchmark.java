@@ -0,0 +1,133 @@
+package org.example.filestorageapi.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.ByteArrayOutputStream;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load on a running instance over HTTP, for comparing the default request thread pool with virtual threads.
+ * Start the application with {@code mvn spring-boot:run} or {@code mvn -Pvirtual-threads spring-boot:run}
+ * and run the same load against each:
+ * {@code mvn -Pjmh -DskipTests verify -Djmh.args="-f 1 -t 400 HttpLoad -p baseUrl=http://localhost:8080"}.
+ * The thread count is the number of concurrent clients, more than Tomcat has threads (200) by default.
+ * No results of this comparison are recorded yet, so neither mode is known to be faster for this application.
+ * Excluded from the default benchmark run, as it needs the application with MinIO, Postgres and Redis up.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(400)
+public class HttpLoadBenchmark {
+
+    private static final String BOUNDARY = "load-benchmark-boundary";
+
+    @Param("http://localhost:8080")
+    private String baseUrl;
+
+    /**
+     * Size of the file every download fetches.
+     */
+    @Param("1048576")
+    private int fileSize;
+
+    private HttpClient client;
+    private URI downloadUri;
+    private URI listingUri;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        // a fresh user per run, the session cookie is kept by the cookie manager
+        String username = "load" + UUID.randomUUID().toString().substring(0, 8);
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/sign-up"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"load-benchmark\"}"))
+                .build());
+
+        byte[] content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+        HttpResponse<String> uploadResponse = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/resource?path="))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(multipartBody("load.bin", content)))
+                .build());
+
+        JsonNode uploaded = new ObjectMapper().readTree(uploadResponse.body()).get(0);
+        String filePath = uploaded.get("path").asText() + uploaded.get("name").asText();
+        downloadUri = URI.create(baseUrl + "/api/resource/download?path=" + encode(filePath));
+        listingUri = URI.create(baseUrl + "/api/directory?path=");
+    }
+
+    /**
+     * Streams the file from MinIO through the application.
+     */
+    @Benchmark
+    public int download() throws Exception {
+        return send(HttpRequest.newBuilder(downloadUri).GET().build(), HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    /**
+     * Lists the user root folder, a short request that waits on Postgres or MinIO.
+     */
+    @Benchmark
+    public int listDirectory() throws Exception {
+        return send(HttpRequest.newBuilder(listingUri).GET().build()).statusCode();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws Exception {
+        HttpResponse<T> response = client.send(request, bodyHandler);
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(
+                    request.method() + " " + request.uri() + " answered " + response.statusCode());
+        }
+
+        return response;
+    }
+
+    private static byte[] multipartBody(String filename, byte[] content) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 256);
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"object\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return body.toByteArray();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.filestorageapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.minio.Xml;
+import io.minio.messages.Contents;
+import io.minio.messages.Item;
+import io.minio.messages.ListBucketResultV2;
+import org.example.filestorageapi.dto.ResourceInfoResponseDto;
+import org.objenesis.ObjenesisStd;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting a MinIO listing into response DTOs and writing them as JSON, as done for a directory page.
+ * Every tenth entry is a folder prefix, the rest are files as they come from ListObjectsV2.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ListingMappingBenchmark {
+
+    private static final String FOLDER = "user-14-files/front/inside of front/";
+
+    @Param({"10000", "100000"})
+    private int itemCount;
+
+    private MinioService minioService;
+    private ObjectMapper objectMapper;
+    private List<Item> items;
+    private List<ResourceInfoResponseDto> dtos;
+
+    @Setup
+    public void setUp() throws Exception {
+        // only the mapping is used, so none of the clients and executors are needed
+        minioService = new ObjenesisStd().newInstance(MinioService.class);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>user-files</Name><Prefix>").append(FOLDER).append("</Prefix>")
+                .append("<KeyCount>").append(itemCount).append("</KeyCount><MaxKeys>").append(itemCount)
+                .append("</MaxKeys><IsTruncated>false</IsTruncated>");
+        List<Item> folders = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            if (i % 10 == 0) {
+                folders.add(new Contents(FOLDER + "folder " + i + "/"));
+                continue;
+            }
+            xml.append("<Contents><Key>").append(FOLDER).append("report ").append(i).append(".pdf</Key>")
+                    .append("<LastModified>2025-03-07T10:15:30.000Z</LastModified>")
+                    .append("<ETag>&quot;").append(String.format("%032x", i)).append("&quot;</ETag>")
+                    .append("<Size>").append(1024L * i).append("</Size>")
+                    .append("<StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        xml.append("</ListBucketResult>");
+
+        items = new ArrayList<>(folders);
+        items.addAll(Xml.unmarshal(ListBucketResultV2.class, xml.toString()).contents());
+        dtos = toDtos();
+    }
+
+    @Benchmark
+    public List<ResourceInfoResponseDto> toDtos() {
+        List<ResourceInfoResponseDto> result = new ArrayList<>(items.size());
+        for (Item item : items) {
+            result.add(minioService.createResourceInfoDto(item));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.filestorageapi.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Path helpers and validators that run for every listed item and every request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class PathHandlingBenchmark {
+
+    private String filePath = "user-14-files/front/inside of front/reports 2025/test (1).txt";
+    private String folderPath = "user-14-files/front/inside of front/reports 2025/";
+    private String query = "quarterly report 2025.pdf";
+
+    @Benchmark
+    public String getParentDirectoryPath() {
+        return PathUtils.getParentDirectoryPath(filePath);
+    }
+
+    @Benchmark
+    public String getObjectNameOfFile() {
+        return PathUtils.getObjectName(filePath, false);
+    }
+
+    @Benchmark
+    public String getObjectNameOfFolder() {
+        return PathUtils.getObjectName(folderPath, true);
+    }
+
+    @Benchmark
+    public void resourcePathParentAndName(Blackhole blackhole) {
+        ResourcePath resourcePath = ResourcePath.of(filePath);
+        blackhole.consume(resourcePath.parentPath());
+        blackhole.consume(resourcePath.displayName());
+    }
+
+    @Benchmark
+    public List<String> getPathsForAllFolders() {
+        return PathUtils.getPathsForAllFolders(folderPath);
+    }
+
+    @Benchmark
+    public List<String> resourcePathFolderPaths() {
+        return ResourcePath.of(folderPath).folderPaths();
+    }
+
+    @Benchmark
+    public String validatePath() {
+        Validator.validatePath(filePath);
+        return filePath;
+    }
+
+    @Benchmark
+    public String validateQuery() {
+        Validator.validateQuery(query);
+        return query;
+    }
+}
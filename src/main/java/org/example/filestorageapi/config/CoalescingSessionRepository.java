@@ -0,0 +1,161 @@
+package org.example.filestorageapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Wraps the Redis session repository so that a request which only touches the session does not write it back.
+ * {@code lastAccessedTime} is forwarded at most once per {@code writeInterval}, and a session without other changes
+ * is not saved at all, which drops the EXISTS/HSET/EXPIREAT round trips of a plain read. The Redis key therefore
+ * expires between {@code timeout - writeInterval} and {@code timeout} after the last request.
+ */
+public class CoalescingSessionRepository implements SessionRepository<CoalescingSessionRepository.CoalescedSession> {
+
+    private final SessionRepository<Session> delegate;
+    private final Duration writeInterval;
+
+    private final Counter finds;
+    private final Counter saves;
+    private final Counter skippedSaves;
+    private final Counter deletes;
+
+    @SuppressWarnings("unchecked")
+    public CoalescingSessionRepository(SessionRepository<? extends Session> delegate, Duration writeInterval,
+                                       MeterRegistry meterRegistry) {
+        this.delegate = (SessionRepository<Session>) delegate;
+        this.writeInterval = writeInterval;
+
+        this.finds = operationCounter("find", meterRegistry);
+        this.saves = operationCounter("save", meterRegistry);
+        this.deletes = operationCounter("delete", meterRegistry);
+        this.skippedSaves = meterRegistry.counter("session.redis.saves.skipped");
+    }
+
+    @Override
+    public CoalescedSession createSession() {
+        return new CoalescedSession(delegate.createSession(), true);
+    }
+
+    @Override
+    public void save(CoalescedSession session) {
+        if (!session.dirty) {
+            skippedSaves.increment();
+            return;
+        }
+
+        if (session.pendingAccessTime != null) {
+            session.delegate.setLastAccessedTime(session.pendingAccessTime);
+            session.pendingAccessTime = null;
+        }
+
+        saves.increment();
+        delegate.save(session.delegate);
+        session.dirty = false;
+    }
+
+    @Override
+    public CoalescedSession findById(String id) {
+        finds.increment();
+        Session session = delegate.findById(id);
+        return session != null ? new CoalescedSession(session, false) : null;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        deletes.increment();
+        delegate.deleteById(id);
+    }
+
+    private static Counter operationCounter(String operation, MeterRegistry meterRegistry) {
+        return Counter.builder("session.redis.operations")
+                .description("Session repository calls that reach Redis")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    public final class CoalescedSession implements Session {
+
+        private final Session delegate;
+        private boolean dirty;
+        private Instant pendingAccessTime;
+
+        private CoalescedSession(Session delegate, boolean dirty) {
+            this.delegate = delegate;
+            this.dirty = dirty;
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public String changeSessionId() {
+            dirty = true;
+            return delegate.changeSessionId();
+        }
+
+        @Override
+        public <T> T getAttribute(String attributeName) {
+            return delegate.getAttribute(attributeName);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return delegate.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            dirty = true;
+            delegate.setAttribute(attributeName, attributeValue);
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            dirty = true;
+            delegate.removeAttribute(attributeName);
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return delegate.getCreationTime();
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            if (Duration.between(delegate.getLastAccessedTime(), lastAccessedTime).compareTo(writeInterval) >= 0) {
+                dirty = true;
+            }
+            // applied on save, so a session saved for another reason still refreshes its expiry
+            pendingAccessTime = lastAccessedTime;
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return pendingAccessTime != null ? pendingAccessTime : delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            dirty = true;
+            delegate.setMaxInactiveInterval(interval);
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return delegate.getMaxInactiveInterval();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return delegate.isExpired();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.filestorageapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService zipPrefetchExecutor(@Value("${minio.zip.prefetch-threads}") int threads,
+                                               Environment environment) {
+        return newExecutor("zip-prefetch-", threads, environment);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService uploadExecutor(@Value("${minio.upload.threads}") int threads,
+                                          Environment environment) {
+        return newExecutor("upload-", threads, environment);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService deleteExecutor(@Value("${minio.delete.threads}") int threads,
+                                          Environment environment) {
+        return newExecutor("delete-", threads, environment);
+    }
+
+    /**
+     * Reads the chunks of non-blocking downloads from MinIO. A task reads one chunk and a download reads only
+     * a few chunks ahead of its client, so slow clients don't hold these threads.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService downloadReadExecutor(@Value("${minio.download.non-blocking.read-threads}") int threads,
+                                                Environment environment) {
+        return newExecutor("download-read-", threads, environment);
+    }
+
+    /**
+     * BCrypt is CPU-bound, so this pool always uses platform threads and rejects work beyond its queue
+     * instead of growing it.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor passwordHashExecutor(@Value("${auth.password.threads}") int threads,
+                                                   @Value("${auth.password.queue-capacity}") int queueCapacity) {
+        return newBoundedExecutor("password-hash-", threads, queueCapacity);
+    }
+
+    /**
+     * Decoding images is CPU and memory heavy, so previews are rendered by a few platform threads
+     * and tasks beyond the queue are rejected.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor previewExecutor(@Value("${minio.preview.threads}") int threads,
+                                              @Value("${minio.preview.queue-capacity}") int queueCapacity) {
+        return newBoundedExecutor("preview-", threads, queueCapacity);
+    }
+
+    /**
+     * A fixed pool of {@code threads} platform threads, or a virtual thread per task when
+     * {@code spring.threads.virtual.enabled} is on and the JVM supports it. Work on these executors
+     * is bounded per request by the semaphores of the callers, so virtual threads need no pool size.
+     */
+    private static ExecutorService newExecutor(String threadNamePrefix, int threads, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Executors.newCachedThreadPool(
+                    new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory());
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+
+        return Executors.newFixedThreadPool(threads, threadFactory);
+    }
+
+    private static ThreadPoolExecutor newBoundedExecutor(String threadNamePrefix, int threads, int queueCapacity) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.filestorageapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.example.filestorageapi.errors.StorageOverloadedException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the number of MinIO requests in flight with an AIMD limit: every response that arrives within
+ * {@code latencyThreshold} while the limit is in use raises it by {@code 1 / limit}, a slower one, a 429/503
+ * or an I/O error multiplies it by {@code backoffRatio}. Uploads are judged by status only. Requests over the limit
+ * wait up to {@code maxWait} and are rejected with {@link StorageOverloadedException} after that.
+ * A request holds its slot until the response headers arrive, so slow clients reading a body don't shrink it.
+ */
+public class MinioConcurrencyLimiter implements Interceptor {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotReleased = lock.newCondition();
+    private final Counter rejected;
+
+    private double limit;
+    private int inFlight;
+
+    public MinioConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+                                   double backoffRatio, Duration maxWait, MeterRegistry meterRegistry) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.maxWaitNanos = maxWait.toNanos();
+
+        Gauge.builder("minio.limiter.limit", this, MinioConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("minio.limiter.in-flight", this, MinioConcurrencyLimiter::getInFlight).register(meterRegistry);
+        this.rejected = meterRegistry.counter("minio.limiter.rejected");
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        acquire();
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException e) {
+            release(true);
+            throw e;
+        }
+
+        // the time of a request with a body includes sending it, so only requests without one are judged by latency
+        boolean slow = chain.request().body() == null && System.nanoTime() - start > latencyThresholdNanos;
+        boolean overloaded = slow || response.code() == 429 || response.code() == 503;
+        release(overloaded);
+
+        return response;
+    }
+
+    private void acquire() throws IOException {
+        lock.lock();
+        try {
+            long remainingNanos = maxWaitNanos;
+            while (inFlight >= (int) limit) {
+                if (remainingNanos <= 0) {
+                    rejected.increment();
+                    throw new StorageOverloadedException("Storage is overloaded, try again later",
+                            Math.max(1, TimeUnit.NANOSECONDS.toSeconds(maxWaitNanos)));
+                }
+                remainingNanos = slotReleased.awaitNanos(remainingNanos);
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a MinIO request slot");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(boolean overloaded) {
+        lock.lock();
+        try {
+            boolean limitReached = inFlight >= (int) limit;
+            inFlight--;
+
+            if (overloaded) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (limitReached) {
+                // growing only while the limit is used keeps it from drifting up during quiet periods
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            slotReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,10 +1,19 @@
 package org.example.filestorageapi.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import io.minio.http.HttpUtils;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class MinioConfig {
 
@@ -17,11 +26,88 @@ public class MinioConfig {
     @Value("${minio.secretKey}")
     private String secretKey;
 
+    @Value("${minio.http.connect-timeout}")
+    private Duration connectTimeout;
+
+    @Value("${minio.http.read-timeout}")
+    private Duration readTimeout;
+
+    @Value("${minio.http.write-timeout}")
+    private Duration writeTimeout;
+
+    @Value("${minio.http.max-idle-connections}")
+    private int maxIdleConnections;
+
+    @Value("${minio.http.keep-alive}")
+    private Duration keepAlive;
+
+    @Value("${minio.http.max-requests}")
+    private int maxRequests;
+
+    @Value("${minio.limiter.enabled}")
+    private boolean limiterEnabled;
+
+    @Value("${minio.limiter.initial-limit}")
+    private int limiterInitialLimit;
+
+    @Value("${minio.limiter.min-limit}")
+    private int limiterMinLimit;
+
+    @Value("${minio.limiter.max-limit}")
+    private int limiterMaxLimit;
+
+    @Value("${minio.limiter.latency-threshold}")
+    private Duration limiterLatencyThreshold;
+
+    @Value("${minio.limiter.backoff-ratio}")
+    private double limiterBackoffRatio;
+
+    @Value("${minio.limiter.max-wait}")
+    private Duration limiterMaxWait;
+
+    /**
+     * Shared by the blocking and the async client, so that both use one connection pool and report
+     * every request to {@link MinioMetricsInterceptor}. The blocking client sends its requests through
+     * the dispatcher of the async one, so the dispatcher limits apply to all MinIO requests.
+     */
     @Bean
-    public MinioClient minioClient() {
+    public OkHttpClient minioHttpClient(MeterRegistry meterRegistry) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+
+        OkHttpClient.Builder builder = HttpUtils.newDefaultHttpClient(
+                        connectTimeout.toMillis(), writeTimeout.toMillis(), readTimeout.toMillis())
+                .newBuilder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS));
+
+        // the limiter is outermost, so waiting for a slot doesn't count as MinIO latency
+        if (limiterEnabled) {
+            builder.addInterceptor(new MinioConcurrencyLimiter(limiterInitialLimit, limiterMinLimit, limiterMaxLimit,
+                    limiterLatencyThreshold, limiterBackoffRatio, limiterMaxWait, meterRegistry));
+        }
+
+        return builder
+                .addInterceptor(new MinioMetricsInterceptor(meterRegistry))
+                .build();
+    }
+
+    @Bean
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
         return MinioClient.builder()
                 .endpoint(endpoint)
                 .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
+                .build();
+    }
+
+    @Bean
+    public MinioAsyncClient minioAsyncClient(OkHttpClient minioHttpClient) {
+        return MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
                 .build();
     }
 }
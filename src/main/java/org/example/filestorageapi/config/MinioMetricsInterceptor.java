@@ -0,0 +1,99 @@
+package org.example.filestorageapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every HTTP request of the MinIO clients as {@code minio.requests}, tagged by the S3 operation and the
+ * outcome; failed requests are also counted in {@code minio.request.errors}. The time ends when the response
+ * headers arrive, so it is MinIO latency only, reading the body is part of the transfer metrics.
+ * Missing objects (404) are an expected answer of stat and exist checks and are not counted as errors.
+ * Operations are told apart by method, query and path of path-style URLs.
+ */
+public class MinioMetricsInterceptor implements Interceptor {
+
+    private static final String COPY_SOURCE_HEADER = "x-amz-copy-source";
+
+    private final MeterRegistry meterRegistry;
+
+    public MinioMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String operation = getOperation(request);
+        long start = System.nanoTime();
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            record(operation, "io_error", e.getClass().getSimpleName(), start);
+            throw e;
+        }
+
+        record(operation, getOutcome(response.code()), String.valueOf(response.code()), start);
+        return response;
+    }
+
+    private void record(String operation, String outcome, String status, long start) {
+        Timer.builder("minio.requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (!outcome.equals("success") && !outcome.equals("not_found")) {
+            meterRegistry.counter("minio.request.errors", "operation", operation, "status", status).increment();
+        }
+    }
+
+    private static String getOutcome(int code) {
+        if (code >= 200 && code < 300) {
+            return "success";
+        }
+        if (code == 404) {
+            return "not_found";
+        }
+        return code < 500 ? "client_error" : "server_error";
+    }
+
+    private static String getOperation(Request request) {
+        HttpUrl url = request.url();
+        List<String> segments = url.pathSegments();
+        boolean bucketLevel = segments.size() == 1 || segments.size() == 2 && segments.get(1).isEmpty();
+
+        if (segments.get(0).isEmpty()) {
+            return "listBuckets";
+        }
+
+        if (bucketLevel) {
+            return switch (request.method()) {
+                case "HEAD" -> "bucketExists";
+                case "PUT" -> "makeBucket";
+                case "POST" -> url.queryParameterNames().contains("delete") ? "remove" : "postBucket";
+                case "GET" -> url.queryParameterNames().contains("location") ? "bucketLocation" : "list";
+                default -> request.method().toLowerCase();
+            };
+        }
+
+        return switch (request.method()) {
+            case "HEAD" -> "stat";
+            case "GET" -> "get";
+            case "DELETE" -> "remove";
+            // parts of composed objects are copied too; multipart uploads count as put
+            case "PUT", "POST" -> request.header(COPY_SOURCE_HEADER) != null ? "copy" : "put";
+            default -> request.method().toLowerCase();
+        };
+    }
+}
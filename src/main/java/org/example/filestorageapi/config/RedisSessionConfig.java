@@ -1,14 +1,22 @@
 package org.example.filestorageapi.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
+import org.example.filestorageapi.security.CompactSessionSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.session.data.redis.RedisSessionRepository;
 import org.springframework.session.data.redis.config.annotation.web.http.EnableRedisHttpSession;
 
+import java.time.Duration;
+
 @Log4j2
 @Configuration
 @EnableRedisHttpSession
@@ -30,4 +38,21 @@ public class RedisSessionConfig {
 
         return template;
     }
+
+    /**
+     * Picked up by name by {@link EnableRedisHttpSession} for the values of the session hash.
+     */
+    @Bean
+    public RedisSerializer<Object> springSessionDefaultRedisSerializer(MeterRegistry meterRegistry) {
+        return new CompactSessionSerializer(getClass().getClassLoader(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public CoalescingSessionRepository coalescingSessionRepository(
+            RedisSessionRepository sessionRepository,
+            @Value("${session-store.last-access-write-interval}") Duration lastAccessWriteInterval,
+            MeterRegistry meterRegistry) {
+        return new CoalescingSessionRepository(sessionRepository, lastAccessWriteInterval, meterRegistry);
+    }
 }
@@ -4,7 +4,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.example.filestorageapi.errors.ErrorResponse;
+import org.example.filestorageapi.security.AccessTokenClaims;
+import org.example.filestorageapi.security.AccessTokenService;
+import org.example.filestorageapi.security.BoundedPasswordEncoder;
 import org.example.filestorageapi.security.CustomUserDetailsService;
+import org.example.filestorageapi.security.TokenAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -16,11 +23,15 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.logout.LogoutFilter;
 import org.springframework.security.web.context.DelegatingSecurityContextRepository;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
 import org.springframework.security.web.context.SecurityContextRepository;
 
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
@@ -28,12 +39,17 @@ public class SecurityConfig {
 
     private final CustomUserDetailsService customUserDetailsService;
     private final ObjectMapper objectMapper;
+    private final AccessTokenService accessTokenService;
+
+    @Value("${auth.token.enabled}")
+    private boolean tokenAuthEnabled;
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   AuthenticationProvider authenticationProvider) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
-                .authenticationProvider(authenticationProvider())
+                .authenticationProvider(authenticationProvider)
                 .userDetailsService(customUserDetailsService)
                 .authorizeHttpRequests(authz -> authz
                         .requestMatchers("/api/auth/sign-in", "/api/auth/sign-up").permitAll()
@@ -67,6 +83,20 @@ public class SecurityConfig {
                         })
                 );
 
+        if (tokenAuthEnabled) {
+            // a request with a bearer token is authenticated by it without touching the session store,
+            // the web UI goes on signing in with the session cookie
+            http
+                    .addFilterBefore(new TokenAuthenticationFilter(accessTokenService), LogoutFilter.class)
+                    .logout(logout -> logout
+                            .addLogoutHandler((request, response, authentication) -> {
+                                if (authentication != null && authentication.getDetails() instanceof AccessTokenClaims claims) {
+                                    accessTokenService.revoke(claims);
+                                }
+                            })
+                    );
+        }
+
         return http.build();
     }
 
@@ -76,10 +106,12 @@ public class SecurityConfig {
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
         authenticationProvider.setUserDetailsService(customUserDetailsService);
-        authenticationProvider.setPasswordEncoder(passwordEncoder());
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+        // hashes below the configured strength are replaced after a successful sign-in
+        authenticationProvider.setUserDetailsPasswordService(customUserDetailsService);
 
         return authenticationProvider;
     }
@@ -93,7 +125,11 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.password.bcrypt-strength}") int strength,
+                                           @Value("${auth.password.max-wait}") Duration maxWait,
+                                           @Qualifier("passwordHashExecutor") ThreadPoolExecutor passwordHashExecutor,
+                                           MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), passwordHashExecutor, maxWait,
+                meterRegistry);
     }
 }
\ No newline at end of file
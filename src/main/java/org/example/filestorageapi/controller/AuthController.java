@@ -1,6 +1,7 @@
 package org.example.filestorageapi.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -10,11 +11,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.example.filestorageapi.dto.UserAuthDto;
 import org.example.filestorageapi.dto.UserResponseDto;
+import org.example.filestorageapi.errors.ExceptionUtils;
+import org.example.filestorageapi.errors.ResourceNotFoundException;
+import org.example.filestorageapi.errors.SessionExpiredException;
 import org.example.filestorageapi.mapper.UserAuthDtoToUserMapper;
+import org.example.filestorageapi.security.AccessTokenClaims;
+import org.example.filestorageapi.security.AccessTokenService;
 import org.example.filestorageapi.security.CustomUserDetails;
 import org.example.filestorageapi.security.CustomUserDetailsService;
+import org.example.filestorageapi.security.LoginThrottle;
 import org.example.filestorageapi.service.UserService;
 import org.example.filestorageapi.swagger.CommonAuthResponses;
+import org.example.filestorageapi.swagger.authController.RefreshTokenResponse;
 import org.example.filestorageapi.swagger.authController.SignInResponse;
 import org.example.filestorageapi.swagger.authController.SignUpResponse;
 import org.springframework.http.HttpStatus;
@@ -23,6 +31,7 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -32,6 +41,7 @@ import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -46,10 +56,15 @@ public class AuthController {
     private final CustomUserDetailsService userDetailsService;
     private final AuthenticationManager authenticationManager;
     private final SecurityContextRepository securityContextRepository;
+    private final AccessTokenService accessTokenService;
+    private final LoginThrottle loginThrottle;
 
     private final UserService userService;
     private final UserAuthDtoToUserMapper userMapper;
 
+    private static final String TOKEN_PARAMETER_DESCRIPTION = "With token authentication enabled, only return "
+            + "a bearer token and don't create a session; ignored when token authentication is disabled";
+
     @Operation(
             summary = "Sign in",
             description = "Authenticates a user and returns user information"
@@ -59,9 +74,12 @@ public class AuthController {
     @PostMapping("/sign-in")
     public ResponseEntity<UserResponseDto> signIn(@RequestBody @Valid UserAuthDto userAuthDto,
                                                   BindingResult bindingResult,
+                                                  @Parameter(description = TOKEN_PARAMETER_DESCRIPTION)
+                                                  @RequestParam(defaultValue = "false") boolean token,
                                                   HttpServletRequest request,
                                                   HttpServletResponse response) {
         hasValidationErrors(bindingResult);
+        loginThrottle.acquire(request.getRemoteAddr());
 
         try {
             Authentication authRequest = new UsernamePasswordAuthenticationToken(
@@ -75,11 +93,13 @@ public class AuthController {
                         authentication.getPrincipal().getClass().getName());
             }
 
-            createAndSaveSecurityContext(request, response, authentication);
+            if (!isTokenOnly(token)) {
+                createAndSaveSecurityContext(request, response, authentication);
+            }
 
             return ResponseEntity
                     .status(HttpStatus.OK)
-                    .body(new UserResponseDto(userAuthDto.getUsername()));
+                    .body(createUserResponse(userAuthDto.getUsername(), authentication));
         } catch (BadCredentialsException e) {
             throw new BadCredentialsException("Invalid username or password.");
         }
@@ -94,18 +114,24 @@ public class AuthController {
     @PostMapping("/sign-up")
     public ResponseEntity<UserResponseDto> performSignup(@RequestBody @Valid UserAuthDto userAuthDto,
                                                          BindingResult bindingResult,
+                                                         @Parameter(description = TOKEN_PARAMETER_DESCRIPTION)
+                                                         @RequestParam(defaultValue = "false") boolean token,
                                                          HttpServletRequest request,
                                                          HttpServletResponse response) {
         hasValidationErrors(bindingResult);
+        loginThrottle.acquire(request.getRemoteAddr());
         userService.registerUser(userMapper.toEntity(userAuthDto));
+        Authentication authentication = null;
 
         try {
             UserDetails userDetails = userDetailsService.loadUserByUsername(userAuthDto.getUsername());
 
-            Authentication authentication = new UsernamePasswordAuthenticationToken(
+            authentication = new UsernamePasswordAuthenticationToken(
                     userDetails, null, userDetails.getAuthorities());
 
-            createAndSaveSecurityContext(request, response, authentication);
+            if (!isTokenOnly(token)) {
+                createAndSaveSecurityContext(request, response, authentication);
+            }
 
         } catch (Exception e) {
             log.warn("Auto-login failed: {}", e.getMessage());
@@ -113,7 +139,31 @@ public class AuthController {
 
         return ResponseEntity
                 .status(HttpStatus.CREATED)
-                .body(new UserResponseDto(userAuthDto.getUsername()));
+                .body(createUserResponse(userAuthDto.getUsername(), authentication));
+    }
+
+    @Operation(
+            summary = "Refresh access token",
+            description = "Exchanges a valid access token for a new one and revokes the old token. " +
+                    "Available only when token authentication is enabled"
+    )
+    @RefreshTokenResponse
+    @PostMapping("/refresh")
+    public ResponseEntity<UserResponseDto> refreshToken(@AuthenticationPrincipal CustomUserDetails userDetails,
+                                                        Authentication authentication) {
+        if (!accessTokenService.isEnabled()) {
+            throw new ResourceNotFoundException("Token authentication is disabled.");
+        }
+        ExceptionUtils.ifSessionExpiredThrowException(userDetails);
+
+        if (!(authentication.getDetails() instanceof AccessTokenClaims claims)) {
+            throw new SessionExpiredException("Your session expired. Log in again.");
+        }
+        AccessTokenService.IssuedToken token = accessTokenService.refresh(claims);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(new UserResponseDto(userDetails.getUsername(), token.value(), token.expiresAt()));
     }
 
     private void hasValidationErrors(BindingResult bindingResult) {
@@ -130,6 +180,24 @@ public class AuthController {
         }
     }
 
+    /**
+     * A token client authenticates every request with its bearer token, so its sign-in writes no session to Redis.
+     */
+    private boolean isTokenOnly(boolean token) {
+        return token && accessTokenService.isEnabled();
+    }
+
+    private UserResponseDto createUserResponse(String username, Authentication authentication) {
+        if (!accessTokenService.isEnabled()
+                || authentication == null
+                || !(authentication.getPrincipal() instanceof CustomUserDetails userDetails)) {
+            return new UserResponseDto(username);
+        }
+
+        AccessTokenService.IssuedToken token = accessTokenService.issue(userDetails);
+        return new UserResponseDto(username, token.value(), token.expiresAt());
+    }
+
     private void createAndSaveSecurityContext(HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
         SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
 
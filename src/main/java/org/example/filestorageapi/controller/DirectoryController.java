@@ -6,6 +6,7 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.example.filestorageapi.dto.ResourceInfoPageDto;
 import org.example.filestorageapi.dto.ResourceInfoResponseDto;
 import org.example.filestorageapi.errors.ExceptionUtils;
 import org.example.filestorageapi.security.CustomUserDetails;
@@ -13,6 +14,7 @@ import org.example.filestorageapi.service.ResourceManagerService;
 import org.example.filestorageapi.swagger.CommonApiResponses;
 import org.example.filestorageapi.swagger.directoryController.CreateDirectoryResponse;
 import org.example.filestorageapi.swagger.directoryController.DirectoryInfoResponse;
+import org.example.filestorageapi.utils.ETagUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -21,6 +23,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -30,30 +33,48 @@ import java.util.List;
 @RequiredArgsConstructor
 @Tag(name = "Directory Management", description = "Operations for managing directories")
 @SecurityRequirement(name = "cookieAuth")
+@SecurityRequirement(name = "bearerAuth")
 public class DirectoryController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ResourceManagerService resourceManagerService;
 
     @Operation(
             summary = "Get directory information",
-            description = "Returns information about all resources in the specified directory"
+            description = "Returns the resources in the specified directory, ordered by name. "
+                    + "The directory is returned in pages of at most limit resources (1000 when not given): "
+                    + "the cursor of the next page is sent in the X-Next-Cursor header, it is absent on the last page. "
+                    + "The page carries an ETag, If-None-Match with it is answered with 304 Not Modified"
     )
     @DirectoryInfoResponse
     @CommonApiResponses
     @GetMapping
     public ResponseEntity<List<ResourceInfoResponseDto>> getInfo(
             @Parameter(description = "Directory path", required = true) @RequestParam String path,
-            @AuthenticationPrincipal CustomUserDetails userDetails) {
+            @Parameter(description = "Max number of resources in the page") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "X-Next-Cursor of the previous page") @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            WebRequest webRequest) {
 
         ExceptionUtils.ifSessionExpiredThrowException(userDetails);
 
         // TODO: 07/03/2025 тут приходит "" из папки юзера и "front/" (те без user-X-files)
         //добавляю к пути user-X-files/ в последующей логике
-        List<ResourceInfoResponseDto> infoList = resourceManagerService.getInfoList(path, userDetails.getId());
+        ResourceInfoPageDto page = resourceManagerService.getInfoList(path, limit, cursor, userDetails.getId());
 
-        return ResponseEntity
-                .status(HttpStatus.OK)
-                .body(infoList);
+        // только ETag: удаление из папки не меняет время изменения оставшихся ресурсов
+        String etag = ETagUtils.forListing(page.getItems(), page.getNextCursor());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+
+        return response.body(page.getItems());
     }
 
     @Operation(
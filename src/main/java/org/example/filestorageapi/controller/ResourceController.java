@@ -1,12 +1,19 @@
 package org.example.filestorageapi.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.example.filestorageapi.dto.ResourceInfoResponseDto;
 import org.example.filestorageapi.dto.ResourceStreamResponseDto;
 import org.example.filestorageapi.errors.ExceptionUtils;
 import org.example.filestorageapi.security.CustomUserDetails;
+import org.example.filestorageapi.service.NonBlockingDownloadWriter;
 import org.example.filestorageapi.service.ResourceManagerService;
+import org.example.filestorageapi.utils.ETagUtils;
+import org.example.filestorageapi.utils.ZipCompressionMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -14,9 +21,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 
 @Log4j2
@@ -26,49 +35,140 @@ import java.util.List;
 public class ResourceController {
 
     private final ResourceManagerService resourceManagerService;
+    private final NonBlockingDownloadWriter nonBlockingDownloadWriter;
+
+    @Value("${minio.preview.cache-max-age}")
+    private Duration previewCacheMaxAge;
 
     /**
-     * + 200 OK
+     * + 200 OK - в том числе если If-Range не совпал с текущей версией файла, тогда Range игнорируется
+     * + 206 Partial Content - запрошена часть файла через заголовок Range
+     * + 304 Not Modified - файл не изменился (If-None-Match / If-Modified-Since)
      * + 400 - невалидный или отсутствующий путь
      * + 401 - пользователь не авторизован
      * + 404 - ресурс не найден
+     * + 416 - запрошенный диапазон за пределами файла
      * + 500 - неизвестная ошибка
      */
-    // /download?path=$path
+    // /download?path=$path&compression=auto|fast|small
     @GetMapping("/download")
     public ResponseEntity<StreamingResponseBody> downloadObject(
-            @RequestParam String path) {
+            @RequestParam String path,
+            @RequestParam(required = false) String compression,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            WebRequest webRequest,
+            HttpServletRequest request,
+            HttpServletResponse response) {
 
         // TODO: 07/03/2025 тут сразу приходит с user-X-files, путь до объекта который нажали скачать = "user-14-files/front/inside of front/test (1).txt"
         //закомментила в downloadResourceAsStream добавление user-X-files
-        ResourceStreamResponseDto streamResponseDto = resourceManagerService.downloadResourceAsStream(path);
+        ResourceStreamResponseDto streamResponseDto = resourceManagerService.downloadResourceAsStream(
+                path, rangeHeader, ifRange, ZipCompressionMode.fromParam(compression));
+
+        // тело ленивое, поэтому при 304 объект из MinIO даже не открывается
+        if (streamResponseDto.getEtag() != null
+                && webRequest.checkNotModified(streamResponseDto.getEtag(), toEpochMilli(streamResponseDto.getLastModified()))) {
+            return null;
+        }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(streamResponseDto.getStatus())
+                .contentType(streamResponseDto.getContentType())
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + streamResponseDto.getName())
-                .body(streamResponseDto.getResponseBody());
+                .header(HttpHeaders.ACCEPT_RANGES, streamResponseDto.isRangeSupported() ? "bytes" : "none");
+
+        if (streamResponseDto.getContentLength() != null) {
+            responseBuilder.contentLength(streamResponseDto.getContentLength());
+        }
+        if (streamResponseDto.getContentRange() != null) {
+            responseBuilder.header(HttpHeaders.CONTENT_RANGE, streamResponseDto.getContentRange());
+        }
+        if (streamResponseDto.getEtag() != null) {
+            responseBuilder.eTag(streamResponseDto.getEtag());
+        }
+        if (streamResponseDto.getLastModified() != null) {
+            responseBuilder.lastModified(streamResponseDto.getLastModified());
+        }
+
+        ResponseEntity<StreamingResponseBody> responseEntity = responseBuilder.body(streamResponseDto.getResponseBody());
+
+        // файл пишется без блокировки потока, пока клиент не готов принять следующую часть
+        if (streamResponseDto.getAsyncBody() != null) {
+            response.setStatus(responseEntity.getStatusCode().value());
+            responseEntity.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+            nonBlockingDownloadWriter.write(request, response, streamResponseDto.getAsyncBody().get());
+            return null;
+        }
+
+        return responseEntity;
+    }
+
+    /**
+     * + 200 OK - уменьшенная копия изображения в JPEG
+     * + 202 Accepted - превью еще не готово, повторить запрос после Retry-After
+     * + 304 Not Modified - превью не изменилось (If-None-Match / If-Modified-Since)
+     * + 400 - невалидный или отсутствующий путь
+     * + 401 - пользователь не авторизован
+     * + 404 - ресурс не найден, это папка или не изображение
+     * + 500 - неизвестная ошибка
+     */
+    // /preview?path=$path&v=$etag, где etag - ETag файла из /download без кавычек
+    @GetMapping("/preview")
+    public ResponseEntity<StreamingResponseBody> getPreview(
+            @RequestParam String path,
+            @RequestParam(name = "v", required = false) String version,
+            WebRequest webRequest) {
+
+        ResourceStreamResponseDto preview = resourceManagerService.getPreview(path, version);
+
+        // надолго кэшируется только url с текущей версией файла, по одному пути файл может быть заменен
+        CacheControl cacheControl = preview.isVersioned()
+                ? CacheControl.maxAge(previewCacheMaxAge).cachePrivate().immutable()
+                : CacheControl.noCache().cachePrivate();
+        if (webRequest.checkNotModified(preview.getEtag(), toEpochMilli(preview.getLastModified()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .eTag(preview.getEtag())
+                    .build();
+        }
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .contentType(preview.getContentType())
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=" + preview.getName())
+                .eTag(preview.getEtag())
+                .lastModified(preview.getLastModified())
+                .body(preview.getResponseBody());
     }
 
     /**
      * + 201 Created
+     * + 207 Multi-Status - часть файлов не загрузилась (без atomic), в теле результат по каждому файлу
      * + 400 - невалидное тело запроса
      * + 404 - папка, в которую мы загружаем ресурс(ы) не существует
      * + 401 - пользователь не авторизован
+     * + 507 - файл не помещается в квоту пользователя
      * + 500 - неизвестная ошибка
      */
-    // path=$path
+    // path=$path&atomic=true|false
     @PostMapping()
     public ResponseEntity<List<ResourceInfoResponseDto>> uploadFiles(
             // TODO: 07/03/2025 тут вместо "file" как в задании - "object" приходит с фронта
-            @RequestParam("object") List<MultipartFile> files,
-            @RequestParam String path,
+            // файлы (части "object") читаются потоком из тела запроса в ResourceManagerService
+            HttpServletRequest request,
+            // path можно передать в query, иначе он берется из поля формы "path" (фронт шлет его после файлов)
+            @RequestParam(required = false) String path,
+            // atomic=true - если хоть один файл не загрузился, уже загруженные удаляются
+            @RequestParam(defaultValue = "false") boolean atomic,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
 
         ExceptionUtils.ifSessionExpiredThrowException(userDetails);
 
         // TODO: 07/03/2025 путь без user-X-folder. загрузка из папки front, путь = "front/"
         //добавляю к пути user-X-files/ в последующей логике
-        List<ResourceInfoResponseDto> resourceInfoList = resourceManagerService.uploadResources(files, path, userDetails.getId());
+        List<ResourceInfoResponseDto> resourceInfoList =
+                resourceManagerService.uploadResources(request, path, atomic, userDetails.getId());
 
         return ResponseEntity
                 .status(HttpStatus.CREATED)
@@ -77,6 +177,7 @@ public class ResourceController {
 
     /**
      * + 204 No Content
+     * + 207 Multi-Status - часть объектов папки не удалилась, в теле список этих объектов с ошибками
      * + 400 - невалидный или отсутствующий путь
      * + 401 - пользователь не авторизован
      * + 404 - ресурс не найден
@@ -120,6 +221,7 @@ public class ResourceController {
 
     /**
      * + 200 OK
+     * + 304 Not Modified - ресурс не изменился (If-None-Match / If-Modified-Since)
      * + 400 - невалидный или отсутствующий путь
      * + 401 - пользователь не авторизован
      * + 404 - ресурс не найден
@@ -128,10 +230,20 @@ public class ResourceController {
     // path=$path
     @GetMapping
     public ResponseEntity<ResourceInfoResponseDto> getInfo(
-            @RequestParam String path) {
+            @RequestParam String path,
+            WebRequest webRequest) {
 
         ResourceInfoResponseDto info = resourceManagerService.getInfo(path);
 
+        // у файла ETag содержимого, у папки - отпечаток ее описания (время изменения папки не отслеживается)
+        String etag = info.getEtag() != null
+                ? ETagUtils.forFile(info.getEtag())
+                : ETagUtils.forListing(List.of(info), null);
+        long lastModified = info.getEtag() != null ? toEpochMilli(info.getLastModified()) : -1;
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+
         return ResponseEntity
                 .status(HttpStatus.OK)
                 .body(info);
@@ -143,20 +255,48 @@ public class ResourceController {
      * + 401 - пользователь не авторизован
      * + 500 - неизвестная ошибка
      */
-    // /search?query=$query
+    // /search?query=$query&limit=$limit
     @GetMapping("/search")
     public ResponseEntity<List<ResourceInfoResponseDto>> search(
             @RequestParam String query,
+            @RequestParam(required = false) Integer limit,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
 
         ExceptionUtils.ifSessionExpiredThrowException(userDetails);
 
         // TODO: 07/03/2025 поисковый запрос "front", query = "front"
         // добавляю к пути user-X-files чтобы искать только среди объектов этого юзера
-        List<ResourceInfoResponseDto> searchedResources = resourceManagerService.searchResources(query, userDetails.getId());
+        List<ResourceInfoResponseDto> searchedResources = resourceManagerService.searchResources(query, limit, userDetails.getId());
 
         return ResponseEntity
                 .status(HttpStatus.OK)
                 .body(searchedResources);
     }
+
+    /**
+     * + 200 OK - результаты по одному в строке (NDJSON), последняя строка - count и признак truncated
+     * + 400 - невалидный или отсутствующий поисковый запрос
+     * + 401 - пользователь не авторизован
+     * + 500 - неизвестная ошибка
+     */
+    // /search?query=$query&limit=$limit, Accept: application/x-ndjson
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> searchStream(
+            @RequestParam String query,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+
+        ExceptionUtils.ifSessionExpiredThrowException(userDetails);
+
+        StreamingResponseBody searchResults = resourceManagerService.streamSearchResults(query, limit, userDetails.getId());
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(searchResults);
+    }
+
+    private static long toEpochMilli(Instant instant) {
+        return instant == null ? -1 : instant.toEpochMilli();
+    }
 }
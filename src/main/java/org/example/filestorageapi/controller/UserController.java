@@ -5,9 +5,11 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.example.filestorageapi.dto.UsageResponseDto;
 import org.example.filestorageapi.dto.UserResponseDto;
 import org.example.filestorageapi.errors.ExceptionUtils;
 import org.example.filestorageapi.security.CustomUserDetails;
+import org.example.filestorageapi.service.ResourceManagerService;
 import org.example.filestorageapi.swagger.userController.UserInfoResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -22,8 +24,11 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 @Tag(name = "User Management", description = "Operations for managing user information")
 @SecurityRequirement(name = "cookieAuth")
+@SecurityRequirement(name = "bearerAuth")
 public class UserController {
 
+    private final ResourceManagerService resourceManagerService;
+
     @Operation(
             summary = "Get current user information",
             description = "Returns information about the currently authenticated user"
@@ -39,4 +44,19 @@ public class UserController {
                 .status(HttpStatus.OK)
                 .body(new UserResponseDto(userDetails.getUsername()));
     }
+
+    @Operation(
+            summary = "Get current user storage usage",
+            description = "Returns the total size and number of the files of the currently authenticated user"
+    )
+    @GetMapping("/usage")
+    public ResponseEntity<UsageResponseDto> getUsage(
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+
+        ExceptionUtils.ifSessionExpiredThrowException(userDetails);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(resourceManagerService.getUsage(userDetails.getId()));
+    }
 }
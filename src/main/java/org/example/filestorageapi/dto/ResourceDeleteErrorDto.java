@@ -0,0 +1,28 @@
+package org.example.filestorageapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "Object that could not be deleted")
+public class ResourceDeleteErrorDto {
+
+    @Schema(
+            description = "Full object name",
+            example = "user-6-files/documents/report.pdf",
+            requiredMode = Schema.RequiredMode.REQUIRED
+    )
+    @JsonProperty("name")
+    private String name;
+
+    @Schema(
+            description = "Why the object was not deleted",
+            example = "Access Denied.",
+            requiredMode = Schema.RequiredMode.REQUIRED
+    )
+    @JsonProperty("error")
+    private String error;
+}
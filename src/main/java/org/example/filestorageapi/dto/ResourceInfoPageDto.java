@@ -0,0 +1,18 @@
+package org.example.filestorageapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of a directory listing. {@code nextCursor} is {@code null} on the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class ResourceInfoPageDto {
+
+    private List<ResourceInfoResponseDto> items;
+
+    private String nextCursor;
+}
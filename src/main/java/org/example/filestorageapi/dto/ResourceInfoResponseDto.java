@@ -1,5 +1,6 @@
 package org.example.filestorageapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -8,6 +9,8 @@ import lombok.Builder;
 import lombok.Getter;
 import org.example.filestorageapi.utils.ResourceType;
 
+import java.time.Instant;
+
 @Getter
 @AllArgsConstructor
 @Builder
@@ -32,7 +35,9 @@ public class ResourceInfoResponseDto {
     private String name;
 
     @Schema(
-            description = "Resource size in bytes (omitted for directories)",
+            description = "Resource size in bytes. For a directory, the total size of the files below it; "
+                    + "omitted for empty directories and while the storage index is not ready, "
+                    + "i.e. until its first reconciliation after a restart",
             example = "1024",
             requiredMode = Schema.RequiredMode.NOT_REQUIRED
     )
@@ -48,4 +53,19 @@ public class ResourceInfoResponseDto {
     )
     @JsonProperty("type")
     private ResourceType type;
+
+    /**
+     * ETag of the file content without quotes, used for conditional requests only.
+     */
+    @JsonIgnore
+    private String etag;
+
+    @JsonIgnore
+    private Instant lastModified;
+
+    /**
+     * Key of the object holding the file content, the blob for a blob pointer, so a download doesn't stat it again.
+     */
+    @JsonIgnore
+    private String contentKey;
 }
@@ -3,8 +3,15 @@ package org.example.filestorageapi.dto;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
 @Getter
 @AllArgsConstructor
 @Builder
@@ -13,4 +20,43 @@ public class ResourceStreamResponseDto {
     private String name;
 
     private StreamingResponseBody responseBody;
+
+    @Builder.Default
+    private HttpStatus status = HttpStatus.OK;
+
+    @Builder.Default
+    private MediaType contentType = MediaType.APPLICATION_OCTET_STREAM;
+
+    /**
+     * Body length in bytes, or {@code null} when it is not known upfront (ZIP archives, multipart ranges).
+     */
+    private Long contentLength;
+
+    /**
+     * Value of the Content-Range header for a single-range partial response.
+     */
+    private String contentRange;
+
+    /**
+     * Whether the resource can be requested by byte ranges (files only).
+     */
+    private boolean rangeSupported;
+
+    /**
+     * Strong ETag of the file for conditional requests, {@code null} for ZIP archives.
+     */
+    private String etag;
+
+    private Instant lastModified;
+
+    /**
+     * Whether the request named the current content version of the file, so its URL never serves other bytes.
+     */
+    private boolean versioned;
+
+    /**
+     * Opens the same content as {@link #responseBody} without blocking the caller. Set only when non-blocking
+     * downloads are enabled and the body is a single stream (not a ZIP archive or multipart ranges).
+     */
+    private Supplier<CompletableFuture<? extends InputStream>> asyncBody;
 }
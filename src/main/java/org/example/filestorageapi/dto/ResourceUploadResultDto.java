@@ -0,0 +1,76 @@
+package org.example.filestorageapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.example.filestorageapi.utils.ResourceType;
+
+@Getter
+@AllArgsConstructor
+@Builder
+@Schema(description = "Result of uploading one file of a multi-file upload")
+public class ResourceUploadResultDto {
+
+    @Schema(
+            description = "Resource path (directory containing the resource), omitted if the upload failed",
+            example = "user-6-files/documents/",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    @JsonProperty("path")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String path;
+
+    @Schema(
+            description = "Resource name, relative to the upload directory if the upload failed",
+            example = "document.txt",
+            requiredMode = Schema.RequiredMode.REQUIRED
+    )
+    @JsonProperty("name")
+    private String name;
+
+    @Schema(
+            description = "Resource size in bytes",
+            example = "1024",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    @JsonProperty("size")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private long size;
+
+    @Schema(
+            description = "Resource type, omitted if the upload failed",
+            example = "FILE",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    @JsonProperty("type")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ResourceType type;
+
+    @Schema(
+            description = "Why the file was not uploaded, omitted on success",
+            example = "File 'document.txt' already exist in directory: user-6-files/documents/",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    @JsonProperty("error")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+
+    public static ResourceUploadResultDto uploaded(ResourceInfoResponseDto info) {
+        return ResourceUploadResultDto.builder()
+                .path(info.getPath())
+                .name(info.getName())
+                .size(info.getSize())
+                .type(info.getType())
+                .build();
+    }
+
+    public static ResourceUploadResultDto failed(String name, String error) {
+        return ResourceUploadResultDto.builder()
+                .name(name)
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.filestorageapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "Last line of a streamed search")
+public class SearchSummaryDto {
+
+    @Schema(
+            description = "Number of resources sent",
+            example = "42",
+            requiredMode = Schema.RequiredMode.REQUIRED
+    )
+    @JsonProperty("count")
+    private int count;
+
+    @Schema(
+            description = "Whether the search stopped before looking through all resources",
+            example = "true",
+            requiredMode = Schema.RequiredMode.REQUIRED
+    )
+    @JsonProperty("truncated")
+    private boolean truncated;
+
+    @Schema(
+            description = "Why the search stopped early, omitted if it wasn't truncated",
+            example = "deadline",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED,
+            allowableValues = {"limit", "deadline"}
+    )
+    @JsonProperty("reason")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String reason;
+}
@@ -0,0 +1,41 @@
+package org.example.filestorageapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "Storage usage of a user")
+public class UsageResponseDto {
+
+    @Schema(
+            description = "Total size of the user files in bytes, omitted while it is not known yet, "
+                    + "i.e. until the first reconciliation of the storage index after a restart",
+            example = "1043912",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    @JsonProperty("usedBytes")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long usedBytes;
+
+    @Schema(
+            description = "Number of the user files, omitted while it is not known yet",
+            example = "42",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    @JsonProperty("objectCount")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long objectCount;
+
+    @Schema(
+            description = "Storage quota in bytes, omitted if there is no quota",
+            example = "10737418240",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    @JsonProperty("quotaBytes")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long quotaBytes;
+}
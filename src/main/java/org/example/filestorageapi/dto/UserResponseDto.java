@@ -1,10 +1,13 @@
 package org.example.filestorageapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.time.Instant;
+
 @Getter
 @AllArgsConstructor
 public class UserResponseDto {
@@ -16,4 +19,26 @@ public class UserResponseDto {
     )
     @JsonProperty("username")
     private String username;
+
+    @Schema(
+            description = "Bearer access token, returned only when token authentication is enabled",
+            example = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9.eyJqdGkiOi...",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    @JsonProperty("accessToken")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String accessToken;
+
+    @Schema(
+            description = "Expiration time of the access token",
+            example = "2025-01-01T12:15:00Z",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    @JsonProperty("expiresAt")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Instant expiresAt;
+
+    public UserResponseDto(String username) {
+        this(username, null, null);
+    }
 }
@@ -0,0 +1,31 @@
+package org.example.filestorageapi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "BLOBS")
+public class Blob {
+
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Column(name = "size", nullable = false)
+    private long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
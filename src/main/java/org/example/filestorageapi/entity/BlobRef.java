@@ -0,0 +1,44 @@
+package org.example.filestorageapi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "BLOB_REFS")
+public class BlobRef {
+
+    /**
+     * Object name of the pointer holding the reference.
+     */
+    @Id
+    @Column(name = "path", length = 1024)
+    private String path;
+
+    @Column(name = "hash", nullable = false, length = 64)
+    private String hash;
+
+    /**
+     * Blob the pointer referred to before it was re-pointed to {@link #hash}, still holding its reference
+     * until the new pointer is written.
+     */
+    @Column(name = "replaced_hash", length = 64)
+    private String replacedHash;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    /**
+     * Start of the last reconciliation that found the pointer.
+     */
+    @Column(name = "verified_at")
+    private Instant verifiedAt;
+}
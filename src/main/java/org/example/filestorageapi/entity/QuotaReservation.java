@@ -0,0 +1,38 @@
+package org.example.filestorageapi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "QUOTA_RESERVATIONS")
+public class QuotaReservation {
+
+    @Id
+    @Column(name = "id")
+    private UUID id;
+
+    @Column(name = "owner_id", nullable = false)
+    private int ownerId;
+
+    /**
+     * Bytes held against the quota by the upload of one file, added to the {@code reserved} counter of the user.
+     */
+    @Column(name = "size", nullable = false)
+    private long size;
+
+    /**
+     * When the upload last reserved more bytes; reservations untouched for the reservation timeout are released.
+     */
+    @Column(name = "touched_at", nullable = false)
+    private Instant touchedAt;
+}
@@ -0,0 +1,33 @@
+package org.example.filestorageapi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "RESOURCE_INDEX_STATE")
+public class ResourceIndexState {
+
+    /**
+     * The table holds a single row with this id.
+     */
+    public static final short ID = 1;
+
+    @Id
+    @Column(name = "id")
+    private short id;
+
+    /**
+     * End of the last reconciliation that completed on any node.
+     */
+    @Column(name = "reconciled_at", nullable = false)
+    private Instant reconciledAt;
+}
@@ -0,0 +1,67 @@
+package org.example.filestorageapi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.filestorageapi.utils.ResourceType;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "RESOURCES",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"parent_path", "name", "type"}))
+public class ResourceMetadata {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private int ownerId;
+
+    @Column(name = "parent_path", nullable = false, length = 1024)
+    private String parentPath;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "type", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private ResourceType type;
+
+    /**
+     * For a folder, the total size of all files below it.
+     */
+    @Column(name = "size", nullable = false)
+    private long size;
+
+    /**
+     * For a folder, the number of files below it.
+     */
+    @Column(name = "object_count", nullable = false)
+    private long objectCount;
+
+    /**
+     * For the user root folder, the bytes held by uploads in progress, see {@code QuotaService}.
+     */
+    @Column(name = "reserved", nullable = false)
+    private long reserved;
+
+    @Column(name = "etag", length = 64)
+    private String etag;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "indexed_at", nullable = false)
+    private Instant indexedAt;
+}
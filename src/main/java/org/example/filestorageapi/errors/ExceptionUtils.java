@@ -13,4 +13,16 @@ public class ExceptionUtils {
             throw new SessionExpiredException("Your session expired. Log in again.");
         }
     }
+
+    public static <T extends Throwable> T findCause(Throwable throwable, Class<T> causeType) {
+        Throwable current = throwable;
+        while (current != null) {
+            if (causeType.isInstance(current)) {
+                return causeType.cast(current);
+            }
+            current = current.getCause();
+        }
+
+        return null;
+    }
 }
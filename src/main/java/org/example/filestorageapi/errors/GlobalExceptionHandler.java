@@ -1,6 +1,9 @@
 package org.example.filestorageapi.errors;
 
 import jakarta.validation.ValidationException;
+import org.example.filestorageapi.dto.ResourceDeleteErrorDto;
+import org.example.filestorageapi.dto.ResourceUploadResultDto;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.AuthenticationException;
@@ -8,6 +11,8 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.List;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -25,9 +30,35 @@ public class GlobalExceptionHandler {
             SessionExpiredException.class
     })
     public ResponseEntity<ErrorResponse> handleAuthenticationException(Exception ex) {
+        // a rejection of the hashing pool while looking up a user is wrapped in InternalAuthenticationServiceException
+        PasswordHashingOverloadedException overloaded = ExceptionUtils.findCause(ex, PasswordHashingOverloadedException.class);
+        if (overloaded != null) {
+            return handlePasswordHashingOverloadedException(overloaded);
+        }
+
         return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.UNAUTHORIZED); //401
     }
 
+    @ExceptionHandler({
+            TooManyLoginAttemptsException.class
+    })
+    public ResponseEntity<ErrorResponse> handleTooManyLoginAttemptsException(TooManyLoginAttemptsException ex) {
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS) //429
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
+    @ExceptionHandler({
+            PasswordHashingOverloadedException.class
+    })
+    public ResponseEntity<ErrorResponse> handlePasswordHashingOverloadedException(PasswordHashingOverloadedException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE) //503
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
     @ExceptionHandler({
             ResourceNotFoundException.class
     })
@@ -35,6 +66,16 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.NOT_FOUND); //404
     }
 
+    @ExceptionHandler({
+            PreviewNotReadyException.class
+    })
+    public ResponseEntity<ErrorResponse> handlePreviewNotReadyException(PreviewNotReadyException ex) {
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED) //202
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
     @ExceptionHandler({
             UserAlreadyExistException.class,
             ResourceAlreadyExistsException.class
@@ -43,10 +84,60 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.CONFLICT); //409
     }
 
+    @ExceptionHandler({
+            PartialUploadException.class
+    })
+    public ResponseEntity<List<ResourceUploadResultDto>> handlePartialUploadException(PartialUploadException ex) {
+        return new ResponseEntity<>(ex.getResults(), HttpStatus.MULTI_STATUS); //207
+    }
+
+    @ExceptionHandler({
+            PartialDeleteException.class
+    })
+    public ResponseEntity<List<ResourceDeleteErrorDto>> handlePartialDeleteException(PartialDeleteException ex) {
+        return new ResponseEntity<>(ex.getErrors(), HttpStatus.MULTI_STATUS); //207
+    }
+
+    @ExceptionHandler({
+            RangeNotSatisfiableException.class
+    })
+    public ResponseEntity<ErrorResponse> handleRangeNotSatisfiableException(RangeNotSatisfiableException ex) {
+        return ResponseEntity
+                .status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE) //416
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + ex.getResourceSize())
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
+    @ExceptionHandler({
+            QuotaExceededException.class
+    })
+    public ResponseEntity<ErrorResponse> handleQuotaExceededException(Exception ex) {
+        return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.INSUFFICIENT_STORAGE); //507
+    }
+
+    @ExceptionHandler({
+            QuotaUnavailableException.class
+    })
+    public ResponseEntity<ErrorResponse> handleQuotaUnavailableException(QuotaUnavailableException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE) //503
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
     @ExceptionHandler({
             Exception.class
     })
     public ResponseEntity<ErrorResponse> handleUnexpectedException(Exception ex) {
+        // MinIO failures are wrapped by MinioService, the limiter rejection is found by its cause
+        StorageOverloadedException overloaded = ExceptionUtils.findCause(ex, StorageOverloadedException.class);
+        if (overloaded != null) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE) //503
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(overloaded.getRetryAfterSeconds()))
+                    .body(new ErrorResponse(overloaded.getMessage()));
+        }
+
         return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR); //500
     }
 }
@@ -0,0 +1,17 @@
+package org.example.filestorageapi.errors;
+
+import lombok.Getter;
+import org.example.filestorageapi.dto.ResourceDeleteErrorDto;
+
+import java.util.List;
+
+@Getter
+public class PartialDeleteException extends RuntimeException {
+
+    private final List<ResourceDeleteErrorDto> errors;
+
+    public PartialDeleteException(String message, List<ResourceDeleteErrorDto> errors) {
+        super(message);
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.filestorageapi.errors;
+
+import lombok.Getter;
+import org.example.filestorageapi.dto.ResourceUploadResultDto;
+
+import java.util.List;
+
+@Getter
+public class PartialUploadException extends RuntimeException {
+
+    private final List<ResourceUploadResultDto> results;
+
+    public PartialUploadException(List<ResourceUploadResultDto> results) {
+        super("Some files could not be uploaded");
+        this.results = results;
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.filestorageapi.errors;
+
+/**
+ * The password hashing pool is full or didn't get to a sign-in or sign-up in time; mapped to 503 with Retry-After.
+ */
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
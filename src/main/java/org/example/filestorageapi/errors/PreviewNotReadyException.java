@@ -0,0 +1,18 @@
+package org.example.filestorageapi.errors;
+
+/**
+ * The preview of an image is queued but not rendered yet; mapped to 202 with Retry-After so the client asks again.
+ */
+public class PreviewNotReadyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PreviewNotReadyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.filestorageapi.errors;
+
+public class QuotaExceededException extends RuntimeException {
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
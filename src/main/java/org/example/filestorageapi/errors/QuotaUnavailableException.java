@@ -0,0 +1,18 @@
+package org.example.filestorageapi.errors;
+
+/**
+ * The quota can't be checked because the usage counters are not complete yet; mapped to 503 with Retry-After.
+ */
+public class QuotaUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public QuotaUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
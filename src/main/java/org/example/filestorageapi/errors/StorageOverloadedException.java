@@ -0,0 +1,21 @@
+package org.example.filestorageapi.errors;
+
+import java.io.IOException;
+
+/**
+ * MinIO requests are shed by the concurrency limiter. An {@link IOException} so that it passes through
+ * the HTTP client of the MinIO SDK; mapped to 503 with Retry-After.
+ */
+public class StorageOverloadedException extends IOException {
+
+    private final long retryAfterSeconds;
+
+    public StorageOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.filestorageapi.errors;
+
+/**
+ * An address exceeded the sign-in and sign-up attempts of its throttle window; mapped to 429 with Retry-After.
+ */
+public class TooManyLoginAttemptsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyLoginAttemptsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
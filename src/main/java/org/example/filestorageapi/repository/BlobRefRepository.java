@@ -0,0 +1,67 @@
+package org.example.filestorageapi.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.filestorageapi.entity.BlobRef;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface BlobRefRepository extends JpaRepository<BlobRef, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<BlobRef> findForUpdateByPath(String path);
+
+    /**
+     * @return 0 if the pointer already has a reference
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO blob_refs (path, hash, created_at)
+            VALUES (:path, :hash, :createdAt)
+            ON CONFLICT (path) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("path") String path,
+                       @Param("hash") String hash,
+                       @Param("createdAt") Instant createdAt);
+
+    /**
+     * References held to the blob, including the ones of re-pointed pointers not written yet.
+     */
+    @Query(value = """
+            SELECT (SELECT COUNT(*) FROM blob_refs WHERE hash = :hash)
+                + (SELECT COUNT(*) FROM blob_refs WHERE replaced_hash = :hash)
+            """, nativeQuery = true)
+    long countReferences(@Param("hash") String hash);
+
+    /**
+     * Finding the pointer at {@code hash} confirms that a re-pointing upload wrote it,
+     * so the reference to the replaced blob is dropped too.
+     */
+    @Modifying
+    @Query("""
+            UPDATE BlobRef r SET r.verifiedAt = :verifiedAt, r.replacedHash = NULL
+            WHERE r.path = :path AND r.hash = :hash
+            """)
+    int markVerified(@Param("path") String path,
+                     @Param("hash") String hash,
+                     @Param("verifiedAt") Instant verifiedAt);
+
+    /**
+     * References that the reconciliation started at {@code verifiedBefore} didn't find a pointer for
+     * and that were taken before {@code createdBefore}.
+     */
+    @Modifying
+    @Query("""
+            DELETE FROM BlobRef r
+            WHERE (r.verifiedAt IS NULL OR r.verifiedAt < :verifiedBefore) AND r.createdAt < :createdBefore
+            """)
+    int deleteUnverified(@Param("verifiedBefore") Instant verifiedBefore,
+                         @Param("createdBefore") Instant createdBefore);
+}
@@ -0,0 +1,49 @@
+package org.example.filestorageapi.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.filestorageapi.entity.Blob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BlobRepository extends JpaRepository<Blob, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Blob> findForUpdateByHash(String hash);
+
+    /**
+     * Blobs whose counter differs from the number of their {@code blob_refs} rows,
+     * counting the rows of re-pointed pointers that still refer to them.
+     */
+    @Query(value = """
+            SELECT b.hash FROM blobs b
+            WHERE b.ref_count <> (SELECT COUNT(*) FROM blob_refs r WHERE r.hash = b.hash)
+                + (SELECT COUNT(*) FROM blob_refs r WHERE r.replaced_hash = b.hash)
+            """, nativeQuery = true)
+    List<String> findHashesWithWrongRefCount();
+
+    /**
+     * Adds a reference to the blob, creating its row for the first one. Waits for a concurrent release
+     * of the same blob holding the row lock.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO blobs (hash, size, ref_count, created_at)
+            VALUES (:hash, :size, 1, :createdAt)
+            ON CONFLICT (hash) DO UPDATE
+            SET ref_count = blobs.ref_count + 1
+            """, nativeQuery = true)
+    void addReference(@Param("hash") String hash,
+                      @Param("size") long size,
+                      @Param("createdAt") Instant createdAt);
+}
@@ -0,0 +1,41 @@
+package org.example.filestorageapi.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.filestorageapi.entity.QuotaReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface QuotaReservationRepository extends JpaRepository<QuotaReservation, UUID> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<QuotaReservation> findForUpdateById(UUID id);
+
+    @Query("SELECT r.id FROM QuotaReservation r WHERE r.touchedAt < :touchedBefore")
+    List<UUID> findIdsTouchedBefore(@Param("touchedBefore") Instant touchedBefore);
+
+    /**
+     * Creates the reservation or adds {@code size} to it, and marks it as touched at {@code touchedAt}.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO quota_reservations (id, owner_id, size, touched_at)
+            VALUES (:id, :ownerId, :size, :touchedAt)
+            ON CONFLICT (id) DO UPDATE
+            SET size       = quota_reservations.size + EXCLUDED.size,
+                touched_at = EXCLUDED.touched_at
+            """, nativeQuery = true)
+    void addSize(@Param("id") UUID id,
+                 @Param("ownerId") int ownerId,
+                 @Param("size") long size,
+                 @Param("touchedAt") Instant touchedAt);
+}
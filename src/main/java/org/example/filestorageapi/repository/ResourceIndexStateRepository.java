@@ -0,0 +1,25 @@
+package org.example.filestorageapi.repository;
+
+import org.example.filestorageapi.entity.ResourceIndexState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface ResourceIndexStateRepository extends JpaRepository<ResourceIndexState, Short> {
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO resource_index_state (id, reconciled_at)
+            VALUES (1, :reconciledAt)
+            ON CONFLICT (id) DO UPDATE
+            SET reconciled_at = EXCLUDED.reconciled_at
+            """, nativeQuery = true)
+    void markReconciled(@Param("reconciledAt") Instant reconciledAt);
+}
@@ -0,0 +1,207 @@
+package org.example.filestorageapi.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.filestorageapi.entity.ResourceMetadata;
+import org.example.filestorageapi.utils.ResourceType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ResourceMetadataRepository extends JpaRepository<ResourceMetadata, Long> {
+
+    Optional<ResourceMetadata> findByParentPathAndNameAndType(String parentPath, String name, ResourceType type);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<ResourceMetadata> findForUpdateByParentPathAndNameAndType(String parentPath, String name,
+                                                                       ResourceType type);
+
+    boolean existsByParentPathAndNameAndType(String parentPath, String name, ResourceType type);
+
+    /**
+     * Up to {@code limit} rows of the user whose object key (with a trailing slash for folders) sorts after
+     * {@code startAfter}, in the byte order MinIO lists keys in. Served by {@code idx_resources_owner_key}.
+     */
+    @Query(value = """
+            SELECT * FROM resources
+            WHERE owner_id = :ownerId
+              AND (parent_path || name || CASE WHEN type = 'DIRECTORY' THEN '/' ELSE '' END) COLLATE "C" > :startAfter
+            ORDER BY (parent_path || name || CASE WHEN type = 'DIRECTORY' THEN '/' ELSE '' END) COLLATE "C"
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ResourceMetadata> findOwnerPage(@Param("ownerId") int ownerId,
+                                         @Param("startAfter") String startAfter,
+                                         @Param("limit") int limit);
+
+    /**
+     * Up to {@code limit} entries of the folder whose key (name, with a trailing slash for folders) sorts after
+     * {@code startAfter}, in the byte order MinIO lists keys in. Served by {@code idx_resources_listing}.
+     */
+    @Query(value = """
+            SELECT * FROM resources
+            WHERE parent_path = :parentPath
+              AND (name || CASE WHEN type = 'DIRECTORY' THEN '/' ELSE '' END) COLLATE "C" > :startAfter
+            ORDER BY (name || CASE WHEN type = 'DIRECTORY' THEN '/' ELSE '' END) COLLATE "C"
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ResourceMetadata> findFolderPage(@Param("parentPath") String parentPath,
+                                          @Param("startAfter") String startAfter,
+                                          @Param("limit") int limit);
+
+    /**
+     * Names containing {@code searchWord}, ranked exact match first, then prefix matches, then the rest;
+     * shorter names first within a rank. {@code pattern} and {@code prefixPattern} are the LIKE patterns
+     * for the lower-cased word, escaped with {@code !}. The user root folder itself is never a result.
+     * The substring condition is answered by the trigram index {@code idx_resources_owner_name_trgm}.
+     */
+    @Query(value = """
+            SELECT * FROM resources
+            WHERE owner_id = :ownerId AND parent_path <> '' AND LOWER(name) LIKE :pattern ESCAPE '!'
+            ORDER BY CASE
+                         WHEN LOWER(name) = :searchWord THEN 0
+                         WHEN LOWER(name) LIKE :prefixPattern ESCAPE '!' THEN 1
+                         ELSE 2
+                         END,
+                     LENGTH(name), parent_path, name
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ResourceMetadata> searchByName(@Param("ownerId") int ownerId,
+                                        @Param("searchWord") String searchWord,
+                                        @Param("pattern") String pattern,
+                                        @Param("prefixPattern") String prefixPattern,
+                                        @Param("limit") int limit);
+
+    /**
+     * Inserts the file or refreshes an existing row. Concurrent writers don't conflict, which a find-then-save would.
+     * Every column is written, the test schema is generated from the entity and has no column defaults.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO resources (owner_id, parent_path, name, type, size, object_count, reserved, etag,
+                                   created_at, updated_at, indexed_at)
+            VALUES (:ownerId, :parentPath, :name, 'FILE', :size, 0, 0, CAST(:etag AS VARCHAR),
+                    :updatedAt, :updatedAt, :indexedAt)
+            ON CONFLICT (parent_path, name, type) DO UPDATE
+            SET size       = EXCLUDED.size,
+                etag       = EXCLUDED.etag,
+                updated_at = GREATEST(resources.updated_at, EXCLUDED.updated_at),
+                indexed_at = EXCLUDED.indexed_at
+            """, nativeQuery = true)
+    void upsertFile(@Param("ownerId") int ownerId,
+                    @Param("parentPath") String parentPath,
+                    @Param("name") String name,
+                    @Param("size") long size,
+                    @Param("etag") String etag,
+                    @Param("updatedAt") Instant updatedAt,
+                    @Param("indexedAt") Instant indexedAt);
+
+    /**
+     * Inserts the folder or refreshes an existing row, adding the deltas to its usage counters.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO resources (owner_id, parent_path, name, type, size, object_count, reserved,
+                                   created_at, updated_at, indexed_at)
+            VALUES (:ownerId, :parentPath, :name, 'DIRECTORY', :sizeDelta, :countDelta, 0,
+                    :updatedAt, :updatedAt, :indexedAt)
+            ON CONFLICT (parent_path, name, type) DO UPDATE
+            SET size         = resources.size + EXCLUDED.size,
+                object_count = resources.object_count + EXCLUDED.object_count,
+                updated_at   = GREATEST(resources.updated_at, EXCLUDED.updated_at),
+                indexed_at   = EXCLUDED.indexed_at
+            """, nativeQuery = true)
+    void upsertFolder(@Param("ownerId") int ownerId,
+                      @Param("parentPath") String parentPath,
+                      @Param("name") String name,
+                      @Param("sizeDelta") long sizeDelta,
+                      @Param("countDelta") long countDelta,
+                      @Param("updatedAt") Instant updatedAt,
+                      @Param("indexedAt") Instant indexedAt);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE ResourceMetadata r
+            SET r.size = r.size + :sizeDelta, r.objectCount = r.objectCount + :countDelta
+            WHERE r.parentPath = :parentPath AND r.name = :name AND r.type = org.example.filestorageapi.utils.ResourceType.DIRECTORY
+            """)
+    int addFolderUsage(@Param("parentPath") String parentPath,
+                       @Param("name") String name,
+                       @Param("sizeDelta") long sizeDelta,
+                       @Param("countDelta") long countDelta);
+
+    /**
+     * Adds {@code size} to the reservations of the user root folder {@code rootName} unless its usage and
+     * reservations would then exceed {@code maxSize}. A single statement, so concurrent uploads on any node
+     * can't both take the last bytes.
+     *
+     * @return 0 if the quota doesn't allow it or the folder has no row
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE resources
+            SET reserved = reserved + :size
+            WHERE parent_path = '' AND name = :rootName AND type = 'DIRECTORY'
+              AND size + reserved + :size <= :maxSize
+            """, nativeQuery = true)
+    int reserveQuota(@Param("rootName") String rootName,
+                     @Param("size") long size,
+                     @Param("maxSize") long maxSize);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE resources
+            SET reserved = GREATEST(reserved - :size, 0)
+            WHERE parent_path = '' AND name = :rootName AND type = 'DIRECTORY'
+            """, nativeQuery = true)
+    int releaseQuota(@Param("rootName") String rootName,
+                     @Param("size") long size);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ResourceMetadata r WHERE r.parentPath = :parentPath AND r.name = :name AND r.type = :type")
+    int deleteResource(@Param("parentPath") String parentPath,
+                       @Param("name") String name,
+                       @Param("type") ResourceType type);
+
+    /**
+     * {@code pathPattern} is a LIKE pattern escaped with {@code !}.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ResourceMetadata r WHERE r.parentPath LIKE :pathPattern ESCAPE '!'")
+    int deleteByParentPathLike(@Param("pathPattern") String pathPattern);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ResourceMetadata r WHERE r.indexedAt < :indexedBefore")
+    int deleteIndexedBefore(@Param("indexedBefore") Instant indexedBefore);
+
+    /**
+     * Rows written since {@code indexedBefore} are kept even if listed in {@code ids}.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ResourceMetadata r WHERE r.id IN :ids AND r.indexedAt < :indexedBefore")
+    int deleteByIdsIndexedBefore(@Param("ids") Collection<Long> ids,
+                                 @Param("indexedBefore") Instant indexedBefore);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ResourceMetadata r WHERE r.ownerId NOT IN :ownerIds AND r.indexedAt < :indexedBefore")
+    int deleteOtherOwnersIndexedBefore(@Param("ownerIds") Collection<Integer> ownerIds,
+                                       @Param("indexedBefore") Instant indexedBefore);
+}
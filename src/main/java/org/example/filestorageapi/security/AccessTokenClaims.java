@@ -0,0 +1,44 @@
+package org.example.filestorageapi.security;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.example.filestorageapi.utils.Roles;
+
+import java.util.Set;
+
+/**
+ * Payload of an access token. Times are epoch seconds; {@code authTime} is the sign-in the token descends from
+ * and stays the same across refreshes.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccessTokenClaims {
+
+    @JsonProperty("jti")
+    private String tokenId;
+
+    @JsonProperty("sub")
+    private Long userId;
+
+    @JsonProperty("name")
+    private String username;
+
+    @JsonProperty("roles")
+    private Set<Roles> roles;
+
+    @JsonProperty("iat")
+    private long issuedAt;
+
+    @JsonProperty("exp")
+    private long expiresAt;
+
+    @JsonProperty("auth_time")
+    private long authTime;
+
+    public CustomUserDetails toUserDetails() {
+        return new CustomUserDetails(userId, username, roles);
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.filestorageapi.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.filestorageapi.errors.SessionExpiredException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Issues and verifies the signed access tokens used when {@code auth.token.enabled} is set.
+ * A token is a JWT signed with HMAC-SHA256 that carries the id, username and roles of {@link CustomUserDetails},
+ * so a request is authenticated without loading anything from Redis. Tokens live for {@code auth.token.ttl}
+ * and can be exchanged for a new one until {@code auth.token.max-lifetime} after sign-in;
+ * revoked and refreshed tokens are kept in the {@link TokenDenyList} until they expire.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class AccessTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final String HEADER = ENCODER.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    private final ObjectMapper objectMapper;
+    private final TokenDenyList denyList;
+    private final SecureRandom random = new SecureRandom();
+
+    @Getter
+    @Value("${auth.token.enabled}")
+    private boolean enabled;
+
+    @Value("${auth.token.secret}")
+    private String secret;
+
+    @Value("${auth.token.ttl}")
+    private Duration ttl;
+
+    @Value("${auth.token.max-lifetime}")
+    private Duration maxLifetime;
+
+    private Mac signer;
+
+    @PostConstruct
+    public void init() throws GeneralSecurityException {
+        if (!enabled) {
+            return;
+        }
+
+        byte[] key = secret.getBytes(StandardCharsets.UTF_8);
+        if (key.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("auth.token.secret must be at least " + MIN_SECRET_BYTES + " bytes long");
+        }
+
+        signer = Mac.getInstance(ALGORITHM);
+        signer.init(new SecretKeySpec(key, ALGORITHM));
+    }
+
+    public IssuedToken issue(CustomUserDetails userDetails) {
+        return issue(userDetails, Instant.now().getEpochSecond());
+    }
+
+    /**
+     * Replaces a valid token with a new one for the same sign-in; the old token is denied from now on.
+     * Only the first of concurrent or replayed refreshes of a token gets a new one, the others are rejected.
+     */
+    public IssuedToken refresh(AccessTokenClaims claims) {
+        long now = Instant.now().getEpochSecond();
+        if (now - claims.getAuthTime() >= maxLifetime.toSeconds()) {
+            throw new SessionExpiredException("Your session expired. Log in again.");
+        }
+
+        if (!revoke(claims)) {
+            log.warn("Rejected refresh of already revoked token {} of user {}", claims.getTokenId(),
+                    claims.getUserId());
+            throw new SessionExpiredException("Your session expired. Log in again.");
+        }
+        return issue(claims.toUserDetails(), claims.getAuthTime());
+    }
+
+    /**
+     * @return false if the token was already revoked
+     */
+    public boolean revoke(AccessTokenClaims claims) {
+        return denyList.deny(claims.getTokenId(), claims.getExpiresAt());
+    }
+
+    /**
+     * @return the claims of a correctly signed, unexpired and not revoked token, otherwise null
+     */
+    public AccessTokenClaims verify(String token) {
+        int payloadStart = token.indexOf('.') + 1;
+        int signatureStart = token.indexOf('.', payloadStart) + 1;
+        if (payloadStart - 1 != HEADER.length() || signatureStart == 0 || !token.startsWith(HEADER)) {
+            return null;
+        }
+
+        try {
+            byte[] signature = DECODER.decode(token.substring(signatureStart));
+            if (!MessageDigest.isEqual(signature, sign(token.substring(0, signatureStart - 1)))) {
+                return null;
+            }
+
+            AccessTokenClaims claims = objectMapper.readValue(
+                    DECODER.decode(token.substring(payloadStart, signatureStart - 1)), AccessTokenClaims.class);
+            if (claims.getExpiresAt() <= Instant.now().getEpochSecond() || denyList.isDenied(claims.getTokenId())) {
+                return null;
+            }
+
+            return claims;
+        } catch (Exception e) {
+            log.debug("Rejected malformed access token: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private IssuedToken issue(CustomUserDetails userDetails, long authTime) {
+        long now = Instant.now().getEpochSecond();
+        byte[] tokenId = new byte[16];
+        random.nextBytes(tokenId);
+
+        AccessTokenClaims claims = new AccessTokenClaims(ENCODER.encodeToString(tokenId), userDetails.getId(),
+                userDetails.getUsername(), userDetails.getRoles(), now, now + ttl.toSeconds(), authTime);
+
+        try {
+            String unsigned = HEADER + "." + ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+            String token = unsigned + "." + ENCODER.encodeToString(sign(unsigned));
+            return new IssuedToken(token, Instant.ofEpochSecond(claims.getExpiresAt()));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to issue access token", e);
+        }
+    }
+
+    private byte[] sign(String unsigned) throws CloneNotSupportedException {
+        // a Mac isn't thread-safe, the clone skips the key setup of a new instance
+        Mac mac = (Mac) signer.clone();
+        return mac.doFinal(unsigned.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public record IssuedToken(String value, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.filestorageapi.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.filestorageapi.errors.PasswordHashingOverloadedException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the hashing and verification of a delegate encoder on a bounded pool, so a burst of sign-ins can't
+ * occupy every request thread with BCrypt. The request thread only waits for the result. A task that doesn't
+ * fit the queue of the pool or doesn't finish within {@code maxWait} is rejected with
+ * {@link PasswordHashingOverloadedException}. {@link #upgradeEncoding} stays on the caller, it only parses the hash.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, ThreadPoolExecutor executor, Duration maxWait,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.retryAfterSeconds = Math.max(1, maxWait.toSeconds());
+
+        this.encodeTimer = hashTimer("encode", meterRegistry);
+        this.matchesTimer = hashTimer("matches", meterRegistry);
+        this.rejected = meterRegistry.counter("auth.password.rejected");
+
+        Gauge.builder("auth.password.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Password hashes waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes being computed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Callable<T> task, Timer timer) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            throw overloaded();
+        }
+
+        try {
+            return future.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // a queued task is dropped, a running one finishes and its result is discarded
+            cancel(future);
+            throw overloaded();
+        } catch (InterruptedException e) {
+            cancel(future);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * A cancelled task would hold its queue slot until a worker takes it, so it is taken out of the queue
+     * right away and doesn't push live sign-ins over the capacity.
+     */
+    private void cancel(Future<?> future) {
+        if (future.cancel(false) && future instanceof Runnable task) {
+            executor.remove(task);
+        }
+    }
+
+    private PasswordHashingOverloadedException overloaded() {
+        rejected.increment();
+        return new PasswordHashingOverloadedException(
+                "Too many sign-in requests are being processed. Try again later.", retryAfterSeconds);
+    }
+
+    private static Timer hashTimer(String operation, MeterRegistry meterRegistry) {
+        return Timer.builder("auth.password.hash")
+                .description("Time spent computing a password hash on the hashing pool")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,158 @@
+package org.example.filestorageapi.security;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.filestorageapi.utils.Roles;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Serializes session hash values for Spring Session. The timestamps and the timeout are written as plain numbers and
+ * the security context as {@code id, username, role names} of its {@link CustomUserDetails}, so a context takes a few
+ * dozen bytes instead of a JDK object graph and does not depend on the Spring Security class layout. Anything else,
+ * and a context that can't be rebuilt exactly (extra details, foreign principal), falls back to JDK serialization;
+ * values written before this serializer was introduced are read the same way.
+ */
+public class CompactSessionSerializer implements RedisSerializer<Object> {
+
+    private static final byte LONG = 1;
+    private static final byte INTEGER = 2;
+    private static final byte SECURITY_CONTEXT = 3;
+
+    private static final byte SECURITY_CONTEXT_VERSION = 1;
+
+    private final RedisSerializer<Object> fallback;
+    private final DistributionSummary writtenBytes;
+    private final DistributionSummary readBytes;
+
+    public CompactSessionSerializer(ClassLoader classLoader, MeterRegistry meterRegistry) {
+        this.fallback = new JdkSerializationRedisSerializer(classLoader);
+        this.writtenBytes = sizeSummary("write", meterRegistry);
+        this.readBytes = sizeSummary("read", meterRegistry);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        byte[] bytes = compactForm(value);
+        if (bytes == null) {
+            bytes = fallback.serialize(value);
+        }
+
+        writtenBytes.record(bytes.length);
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        readBytes.record(bytes.length);
+
+        // a JDK stream starts with 0xACED and never collides with the tags below
+        if (bytes[0] > SECURITY_CONTEXT || bytes[0] < LONG) {
+            return fallback.deserialize(bytes);
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+            return switch (bytes[0]) {
+                case LONG -> in.readLong();
+                case INTEGER -> in.readInt();
+                default -> readSecurityContext(in);
+            };
+        } catch (IOException e) {
+            throw new SerializationException("Cannot read session value", e);
+        }
+    }
+
+    private byte[] compactForm(Object value) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            if (value instanceof Long number) {
+                out.writeByte(LONG);
+                out.writeLong(number);
+            } else if (value instanceof Integer number) {
+                out.writeByte(INTEGER);
+                out.writeInt(number);
+            } else if (value instanceof SecurityContext context && isCompactable(context.getAuthentication())) {
+                out.writeByte(SECURITY_CONTEXT);
+                writeSecurityContext(out, (CustomUserDetails) context.getAuthentication().getPrincipal());
+            } else {
+                return null;
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Cannot write session value", e);
+        }
+
+        return buffer.toByteArray();
+    }
+
+    private boolean isCompactable(Authentication authentication) {
+        return authentication instanceof UsernamePasswordAuthenticationToken
+                && authentication.isAuthenticated()
+                && authentication.getCredentials() == null
+                && authentication.getDetails() == null
+                && authentication.getPrincipal() instanceof CustomUserDetails userDetails
+                && userDetails.getId() != null
+                && new HashSet<>(authentication.getAuthorities()).equals(userDetails.getAuthorities());
+    }
+
+    private void writeSecurityContext(DataOutputStream out, CustomUserDetails userDetails) throws IOException {
+        out.writeByte(SECURITY_CONTEXT_VERSION);
+        out.writeLong(userDetails.getId());
+        out.writeUTF(userDetails.getUsername());
+
+        Set<Roles> roles = userDetails.getRoles();
+        out.writeByte(roles.size());
+        for (Roles role : roles) {
+            out.writeUTF(role.name());
+        }
+    }
+
+    private SecurityContext readSecurityContext(DataInputStream in) throws IOException {
+        byte version = in.readByte();
+        if (version != SECURITY_CONTEXT_VERSION) {
+            throw new SerializationException("Unknown security context version: " + version);
+        }
+
+        long id = in.readLong();
+        String username = in.readUTF();
+
+        int roleCount = in.readUnsignedByte();
+        Set<Roles> roles = EnumSet.noneOf(Roles.class);
+        for (int i = 0; i < roleCount; i++) {
+            roles.add(Roles.valueOf(in.readUTF()));
+        }
+
+        CustomUserDetails userDetails = new CustomUserDetails(id, username, roles);
+        return new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(
+                userDetails, null, userDetails.getAuthorities()));
+    }
+
+    private static DistributionSummary sizeSummary(String direction, MeterRegistry meterRegistry) {
+        return DistributionSummary.builder("session.redis.value.bytes")
+                .description("Size of a serialized session attribute or field")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+}
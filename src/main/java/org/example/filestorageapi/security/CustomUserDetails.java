@@ -29,6 +29,7 @@ public class CustomUserDetails implements UserDetails, CredentialsContainer, Ser
     @JsonIgnore
     private String password;
 
+    @Getter
     private final Set<Roles> roles;
 
     public CustomUserDetails(User user) {
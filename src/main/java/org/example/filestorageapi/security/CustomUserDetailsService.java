@@ -5,13 +5,15 @@ import lombok.RequiredArgsConstructor;
 import org.example.filestorageapi.entity.User;
 import org.example.filestorageapi.repository.UserRepository;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -23,4 +25,18 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         return new CustomUserDetails(user);
     }
+
+    /**
+     * Stores the password hashed again with the current BCrypt strength, called on a successful sign-in.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername()).orElseThrow(
+                () -> new UsernameNotFoundException("User with login '" + userDetails.getUsername() + "' not found")
+        );
+        user.setEncryptedPassword(newPassword);
+
+        return new CustomUserDetails(userRepository.save(user));
+    }
 }
@@ -0,0 +1,76 @@
+package org.example.filestorageapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.filestorageapi.errors.TooManyLoginAttemptsException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits sign-in and sign-up attempts to {@code auth.login.throttle.max-attempts} per client address in a fixed
+ * {@code auth.login.throttle.window}, which starts with the first attempt. Each attempt costs a BCrypt hash,
+ * so the throttle is checked before the password is looked at. The counters are per node.
+ * The address is {@code request.getRemoteAddr()}, which behind a trusted proxy is the client from
+ * {@code X-Forwarded-For} (see {@code server.forward-headers-strategy}).
+ */
+@Component
+public class LoginThrottle {
+
+    private static final long MAX_TRACKED_ADDRESSES = 100_000;
+
+    private final int maxAttempts;
+    private final long windowNanos;
+    private final Ticker ticker;
+    private final Cache<String, Window> windows;
+    private final Counter throttled;
+
+    @Autowired
+    public LoginThrottle(@Value("${auth.login.throttle.max-attempts}") int maxAttempts,
+                         @Value("${auth.login.throttle.window}") Duration window,
+                         MeterRegistry meterRegistry) {
+        this(maxAttempts, window, meterRegistry, Ticker.systemTicker());
+    }
+
+    LoginThrottle(int maxAttempts, Duration window, MeterRegistry meterRegistry, Ticker ticker) {
+        this.maxAttempts = maxAttempts;
+        this.windowNanos = window.toNanos();
+        this.ticker = ticker;
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_ADDRESSES)
+                .expireAfterWrite(window)
+                .ticker(ticker)
+                .build();
+        this.throttled = meterRegistry.counter("auth.login.throttled");
+    }
+
+    public void acquire(String clientAddress) {
+        if (maxAttempts <= 0) {
+            return;
+        }
+
+        Window window = windows.get(clientAddress, address -> new Window(ticker.read()));
+        if (window.attempts.incrementAndGet() > maxAttempts) {
+            throttled.increment();
+            long remainingNanos = window.startNanos + windowNanos - ticker.read();
+            throw new TooManyLoginAttemptsException("Too many sign-in attempts. Try again later.",
+                    Math.max(1, (long) Math.ceil(remainingNanos / 1e9)));
+        }
+    }
+
+    private static final class Window {
+
+        private final long startNanos;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private Window(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+}
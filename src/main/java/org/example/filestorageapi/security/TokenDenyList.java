@@ -0,0 +1,87 @@
+package org.example.filestorageapi.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of revoked access tokens that haven't expired yet. Lookups are served from memory; revocations go to a Redis
+ * sorted set scored by expiry, which every instance pulls each {@code auth.token.deny-list-sync-interval}.
+ * A token revoked on another instance is therefore still accepted here for up to that interval. {@link #deny} itself
+ * is decided by Redis, so a token can be revoked, and thereby refreshed, only once across all instances.
+ * Entries are dropped once their token would have expired anyway, so the list only holds the revocations
+ * of the last {@code auth.token.ttl}.
+ */
+@Log4j2
+@Component
+public class TokenDenyList {
+
+    private static final String KEY = "auth:denied-tokens";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Map<String, Long> deniedUntil = new ConcurrentHashMap<>();
+
+    @Value("${auth.token.enabled}")
+    private boolean tokenAuthEnabled;
+
+    public TokenDenyList(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        Gauge.builder("auth.token.denied", deniedUntil, Map::size)
+                .description("Revoked access tokens that haven't expired yet")
+                .register(meterRegistry);
+    }
+
+    public boolean isDenied(String tokenId) {
+        return deniedUntil.containsKey(tokenId);
+    }
+
+    /**
+     * Adds the token with {@code ZADD NX}.
+     *
+     * @return false if the token was already denied, on this or another instance
+     */
+    public boolean deny(String tokenId, long expiresAt) {
+        boolean deniedHere = deniedUntil.putIfAbsent(tokenId, expiresAt) == null;
+
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForZSet().addIfAbsent(KEY, tokenId, expiresAt)) && deniedHere;
+        } catch (Exception e) {
+            log.warn("Revocation of token {} is only known to this instance: {}", tokenId, e.getMessage());
+            return deniedHere;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token.deny-list-sync-interval}")
+    public void sync() {
+        if (!tokenAuthEnabled) {
+            return;
+        }
+
+        long now = Instant.now().getEpochSecond();
+        deniedUntil.values().removeIf(expiresAt -> expiresAt < now);
+
+        try {
+            ZSetOperations<String, String> denied = redisTemplate.opsForZSet();
+            denied.removeRangeByScore(KEY, Double.NEGATIVE_INFINITY, now - 1);
+
+            Set<ZSetOperations.TypedTuple<String>> entries = denied.rangeByScoreWithScores(KEY, now, Double.POSITIVE_INFINITY);
+            if (entries != null) {
+                for (ZSetOperations.TypedTuple<String> entry : entries) {
+                    deniedUntil.put(entry.getValue(), entry.getScore().longValue());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Token deny-list sync failed, keeping {} local entries: {}", deniedUntil.size(), e.getMessage());
+        }
+    }
+}
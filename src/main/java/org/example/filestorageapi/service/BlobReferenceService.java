@@ -0,0 +1,200 @@
+package org.example.filestorageapi.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.filestorageapi.entity.BlobRef;
+import org.example.filestorageapi.repository.BlobRefRepository;
+import org.example.filestorageapi.repository.BlobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Reference counts of the content-addressed blobs. Each pointer object holds one reference, recorded as a
+ * {@code blob_refs} row under its path, and the count of a blob only changes together with such a row.
+ * Releasing the reference of a path twice, e.g. by two concurrent deletes, therefore decrements once.
+ * A pointer re-pointed to another blob keeps the reference to the replaced one in the same row until the new
+ * pointer is written, so the replaced blob can't be removed while the old pointer may still be in place.
+ * A blob object is removed together with its last reference while the row stays locked, so an upload
+ * adding a reference at the same time waits and then finds the object gone and stores it again.
+ * References left behind by crashes and failed removals are corrected by {@link ResourceIndexReconciler},
+ * which checks the rows against the pointers in the bucket and recounts the blobs.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class BlobReferenceService {
+
+    private final BlobRepository blobRepository;
+    private final BlobRefRepository blobRefRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${minio.dedup.reference-grace}")
+    private Duration referenceGrace;
+
+    /**
+     * Records that the pointer at {@code path} refers to the blob. Must be called before checking whether the
+     * blob object exists and before the pointer is written. If the path already holds a reference to another blob,
+     * the row is moved to the new blob and keeps the old one as replaced until {@link #confirmReference} or
+     * {@link #revertReference}. A row that is already re-pointed, e.g. by an upload that crashed half-way,
+     * keeps its replaced blob and the count of the unconfirmed one is left to the reconciliation.
+     */
+    public void addReference(String path, String hash, long size) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<BlobRef> existing = blobRefRepository.findForUpdateByPath(path);
+            if (existing.isPresent()) {
+                BlobRef ref = existing.get();
+                if (ref.getHash().equals(hash)) {
+                    return;
+                }
+                if (ref.getReplacedHash() == null) {
+                    ref.setReplacedHash(ref.getHash());
+                }
+                ref.setHash(hash);
+                ref.setCreatedAt(Instant.now());
+            } else if (blobRefRepository.insertIfAbsent(path, hash, Instant.now()) == 0) {
+                throw new IllegalStateException("Blob reference of '" + path + "' was added concurrently");
+            }
+
+            blobRepository.addReference(hash, size, Instant.now());
+        });
+    }
+
+    /**
+     * Releases the blob replaced by {@link #addReference} once the pointer at {@code path} refers to {@code hash}.
+     */
+    public void confirmReference(String path, String hash, Consumer<String> removeBlob) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> blobRefRepository.findForUpdateByPath(path)
+                    .filter(ref -> ref.getHash().equals(hash) && ref.getReplacedHash() != null)
+                    .ifPresent(ref -> {
+                        String replacedHash = ref.getReplacedHash();
+                        ref.setReplacedHash(null);
+                        release(replacedHash, removeBlob);
+                    }));
+        } catch (RuntimeException e) {
+            log.error("Could not release the replaced blob of '{}': {}", path, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Undoes {@link #addReference} after the pointer at {@code path} could not be written: the reference to
+     * {@code hash} is released and a replaced blob becomes the reference of the path again.
+     */
+    public void revertReference(String path, String hash, Consumer<String> removeBlob) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> blobRefRepository.findForUpdateByPath(path)
+                    .filter(ref -> ref.getHash().equals(hash))
+                    .ifPresent(ref -> {
+                        if (ref.getReplacedHash() == null) {
+                            blobRefRepository.delete(ref);
+                        } else {
+                            ref.setHash(ref.getReplacedHash());
+                            ref.setReplacedHash(null);
+                        }
+                        release(hash, removeBlob);
+                    }));
+        } catch (RuntimeException e) {
+            log.error("Could not revert the blob reference of '{}': {}", path, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Drops the reference held by the pointer at {@code path}, if it has one, together with the reference to
+     * a replaced blob. When it was the last reference to a blob, {@code removeBlob} is run with its hash before
+     * the rows are deleted; if it fails, the reference is kept and the blob stays.
+     */
+    public void removeReference(String path, Consumer<String> removeBlob) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> blobRefRepository.findForUpdateByPath(path)
+                    .ifPresent(ref -> {
+                        blobRefRepository.delete(ref);
+                        release(ref.getHash(), removeBlob);
+                        if (ref.getReplacedHash() != null) {
+                            release(ref.getReplacedHash(), removeBlob);
+                        }
+                    }));
+        } catch (RuntimeException e) {
+            log.error("Could not remove the blob reference of '{}': {}", path, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marks the references of pointers found by the reconciliation started at {@code reconcileStart}
+     * in one transaction, adding the ones that are missing, e.g. of pointers written before references
+     * were kept per path. A found pointer confirms a re-pointed row, whose replaced blob is then corrected by
+     * {@link #recount}. A reference to another blob than the one found is left as it is,
+     * the listing may predate a newer pointer.
+     */
+    public void verifyReferences(List<Pointer> pointers, Instant reconcileStart) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Pointer pointer : pointers) {
+                if (blobRefRepository.insertIfAbsent(pointer.path(), pointer.hash(), Instant.now()) == 1) {
+                    blobRepository.addReference(pointer.hash(), pointer.size(), Instant.now());
+                }
+                blobRefRepository.markVerified(pointer.path(), pointer.hash(), reconcileStart);
+            }
+        });
+    }
+
+    /**
+     * Drops the references the complete reconciliation started at {@code reconcileStart} didn't find a pointer for,
+     * unless they are younger than {@code minio.dedup.reference-grace}, and sets the counter of every blob to the
+     * number of its references. A blob left without references is removed.
+     *
+     * @return the number of blobs whose counter was corrected
+     */
+    public int recount(Instant reconcileStart, Consumer<String> removeBlob) {
+        Integer droppedCount = transactionTemplate.execute(status ->
+                blobRefRepository.deleteUnverified(reconcileStart, reconcileStart.minus(referenceGrace)));
+        if (droppedCount != null && droppedCount > 0) {
+            log.info("Dropped {} blob references without a pointer", droppedCount);
+        }
+
+        int correctedCount = 0;
+        for (String hash : blobRepository.findHashesWithWrongRefCount()) {
+            try {
+                // counted under the row lock, so references added or released meanwhile are applied on top
+                transactionTemplate.executeWithoutResult(status -> blobRepository.findForUpdateByHash(hash)
+                        .ifPresent(blob -> {
+                            long refCount = blobRefRepository.countReferences(hash);
+                            if (refCount > 0) {
+                                blob.setRefCount(refCount);
+                                return;
+                            }
+
+                            removeBlob.accept(hash);
+                            blobRepository.delete(blob);
+                            log.info("Blob '{}' has no references left and was removed", hash);
+                        }));
+                correctedCount++;
+            } catch (RuntimeException e) {
+                log.warn("Could not recount the references of blob '{}': {}", hash, e.getMessage());
+            }
+        }
+
+        return correctedCount;
+    }
+
+    private void release(String hash, Consumer<String> removeBlob) {
+        blobRepository.findForUpdateByHash(hash).ifPresent(blob -> {
+            if (blob.getRefCount() > 1) {
+                blob.setRefCount(blob.getRefCount() - 1);
+                return;
+            }
+
+            removeBlob.accept(hash);
+            blobRepository.delete(blob);
+            log.info("Blob '{}' has no references left and was removed", hash);
+        });
+    }
+
+    public record Pointer(String path, String hash, long size) {
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.filestorageapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.filestorageapi.utils.PathUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Folder prefixes known to exist, so that ancestor checks don't list MinIO on every request.
+ * Only positive answers are cached. Writes through this node add the prefixes of the written object and
+ * deletes drop the deleted folder and everything below it. A parent left without objects stays cached;
+ * like changes made through other nodes, that is picked up when its entry expires.
+ */
+@Component
+public class FolderExistenceCache {
+
+    private final Cache<String, Boolean> knownFolders;
+
+    public FolderExistenceCache(@Value("${minio.folder-cache.max-size}") long maxSize,
+                                @Value("${minio.folder-cache.ttl}") Duration ttl,
+                                MeterRegistry meterRegistry) {
+        this.knownFolders = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, knownFolders, "folderExistence");
+    }
+
+    public boolean isKnownFolder(String folderPath) {
+        return knownFolders.getIfPresent(PathUtils.addSlashToTheEnd(folderPath)) != null;
+    }
+
+    public void addFolder(String folderPath) {
+        String normalizedPath = PathUtils.addSlashToTheEnd(folderPath);
+
+        knownFolders.put(normalizedPath, Boolean.TRUE);
+        addParentFolders(normalizedPath);
+    }
+
+    /**
+     * A written object makes all of its parent prefixes exist.
+     */
+    public void addParentFolders(String objectPath) {
+        int slashIndex = objectPath.indexOf('/');
+        while (slashIndex != -1 && slashIndex < objectPath.length() - 1) {
+            knownFolders.put(objectPath.substring(0, slashIndex + 1), Boolean.TRUE);
+            slashIndex = objectPath.indexOf('/', slashIndex + 1);
+        }
+    }
+
+    /**
+     * Only a folder marker has an entry of its own; removing a file leaves the cache as it is.
+     */
+    public void removeObject(String objectPath) {
+        if (PathUtils.hasSlashInTheEnd(objectPath)) {
+            removeFolder(objectPath);
+        }
+    }
+
+    public void removeFolder(String folderPath) {
+        String normalizedPath = PathUtils.addSlashToTheEnd(folderPath);
+
+        knownFolders.asMap().keySet().removeIf(path -> path.startsWith(normalizedPath));
+    }
+}
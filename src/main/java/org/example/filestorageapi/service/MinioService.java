@@ -2,23 +2,71 @@ package org.example.filestorageapi.service;
 
 import io.minio.*;
 import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.example.filestorageapi.dto.ResourceDeleteErrorDto;
 import org.example.filestorageapi.dto.ResourceInfoResponseDto;
+import org.example.filestorageapi.errors.PartialDeleteException;
 import org.example.filestorageapi.errors.ResourceNotFoundException;
 import org.example.filestorageapi.utils.PathUtils;
+import org.example.filestorageapi.utils.ResourcePath;
 import org.example.filestorageapi.utils.ResourceType;
+import org.example.filestorageapi.utils.ZipCompressionMode;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -28,14 +76,70 @@ import java.util.zip.ZipOutputStream;
 public class MinioService {
 
     private final MinioClient minioClient;
+    private final MinioAsyncClient minioAsyncClient;
+
+    private final ZipCompressionPolicy zipCompressionPolicy;
+
+    private final FolderExistenceCache folderExistenceCache;
+    private final ResourceIndexService resourceIndexService;
+    private final BlobReferenceService blobReferenceService;
+    private final MeterRegistry meterRegistry;
+    private final TransferMetrics transferMetrics;
+
+    @Qualifier("zipPrefetchExecutor")
+    private final ExecutorService zipPrefetchExecutor;
+
+    @Qualifier("deleteExecutor")
+    private final ExecutorService deleteExecutor;
 
     @Value("${minio.bucketName}")
     private String bucketName;
 
+    @Value("${minio.zip.prefetch-depth}")
+    private int zipPrefetchDepth;
+
+    @Value("${minio.zip.max-buffered-size}")
+    private DataSize zipMaxBufferedSize;
+
+    @Value("${minio.upload.part-size}")
+    private DataSize uploadPartSize;
+
+    @Value("${minio.delete.batch-size}")
+    private int deleteBatchSize;
+
+    @Value("${minio.delete.parallel-batches}")
+    private int deleteParallelBatches;
+
+    @Value("${minio.upload.staging-prefix}")
+    private String stagingPrefix;
+
+    @Value("${minio.dedup.enabled}")
+    private boolean dedupEnabled;
+
+    @Value("${minio.dedup.blob-prefix}")
+    private String blobPrefix;
+
+    private Semaphore zipBufferBudget;
+    private DistributionSummary listingSize;
+    private DistributionSummary searchScanSize;
+
     private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int MAX_KEYS_PER_LISTING = 1000;
+    private static final String LAST_CODE_POINT = new String(Character.toChars(Character.MAX_CODE_POINT));
+    private static final String USER_METADATA_PREFIX = "x-amz-meta-";
+    private static final String BLOB_HASH_METADATA = "blob-sha256";
+    private static final String BLOB_SIZE_METADATA = "blob-size";
 
     @PostConstruct
     public void init() {
+        zipBufferBudget = new Semaphore((int) Math.min(zipMaxBufferedSize.toBytes(), Integer.MAX_VALUE));
+        listingSize = DistributionSummary.builder("minio.listing.items")
+                .description("Entries returned by one directory page listed from MinIO")
+                .register(meterRegistry);
+        searchScanSize = DistributionSummary.builder("minio.search.scanned")
+                .description("Objects a search listed from MinIO before it finished or stopped")
+                .register(meterRegistry);
+
         try {
             boolean bucketExists = minioClient.bucketExists(BucketExistsArgs.builder()
                     .bucket(bucketName)
@@ -54,13 +158,27 @@ public class MinioService {
         }
     }
 
+    /**
+     * Answered by the resource index when it is readable. Paths the index doesn't know are still checked
+     * in MinIO, so a missed index write never hides an existing object.
+     */
     public boolean isFolderOrThrowNotFound(String path) {
         String folderPath = PathUtils.addSlashToTheEnd(path);
+        if (folderExistenceCache.isKnownFolder(folderPath)) {
+            return true;
+        }
+        if (resourceIndexService.isReadable()) {
+            Optional<ResourceInfoResponseDto> indexed = resourceIndexService.findResource(path);
+            if (indexed.isPresent()) {
+                return indexed.get().getType() == ResourceType.DIRECTORY;
+            }
+        }
 
         Iterable<Result<Item>> results = listFirstObjectInDir(folderPath);
         boolean hasResults = results.iterator().hasNext();
 
         if (hasResults) {
+            folderExistenceCache.addFolder(folderPath);
             return true;
         } else {
             try {
@@ -85,12 +203,28 @@ public class MinioService {
 
     public boolean isFolderExists(String path) {
         String normalizedPath = PathUtils.addSlashToTheEnd(path);
+        if (folderExistenceCache.isKnownFolder(normalizedPath)) {
+            return true;
+        }
+        if (resourceIndexService.isReadable() && resourceIndexService.isFolderExists(normalizedPath)) {
+            folderExistenceCache.addFolder(normalizedPath);
+            return true;
+        }
+
         Iterable<Result<Item>> results = listFirstObjectInDir(normalizedPath);
+        boolean exists = results.iterator().hasNext();
+        if (exists) {
+            folderExistenceCache.addFolder(normalizedPath);
+        }
 
-        return results.iterator().hasNext();
+        return exists;
     }
 
     public boolean isFileExist(String filePath) {
+        if (resourceIndexService.isReadable() && resourceIndexService.isFileExist(filePath)) {
+            return true;
+        }
+
         try {
             statObject(filePath);
             return true;
@@ -108,57 +242,220 @@ public class MinioService {
         }
     }
 
-    public StreamingResponseBody downloadFolderAsZipStream(String folderPath) {
+    /**
+     * Returns full names of the files directly in the folder,
+     * or {@code null} if the folder has more than {@code limit} entries.
+     */
+    public Set<String> listFileNames(String folderPath, int limit) {
+        Set<String> fileNames = new HashSet<>();
+
+        try {
+            int entryCount = 0;
+            for (Result<Item> result : listAllObjectsInDir(folderPath, false)) {
+                if (++entryCount > limit) {
+                    return null;
+                }
+
+                String objectName = result.get().objectName();
+                if (!PathUtils.hasSlashInTheEnd(objectName)) {
+                    fileNames.add(objectName);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error listing files in folder {}: {}", folderPath, e.getMessage(), e);
+            throw new RuntimeException("Error listing files in MinIO", e);
+        }
+
+        return fileNames;
+    }
+
+    public StreamingResponseBody downloadFolderAsZipStream(String folderPath, ZipCompressionMode compressionMode) {
         String normalizedPath = PathUtils.addSlashToTheEnd(folderPath);
 
         return outputStream -> {
-            try (ZipOutputStream zipOut = new ZipOutputStream(outputStream)) {
-                addFolderContentsToZip(normalizedPath, zipOut);
+            try (TransferMetrics.Transfer transfer = transferMetrics.start(TransferMetrics.ZIP);
+                 ZipOutputStream zipOut = new ZipOutputStream(transfer.count(outputStream))) {
+                addFolderContentsToZip(normalizedPath, zipOut, compressionMode);
+                zipOut.finish();
+                transfer.complete();
 
             } catch (Exception e) {
                 log.error("Failed to create ZIP stream for folder {}: {}", normalizedPath, e.getMessage(), e);
-                throw new RuntimeException("Failed to generate ZIP archive");
+                throw new RuntimeException("Failed to generate ZIP archive", e);
             }
         };
     }
 
-    public StreamingResponseBody downloadFileAsStream(String rawPath) {
+    /**
+     * @param contentKey {@link ResourceInfoResponseDto#getContentKey()} of the file
+     */
+    public StreamingResponseBody downloadFileAsStream(String contentKey) {
+        return downloadFileRangeAsStream(contentKey, null, null);
+    }
+
+    /**
+     * Streams {@code length} bytes of the object starting at {@code offset}.
+     * Only the requested slice is fetched from MinIO; {@code null} offset/length mean the whole object.
+     *
+     * @param contentKey {@link ResourceInfoResponseDto#getContentKey()} of the file
+     */
+    public StreamingResponseBody downloadFileRangeAsStream(String contentKey, Long offset, Long length) {
         return outputStream -> {
-            try (InputStream fileStream = getObject(rawPath)) {
+            try (TransferMetrics.Transfer transfer = transferMetrics.start(TransferMetrics.DOWNLOAD);
+                 InputStream fileStream = getStoredObject(contentKey, offset, length)) {
+                copyStream(fileStream, transfer.count(outputStream));
+                transfer.complete();
 
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = fileStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
+            } catch (Exception e) {
+                log.error("Error downloading file: {}", e.getMessage());
+                throw new RuntimeException("Could not download file", e);
+            }
+        };
+    }
+
+    /**
+     * Streams several ranges of the object as a {@code multipart/byteranges} body (RFC 9110, section 14.6).
+     * Each part is fetched with its own ranged request, so the object is never read in full.
+     *
+     * @param contentKey {@link ResourceInfoResponseDto#getContentKey()} of the file
+     */
+    public StreamingResponseBody downloadFileRangesAsStream(String contentKey, List<HttpRange> ranges,
+                                                            long fileSize, String boundary) {
+        return outputStream -> {
+            try (TransferMetrics.Transfer transfer = transferMetrics.start(TransferMetrics.DOWNLOAD)) {
+                OutputStream clientStream = transfer.count(outputStream);
+                for (HttpRange range : ranges) {
+                    long start = range.getRangeStart(fileSize);
+                    long end = range.getRangeEnd(fileSize);
+
+                    writeAscii(clientStream, "\r\n--" + boundary + "\r\n");
+                    writeAscii(clientStream, HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + "\r\n");
+                    writeAscii(clientStream, HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + fileSize + "\r\n\r\n");
+
+                    try (InputStream partStream = getStoredObject(contentKey, start, end - start + 1)) {
+                        copyStream(partStream, clientStream);
+                    }
                 }
+                writeAscii(clientStream, "\r\n--" + boundary + "--\r\n");
+                transfer.complete();
 
             } catch (Exception e) {
-                log.error("Error downloading file: {}", e.getMessage());
-                throw new RuntimeException("Could not download file");
+                log.error("Error downloading ranges of file {}: {}", contentKey, e.getMessage());
+                throw new RuntimeException("Could not download file", e);
             }
         };
     }
 
-    public ResourceInfoResponseDto uploadFile(MultipartFile file, String path, String fileName) {
-        try {
-            putObject(path + fileName, file.getInputStream(), file.getSize(), file.getContentType());
+    /**
+     * Streams the content straight into MinIO. When the size is unknown ({@code -1}) the object is sent as a
+     * multipart upload with parts of {@code minio.upload.part-size}, so only one part is held in memory.
+     * With {@code minio.dedup.enabled} the content is stored as a shared blob and the path gets a pointer to it.
+     */
+    public ResourceInfoResponseDto uploadFile(InputStream inputStream, long size, String contentType,
+                                              String path, String fileName) {
+        try (TransferMetrics.Transfer transfer = transferMetrics.start(TransferMetrics.UPLOAD)) {
+            InputStream clientStream = transfer.count(inputStream);
+            String objectPath = path + fileName;
+            String objectContentType = contentType == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE : contentType;
+
+            long uploadedSize;
+            String etag;
+            if (dedupEnabled) {
+                StoredBlob blob = storeBlob(objectPath, clientStream, size, objectContentType);
+                writeBlobPointer(objectPath, blob, objectContentType);
+                uploadedSize = blob.size();
+                etag = blob.hash();
+            } else {
+                BoundedInputStream countingStream = BoundedInputStream.builder()
+                        .setInputStream(clientStream)
+                        .get();
+                ObjectWriteResponse response = putObject(objectPath, countingStream, size, objectContentType);
+                uploadedSize = countingStream.getCount();
+                etag = response.etag();
+            }
+
+            transfer.complete();
+
+            folderExistenceCache.addParentFolders(objectPath);
+            resourceIndexService.fileWritten(objectPath, uploadedSize, etag);
 
             log.info("File '{}' uploaded to: {}", fileName, path);
             return ResourceInfoResponseDto.builder()
                     .path(path)
                     .name(fileName)
-                    .size(file.getSize())
+                    .size(uploadedSize)
                     .type(ResourceType.FILE)
+                    .etag(etag)
                     .build();
         } catch (Exception e) {
             log.error("Error uploading file: {}", e.getMessage());
-            throw new RuntimeException("Unexpected error. Could not upload file: " + path + fileName);
+            throw new RuntimeException("Unexpected error. Could not upload file: " + path + fileName, e);
+        }
+    }
+
+    /**
+     * Moves a file with a server-side copy, the content doesn't pass through the application.
+     * The copy of a blob pointer is a pointer too and gets its own reference before it is written;
+     * the reference of the source is released once the source is removed.
+     */
+    public ResourceInfoResponseDto moveFile(ResourceInfoResponseDto source, String targetPath) {
+        String sourcePath = source.getPath() + source.getName();
+        try {
+            StoredBlob blob = findBlob(sourcePath);
+            if (blob != null) {
+                blobReferenceService.addReference(targetPath, blob.hash(), blob.size());
+            }
+
+            ObjectWriteResponse response;
+            try {
+                response = minioClient.copyObject(
+                        CopyObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(targetPath)
+                                .source(CopySource.builder()
+                                        .bucket(bucketName)
+                                        .object(sourcePath)
+                                        .build())
+                                .build());
+            } catch (Exception e) {
+                if (blob != null) {
+                    blobReferenceService.revertReference(targetPath, blob.hash(), this::removeBlob);
+                }
+                throw e;
+            }
+            if (blob != null) {
+                blobReferenceService.confirmReference(targetPath, blob.hash(), this::removeBlob);
+            }
+            removeObject(sourcePath);
+            if (blob != null) {
+                removeBlobReference(sourcePath);
+            }
+            folderExistenceCache.addParentFolders(targetPath);
+            folderExistenceCache.removeObject(sourcePath);
+            resourceIndexService.fileRemoved(sourcePath);
+            resourceIndexService.fileWritten(targetPath, source.getSize(),
+                    blob != null ? blob.hash() : response.etag());
+
+            log.info("Object '{}' moved to: {}", sourcePath, targetPath);
+            return ResourceInfoResponseDto.builder()
+                    .path(PathUtils.getParentDirectoryPath(targetPath))
+                    .name(PathUtils.extractFilenameFromPath(targetPath))
+                    .size(source.getSize())
+                    .type(ResourceType.FILE)
+                    .etag(source.getEtag())
+                    .build();
+        } catch (Exception e) {
+            log.error("Error moving object '{}' to '{}': {}", sourcePath, targetPath, e.getMessage(), e);
+            throw new RuntimeException("Unexpected error. Could not move object to: " + targetPath, e);
         }
     }
 
     public void deleteFile(String path) {
         try {
             removeObject(path);
+            folderExistenceCache.removeObject(path);
+            resourceIndexService.fileRemoved(path);
+            removeBlobReference(path);
             log.info("File '{}' deleted successfully", path);
 
         } catch (Exception e) {
@@ -167,81 +464,235 @@ public class MinioService {
         }
     }
 
+    /**
+     * Deletes every object under the folder with multi-object delete requests of up to
+     * {@code minio.delete.batch-size} keys. While the listing goes on, up to {@code minio.delete.parallel-batches}
+     * batches of this folder are deleted at the same time on {@code deleteExecutor}.
+     * Objects that couldn't be deleted are reported with {@link PartialDeleteException}.
+     */
     public void deleteFolder(String folderPath) {
         String normalizedPath = PathUtils.addSlashToTheEnd(folderPath);
+        Timer.Sample timerSample = Timer.start(meterRegistry);
+
+        Semaphore batchSlots = new Semaphore(deleteParallelBatches);
+        List<CompletableFuture<List<ResourceDeleteErrorDto>>> batches = new ArrayList<>();
+        Queue<String> deletedNames = new ConcurrentLinkedQueue<>();
+        long objectCount = 0;
+        String outcome = "error";
 
         try {
-            Iterable<Result<Item>> objects = listAllObjectsInDir(normalizedPath, true);
-            for (Result<Item> result : objects) {
-                removeObject(result.get().objectName());
+            try {
+                List<Item> batch = new ArrayList<>(deleteBatchSize);
+                for (Result<Item> result : listAllObjectsInDir(normalizedPath, true)) {
+                    batch.add(result.get());
+                    objectCount++;
+
+                    if (batch.size() == deleteBatchSize) {
+                        batches.add(submitDeleteBatch(batch, batchSlots, deletedNames));
+                        batch = new ArrayList<>(deleteBatchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    batches.add(submitDeleteBatch(batch, batchSlots, deletedNames));
+                }
+
+            } catch (Exception e) {
+                awaitDeleteBatches(batches, e);
+                log.error("Error deleting folder '{}': {}", folderPath, e.getMessage(), e);
+                throw new RuntimeException("Unexpected error. Could not delete folder: " + folderPath, e);
             }
-            log.info("Folder '{}' deleted successfully", folderPath);
 
-        } catch (Exception e) {
-            log.error("Error deleting folder '{}': {}", folderPath, e.getMessage(), e);
-            throw new RuntimeException("Unexpected error. Could not delete folder: " + folderPath, e);
+            List<ResourceDeleteErrorDto> errors = awaitDeleteBatches(batches, null);
+            if (!errors.isEmpty()) {
+                log.error("Folder '{}' deleted partially, {} of {} objects could not be deleted",
+                        folderPath, errors.size(), objectCount);
+                throw new PartialDeleteException(
+                        "Could not delete " + errors.size() + " objects of folder: " + folderPath, errors);
+            }
+            outcome = "success";
+
+        } finally {
+            if (outcome.equals("success")) {
+                folderExistenceCache.removeFolder(normalizedPath);
+                resourceIndexService.folderRemoved(normalizedPath);
+            } else {
+                forgetDeletedObjects(deletedNames);
+            }
+
+            long deletedCount = deletedNames.size();
+            timerSample.stop(meterRegistry.timer("minio.delete.folder", "outcome", outcome));
+            meterRegistry.counter("minio.delete.objects", "outcome", "deleted").increment(deletedCount);
+            meterRegistry.counter("minio.delete.objects", "outcome", "failed").increment(objectCount - deletedCount);
         }
+
+        log.info("Folder '{}' deleted successfully ({} objects in {} batches)", folderPath, objectCount, batches.size());
     }
 
-    public long getFileSize(String path) {
+    /**
+     * Size, ETag, modification time and key of the file content, following a blob pointer to the blob.
+     */
+    public ResourceInfoResponseDto getFileInfo(String path) {
         try {
             StatObjectResponse fileInfo = statObject(path);
+            String blobSize = findUserMetadata(fileInfo.userMetadata(), BLOB_SIZE_METADATA);
+            String blobHash = findUserMetadata(fileInfo.userMetadata(), BLOB_HASH_METADATA);
 
-            return fileInfo.size();
+            return ResourceInfoResponseDto.builder()
+                    .path(PathUtils.getParentDirectoryPath(path))
+                    .name(PathUtils.getObjectName(path, false))
+                    .size(blobSize == null ? fileInfo.size() : Long.parseLong(blobSize))
+                    .type(ResourceType.FILE)
+                    .etag(blobHash == null ? fileInfo.etag() : blobHash)
+                    .lastModified(fileInfo.lastModified() == null ? null : fileInfo.lastModified().toInstant())
+                    .contentKey(blobHash == null ? path : blobPrefix + blobHash)
+                    .build();
 
         } catch (Exception e) {
             log.error("Error getting file info: {}", e.getMessage());
-            throw new RuntimeException("Unexpected error. Could not get file info: " + path);
+            throw new RuntimeException("Unexpected error. Could not get file info: " + path, e);
+        }
+    }
+
+    /**
+     * Opens the whole content of a file, following a blob pointer to the blob. The caller closes the stream.
+     */
+    public InputStream openFile(String path) {
+        try {
+            return getObject(path, null, null);
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error. Could not read file: " + path, e);
+        }
+    }
+
+    /**
+     * Checks an object by its exact key, e.g. a derived object outside the user folders. Blob pointers are not followed.
+     */
+    public boolean isStoredObjectExist(String key) {
+        try {
+            return isObjectExist(key);
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error. Could not check object: " + key, e);
         }
     }
 
+    public void putStoredObject(String key, byte[] content, String contentType) {
+        try {
+            putObject(key, new ByteArrayInputStream(content), content.length, contentType);
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error. Could not store object: " + key, e);
+        }
+    }
+
+    public void removeStoredObject(String key) {
+        try {
+            removeObject(key);
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error. Could not remove object: " + key, e);
+        }
+    }
+
+    public StreamingResponseBody downloadStoredObjectAsStream(String key) {
+        return outputStream -> {
+            try (TransferMetrics.Transfer transfer = transferMetrics.start(TransferMetrics.DOWNLOAD);
+                 InputStream objectStream = getStoredObject(key, null, null)) {
+                copyStream(objectStream, transfer.count(outputStream));
+                transfer.complete();
+
+            } catch (Exception e) {
+                log.error("Error downloading object '{}': {}", key, e.getMessage());
+                throw new RuntimeException("Could not download object", e);
+            }
+        };
+    }
+
     public List<ResourceInfoResponseDto> searchByName(String searchWord, String userFolder) {
         List<ResourceInfoResponseDto> matchingItems = new ArrayList<>();
+        searchByName(searchWord, userFolder, null, matchingItems::add);
+
+        return matchingItems;
+    }
+
+    /**
+     * Lists the folder recursively and hands every object whose name contains the search word to {@code onMatch}
+     * as soon as it is found. Stops when {@code onMatch} returns {@code false} or when the {@code deadline}
+     * ({@code null} for none) has passed.
+     * Returns {@code true} if the whole folder was searched.
+     */
+    public boolean searchByName(String searchWord, String userFolder, Instant deadline,
+                                Predicate<ResourceInfoResponseDto> onMatch) {
         log.info("Searching for '{}' in folder: {}", searchWord, userFolder);
 
+        int processedItems = 0;
+        int matchCount = 0;
         try {
             Iterable<Result<Item>> results = listAllObjectsInDir(userFolder, true);
-            int processedItems = 0;
             String lowerCaseSearchWord = searchWord.toLowerCase();
 
             for (Result<Item> result : results) {
+                if (deadline != null && Instant.now().isAfter(deadline)) {
+                    log.info("Search for '{}' in folder {} stopped by the deadline after {} items",
+                            searchWord, userFolder, processedItems);
+                    return false;
+                }
+
+                Item item;
                 try {
-                    Item item = result.get();
+                    item = result.get();
                     processedItems++;
+                } catch (Exception e) {
+                    log.warn("Skipping unreadable item during search in {}: {}", userFolder, e.getMessage());
+                    continue;
+                }
 
-                    String objectName = PathUtils.getObjectName(
-                            item.objectName(),
-                            PathUtils.hasSlashInTheEnd(item.objectName())
-                    );
+                String objectName = PathUtils.getObjectName(
+                        item.objectName(),
+                        PathUtils.hasSlashInTheEnd(item.objectName())
+                );
 
-                    if (objectName.toLowerCase().contains(lowerCaseSearchWord)) {
-                        ResourceInfoResponseDto itemInfo = createResourceInfoDto(item);
-                        matchingItems.add(itemInfo);
+                if (objectName.toLowerCase().contains(lowerCaseSearchWord)) {
+                    matchCount++;
+                    if (!onMatch.test(createResourceInfoDto(item))) {
+                        return false;
                     }
-
-                } catch (Exception e) {
-                    log.warn("Skipping unreadable item during search in {}: {}", userFolder, e.getMessage());
                 }
             }
 
             log.info("Found {} matches for '{}' in folder {} (searched through {} items)",
-                    matchingItems.size(), searchWord, userFolder, processedItems);
+                    matchCount, searchWord, userFolder, processedItems);
+        } catch (UncheckedIOException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error searching for '{}' in folder {}: {}", searchWord, userFolder, e.getMessage(), e);
-            throw new RuntimeException("Error searching for items in MinIO");
+            throw new RuntimeException("Error searching for items in MinIO", e);
+        } finally {
+            searchScanSize.record(processedItems);
         }
 
-        return matchingItems;
+        return true;
     }
 
-    public List<ResourceInfoResponseDto> getInfoList(String fullPath) {
+    /**
+     * Returns up to {@code limit} entries of the folder that come after the entry named {@code startAfter}
+     * (an empty string starts from the beginning). Listing stops as soon as the page is full.
+     */
+    public List<ResourceInfoResponseDto> getInfoList(String fullPath, String startAfter, int limit) {
         List<ResourceInfoResponseDto> infoList = new ArrayList<>();
 
         try {
-            Iterable<Result<Item>> results = listAllObjectsInDir(fullPath, false);
+            Iterable<Result<Item>> results = minioClient.listObjects(
+                    ListObjectsArgs.builder()
+                            .bucket(bucketName)
+                            .prefix(fullPath)
+                            .startAfter(startAfter.isEmpty() ? null : listingStartAfter(fullPath + startAfter))
+                            .maxKeys(Math.min(limit, MAX_KEYS_PER_LISTING))
+                            .includeUserMetadata(true)
+                            .build());
             int itemCount = 0;
 
             for (Result<Item> result : results) {
+                if (itemCount == limit) {
+                    break;
+                }
                 try {
                     Item item = result.get();
                     ResourceInfoResponseDto itemInfo = createResourceInfoDto(item);
@@ -253,10 +704,11 @@ public class MinioService {
                 }
             }
 
+            listingSize.record(itemCount);
             log.info("Retrieved {} items from path {}", itemCount, fullPath);
         } catch (Exception e) {
             log.error("Error getting info for items in path {}: {}", fullPath, e.getMessage(), e);
-            throw new RuntimeException("Error getting info for items in MinIO");
+            throw new RuntimeException("Error getting info for items in MinIO", e);
         }
 
         return infoList;
@@ -266,70 +718,506 @@ public class MinioService {
         try {
             putObject(folderPath, new ByteArrayInputStream(new byte[0]), 0, "application/x-directory");
 
+            folderExistenceCache.addFolder(folderPath);
+            resourceIndexService.folderCreated(folderPath);
+
             log.info("Folder '{}' created", folderPath);
         } catch (Exception e) {
             log.error("Error creating folder: {}", e.getMessage());
-            throw new RuntimeException("Could not create folder");
+            throw new RuntimeException("Could not create folder", e);
         }
     }
 
-    private ResourceInfoResponseDto createResourceInfoDto(Item item) {
-        String objectFullName = item.objectName();
-        boolean isFolder = PathUtils.hasSlashInTheEnd(objectFullName);
-
-        String path = PathUtils.getParentDirectoryPath(objectFullName);
-        String objectName = PathUtils.getObjectName(objectFullName, isFolder);
+    /**
+     * Package-private for the listing benchmarks in {@code src/jmh}.
+     */
+    ResourceInfoResponseDto createResourceInfoDto(Item item) {
+        ResourcePath objectPath = ResourcePath.of(item.objectName());
+        boolean isFolder = objectPath.isFolder();
 
         return ResourceInfoResponseDto.builder()
-                .path(path)
-                .name(objectName)
-                .size(isFolder ? 0 : item.size())
+                .path(objectPath.parentPath())
+                .name(objectPath.displayName())
+                .size(isFolder ? 0 : getContentSize(item))
                 .type(isFolder ? ResourceType.DIRECTORY : ResourceType.FILE)
+                .etag(isFolder ? null : getContentEtag(item))
+                .lastModified(item.lastModified() == null ? null : item.lastModified().toInstant())
                 .build();
     }
 
-    private void addFolderContentsToZip(String folderPath, ZipOutputStream zipOut) throws Exception {
-        Iterable<Result<Item>> results = listAllObjectsInDir(folderPath, true);
+    /**
+     * Writes every file under {@code folderPath} into the archive in listing order.
+     * Up to {@code zipPrefetchDepth} following objects are downloaded into memory in parallel while the current
+     * entry is being written, so small files don't pay a MinIO round trip each. Buffered bytes are limited by a
+     * budget shared between all archives; objects that don't fit into it are streamed directly when their turn comes.
+     */
+    private void addFolderContentsToZip(String folderPath, ZipOutputStream zipOut,
+                                        ZipCompressionMode compressionMode) throws Exception {
+        Iterator<Result<Item>> results = listAllObjectsInDir(folderPath, true).iterator();
+        Deque<PrefetchedObject> window = new ArrayDeque<>();
+
+        try {
+            while (true) {
+                while (window.size() < zipPrefetchDepth) {
+                    Item item = nextFileItem(results, folderPath);
+                    if (item == null) {
+                        break;
+                    }
+                    window.add(prefetch(item));
+                }
+
+                PrefetchedObject current = window.poll();
+                if (current == null) {
+                    break;
+                }
 
-        for (Result<Item> result : results) {
+                String objectName = current.item.objectName();
+                String entryName = objectName.substring(folderPath.length());
+                try {
+                    writeZipEntry(zipOut, entryName, current, compressionMode);
+                } catch (IOException e) {
+                    // the client went away or the archive stream is broken, nothing else can be written
+                    throw e;
+                } catch (Exception e) {
+                    log.error("Error adding file {} to ZIP", objectName, e);
+                } finally {
+                    current.release();
+                }
+            }
+        } finally {
+            for (PrefetchedObject pending : window) {
+                pending.cancel();
+            }
+        }
+    }
+
+    private Item nextFileItem(Iterator<Result<Item>> results, String folderPath) {
+        while (results.hasNext()) {
             Item item;
             try {
-                item = result.get();
+                item = results.next().get();
             } catch (Exception e) {
                 log.warn("Skipping unreadable item in folder {}", folderPath, e);
                 continue;
             }
 
-            String objectName = item.objectName();
-            if (objectName.endsWith("/")) {
-                continue;
+            if (!item.objectName().endsWith("/")) {
+                return item;
+            }
+        }
+
+        return null;
+    }
+
+    private PrefetchedObject prefetch(Item item) {
+        long size = getContentSize(item);
+        if (size > Integer.MAX_VALUE || !zipBufferBudget.tryAcquire((int) size)) {
+            return new PrefetchedObject(item, 0, zipBufferBudget);
+        }
+
+        PrefetchedObject object = new PrefetchedObject(item, (int) size, zipBufferBudget);
+        try {
+            object.content = zipPrefetchExecutor.submit(() -> object.fetch(() -> {
+                try (InputStream objectStream = getStoredObject(getContentKey(item), null, null)) {
+                    return objectStream.readAllBytes();
+                }
+            }));
+            return object;
+        } catch (RejectedExecutionException e) {
+            zipBufferBudget.release((int) size);
+            return new PrefetchedObject(item, 0, zipBufferBudget);
+        }
+    }
+
+    /**
+     * Failures to fetch the object are reported as {@link IllegalStateException} so that the entry can be skipped,
+     * while an {@link IOException} means the archive itself can't be written any more.
+     * Buffered entries that don't compress are written as STORED. Streamed entries can't be STORED because their
+     * CRC isn't known upfront, so they are deflated without compression instead, which costs next to no CPU.
+     */
+    private void writeZipEntry(ZipOutputStream zipOut, String entryName, PrefetchedObject object,
+                               ZipCompressionMode compressionMode) throws Exception {
+        String objectName = object.item.objectName();
+        ZipEntry entry = new ZipEntry(entryName);
+
+        if (object.content == null) {
+            InputStream objectStream;
+            try {
+                objectStream = getStoredObject(getContentKey(object.item), null, null);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not fetch object " + objectName, e);
+            }
+
+            try (objectStream) {
+                byte[] sample = objectStream.readNBytes(zipCompressionPolicy.getSampleSize());
+                boolean store = zipCompressionPolicy.shouldStore(entryName, sample, sample.length, compressionMode);
+
+                zipOut.setLevel(store ? Deflater.NO_COMPRESSION : zipCompressionPolicy.getDeflateLevel(compressionMode));
+                zipOut.putNextEntry(entry);
+                zipOut.write(sample);
+                copyStream(objectStream, zipOut);
+            }
+        } else {
+            byte[] content;
+            try {
+                content = object.content.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Could not fetch object " + objectName, e.getCause());
             }
 
-            String entryName = objectName.substring(folderPath.length());
+            if (zipCompressionPolicy.shouldStore(entryName, content, content.length, compressionMode)) {
+                CRC32 crc = new CRC32();
+                crc.update(content);
+
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(content.length);
+                entry.setCompressedSize(content.length);
+                entry.setCrc(crc.getValue());
+            } else {
+                zipOut.setLevel(zipCompressionPolicy.getDeflateLevel(compressionMode));
+            }
+
+            zipOut.putNextEntry(entry);
+            zipOut.write(content);
+        }
+
+        zipOut.closeEntry();
+    }
+
+    /**
+     * Waits for every submitted batch, also after one of them failed, and returns the objects they couldn't delete.
+     * A failed batch is added to {@code cause} as suppressed when there is one, otherwise the first failure is thrown
+     * once all batches are done.
+     */
+    private List<ResourceDeleteErrorDto> awaitDeleteBatches(
+            List<CompletableFuture<List<ResourceDeleteErrorDto>>> batches, Exception cause) {
+        List<ResourceDeleteErrorDto> errors = new ArrayList<>();
+        RuntimeException failure = null;
+
+        for (CompletableFuture<List<ResourceDeleteErrorDto>> batch : batches) {
             try {
-                zipOut.putNextEntry(new ZipEntry(entryName));
+                errors.addAll(batch.join());
+            } catch (CompletionException | CancellationException e) {
+                if (cause != null) {
+                    cause.addSuppressed(e);
+                } else if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return errors;
+    }
+
+    /**
+     * Forgets the objects a failed folder delete did remove. Their folders keep their rows and cache entries,
+     * since a folder still exists while any object below it survived.
+     */
+    private void forgetDeletedObjects(Collection<String> deletedNames) {
+        for (String objectName : deletedNames) {
+            folderExistenceCache.removeObject(objectName);
+            if (!objectName.endsWith("/")) {
+                resourceIndexService.fileRemoved(objectName);
+            }
+        }
+    }
+
+    private CompletableFuture<List<ResourceDeleteErrorDto>> submitDeleteBatch(List<Item> batch, Semaphore batchSlots,
+                                                                              Queue<String> deletedNames) {
+        try {
+            batchSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Folder deletion was interrupted", e);
+        }
 
-                try (InputStream objectStream = getObject(objectName)) {
-                    byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-                    int bytesRead;
-                    while ((bytesRead = objectStream.read(buffer)) != -1) {
-                        zipOut.write(buffer, 0, bytesRead);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    List<ResourceDeleteErrorDto> errors = removeObjects(batch.stream().map(Item::objectName).toList());
+                    Set<String> failedNames = new HashSet<>();
+                    errors.forEach(error -> failedNames.add(error.getName()));
+                    for (Item item : batch) {
+                        if (!failedNames.contains(item.objectName())) {
+                            deletedNames.add(item.objectName());
+                        }
                     }
+                    removeBlobReferences(batch, failedNames);
+
+                    return errors;
+                } finally {
+                    batchSlots.release();
                 }
+            }, deleteExecutor);
+        } catch (RejectedExecutionException e) {
+            batchSlots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Never throws, a failed request is reported as an error for every key of the batch.
+     */
+    private List<ResourceDeleteErrorDto> removeObjects(List<String> objectNames) {
+        List<ResourceDeleteErrorDto> errors = new ArrayList<>();
 
-                zipOut.closeEntry();
+        try {
+            Iterable<Result<DeleteError>> results = minioClient.removeObjects(
+                    RemoveObjectsArgs.builder()
+                            .bucket(bucketName)
+                            .objects(objectNames.stream().map(DeleteObject::new).toList())
+                            .build());
+
+            // the request is sent lazily while the results are iterated
+            for (Result<DeleteError> result : results) {
+                DeleteError error = result.get();
+                log.warn("Could not delete object '{}': {}", error.objectName(), error.message());
+                errors.add(new ResourceDeleteErrorDto(error.objectName(), error.message()));
+            }
+        } catch (Exception e) {
+            log.error("Error deleting batch of {} objects: {}", objectNames.size(), e.getMessage(), e);
+            errors.clear();
+            for (String objectName : objectNames) {
+                errors.add(new ResourceDeleteErrorDto(objectName, e.getMessage()));
+            }
+        }
+        meterRegistry.counter("minio.delete.batches").increment();
+
+        return errors;
+    }
+
+    public Iterable<Result<Item>> listAllObjects(String prefix) {
+        return listAllObjectsInDir(prefix, true);
+    }
+
+    /**
+     * Size of the file content, which for a blob pointer is the size of the blob.
+     * The item must come from a listing of this service.
+     */
+    public long getContentSize(Item item) {
+        String blobSize = findUserMetadata(item.userMetadata(), BLOB_SIZE_METADATA);
+
+        return blobSize == null ? item.size() : Long.parseLong(blobSize);
+    }
+
+    /**
+     * Hash of the blob the item points to, {@code null} for a plain object.
+     * The item must come from a listing of this service.
+     */
+    public String getBlobHash(Item item) {
+        return findUserMetadata(item.userMetadata(), BLOB_HASH_METADATA);
+    }
+
+    /**
+     * ETag of the file content without quotes, which for a blob pointer is the SHA-256 of the blob.
+     */
+    public String getContentEtag(Item item) {
+        String blobHash = findUserMetadata(item.userMetadata(), BLOB_HASH_METADATA);
+        if (blobHash != null) {
+            return blobHash;
+        }
+
+        return item.etag() == null ? null : item.etag().replace("\"", "");
+    }
+
+    /**
+     * Hashes the content while it is read and stores it under {@code minio.dedup.blob-prefix} + SHA-256 unless
+     * that blob already exists. Content of known size up to a part size is hashed in memory first, so a duplicate
+     * is never sent to MinIO; larger content is streamed to a temporary object that is copied into place on the
+     * server only if the blob is new. The returned blob already holds a reference for the new file.
+     */
+    private StoredBlob storeBlob(String objectPath, InputStream inputStream, long size, String contentType)
+            throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        if (size >= 0 && size <= uploadPartSize.toBytes()) {
+            byte[] content = inputStream.readAllBytes();
+            StoredBlob blob = new StoredBlob(HexFormat.of().formatHex(digest.digest(content)), content.length);
+
+            addBlobReference(objectPath, blob, () -> putObject(blobPrefix + blob.hash(), new ByteArrayInputStream(content),
+                    content.length, contentType));
+            return blob;
+        }
+
+        String temporaryKey = stagingPrefix + UUID.randomUUID();
+        try {
+            BoundedInputStream countingStream = BoundedInputStream.builder()
+                    .setInputStream(new DigestInputStream(inputStream, digest))
+                    .get();
+            putObject(temporaryKey, countingStream, -1, contentType);
+            StoredBlob blob = new StoredBlob(HexFormat.of().formatHex(digest.digest()), countingStream.getCount());
+
+            addBlobReference(objectPath, blob, () -> minioClient.composeObject(
+                    ComposeObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(blobPrefix + blob.hash())
+                            .sources(List.of(ComposeSource.builder()
+                                    .bucket(bucketName)
+                                    .object(temporaryKey)
+                                    .build()))
+                            .build()));
+            return blob;
+        } finally {
+            try {
+                removeObject(temporaryKey);
             } catch (Exception e) {
-                log.error("Error adding file {} to ZIP", objectName, e);
+                log.warn("Could not remove temporary upload '{}': {}", temporaryKey, e.getMessage());
             }
         }
     }
 
+    /**
+     * The reference is added before the blob is looked up, see {@link BlobReferenceService}.
+     */
+    private void addBlobReference(String objectPath, StoredBlob blob, BlobWriter writeBlob) throws Exception {
+        blobReferenceService.addReference(objectPath, blob.hash(), blob.size());
+        try {
+            if (!isObjectExist(blobPrefix + blob.hash())) {
+                writeBlob.write();
+            }
+        } catch (Exception e) {
+            blobReferenceService.revertReference(objectPath, blob.hash(), this::removeBlob);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the pointer and releases the blob it referred to before, see {@link BlobReferenceService}.
+     */
+    private void writeBlobPointer(String objectPath, StoredBlob blob, String contentType) throws Exception {
+        try {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectPath)
+                            .stream(new ByteArrayInputStream(new byte[0]), 0, -1)
+                            .contentType(contentType)
+                            .userMetadata(Map.of(
+                                    BLOB_HASH_METADATA, blob.hash(),
+                                    BLOB_SIZE_METADATA, String.valueOf(blob.size())))
+                            .build());
+        } catch (Exception e) {
+            blobReferenceService.revertReference(objectPath, blob.hash(), this::removeBlob);
+            throw e;
+        }
+        blobReferenceService.confirmReference(objectPath, blob.hash(), this::removeBlob);
+    }
+
+    private void removeBlobReference(String objectPath) {
+        blobReferenceService.removeReference(objectPath, this::removeBlob);
+    }
+
+    /**
+     * Removes the blob object, to be called by {@link BlobReferenceService} while the blob row is locked.
+     */
+    public void removeBlob(String blobHash) {
+        try {
+            removeObject(blobPrefix + blobHash);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not remove blob " + blobHash, e);
+        }
+    }
+
+    private void removeBlobReferences(List<Item> deletedItems, Set<String> failedNames) {
+        for (Item item : deletedItems) {
+            String blobHash = findUserMetadata(item.userMetadata(), BLOB_HASH_METADATA);
+            if (blobHash != null && !failedNames.contains(item.objectName())) {
+                removeBlobReference(item.objectName());
+            }
+        }
+    }
+
+    /**
+     * Returns the blob the file points to, {@code null} for a plain object or a missing one.
+     */
+    private StoredBlob findBlob(String path) throws Exception {
+        try {
+            Map<String, String> metadata = statObject(path).userMetadata();
+            String blobHash = findUserMetadata(metadata, BLOB_HASH_METADATA);
+            String blobSize = findUserMetadata(metadata, BLOB_SIZE_METADATA);
+
+            return blobHash == null || blobSize == null ? null : new StoredBlob(blobHash, Long.parseLong(blobSize));
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse().code().equals("NoSuchKey")) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the hash of the blob the file points to, {@code null} for a plain object or a missing one.
+     */
+    private String findBlobHash(String path) throws Exception {
+        try {
+            return findUserMetadata(statObject(path).userMetadata(), BLOB_HASH_METADATA);
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse().code().equals("NoSuchKey")) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private String getContentKey(Item item) {
+        String blobHash = findUserMetadata(item.userMetadata(), BLOB_HASH_METADATA);
+
+        return blobHash == null ? item.objectName() : blobPrefix + blobHash;
+    }
+
+    private boolean isObjectExist(String objectName) throws Exception {
+        try {
+            statObject(objectName);
+            return true;
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse().code().equals("NoSuchKey")) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stat responses give user metadata without the {@code x-amz-meta-} prefix, listings with it.
+     */
+    private static String findUserMetadata(Map<String, String> metadata, String key) {
+        if (metadata == null) {
+            return null;
+        }
+
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            String name = entry.getKey().toLowerCase(Locale.ROOT);
+            if (name.startsWith(USER_METADATA_PREFIX)) {
+                name = name.substring(USER_METADATA_PREFIX.length());
+            }
+            if (name.equals(key)) {
+                return entry.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * With a delimiter every key under a folder sorts after the folder itself and would bring its prefix back,
+     * so a folder cursor starts after the greatest possible key in it.
+     */
+    private String listingStartAfter(String key) {
+        return PathUtils.hasSlashInTheEnd(key) ? key + LAST_CODE_POINT : key;
+    }
+
     private Iterable<Result<Item>> listAllObjectsInDir(String folderPath, boolean isRecursive) {
         return minioClient.listObjects(
                 ListObjectsArgs.builder()
                         .bucket(bucketName)
                         .prefix(folderPath)
                         .recursive(isRecursive)
+                        .includeUserMetadata(true)
                         .build());
     }
 
@@ -342,20 +1230,65 @@ public class MinioService {
                         .build());
     }
 
-    private InputStream getObject(String path) throws Exception {
+    /**
+     * Reads a file by its path, following a blob pointer to the blob. Pointers are followed even with
+     * {@code minio.dedup.enabled} off, they stay in the bucket after the mode is switched off.
+     */
+    private InputStream getObject(String path, Long offset, Long length) throws Exception {
+        String blobHash = findBlobHash(path);
+
+        return getStoredObject(blobHash == null ? path : blobPrefix + blobHash, offset, length);
+    }
+
+    /**
+     * Starts fetching {@code length} bytes of the object from {@code offset} on {@link MinioAsyncClient}, the caller
+     * doesn't wait for MinIO.
+     *
+     * @param contentKey {@link ResourceInfoResponseDto#getContentKey()} of the file
+     */
+    public CompletableFuture<GetObjectResponse> getObjectAsync(String contentKey, Long offset, Long length) {
+        try {
+            return minioAsyncClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(contentKey)
+                            .offset(offset)
+                            .length(length)
+                            .build());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private InputStream getStoredObject(String path, Long offset, Long length) throws Exception {
         return minioClient.getObject(
                 GetObjectArgs.builder()
                         .bucket(bucketName)
                         .object(path)
+                        .offset(offset)
+                        .length(length)
                         .build());
     }
 
-    private void putObject(String fullPath, InputStream inputStream, long objectSize, String contentType) throws Exception {
-        minioClient.putObject(
+    private void copyStream(InputStream inputStream, OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, bytesRead);
+        }
+    }
+
+    private void writeAscii(OutputStream outputStream, String value) throws IOException {
+        outputStream.write(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private ObjectWriteResponse putObject(String fullPath, InputStream inputStream, long objectSize,
+                                          String contentType) throws Exception {
+        return minioClient.putObject(
                 PutObjectArgs.builder()
                         .bucket(bucketName)
                         .object(fullPath)
-                        .stream(inputStream, objectSize, -1)
+                        .stream(inputStream, objectSize, objectSize < 0 ? uploadPartSize.toBytes() : -1)
                         .contentType(contentType)
                         .build());
     }
@@ -376,4 +1309,75 @@ public class MinioService {
                         .build()
         );
     }
+
+    private record StoredBlob(String hash, long size) {
+    }
+
+    @FunctionalInterface
+    private interface BlobWriter {
+
+        void write() throws Exception;
+    }
+
+    /**
+     * The reserved bytes are held by the fetch task and by the archive writer, and go back to the budget once both
+     * are done with them. A cancelled task may still be filling its array, so the writer can't return them alone.
+     */
+    private static class PrefetchedObject {
+
+        private final Item item;
+        private final int reservedBytes;
+        private final Semaphore budget;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final AtomicInteger holders = new AtomicInteger(2);
+        private Future<byte[]> content;
+        private boolean released;
+
+        private PrefetchedObject(Item item, int reservedBytes, Semaphore budget) {
+            this.item = item;
+            this.reservedBytes = reservedBytes;
+            this.budget = budget;
+        }
+
+        /**
+         * Runs on the prefetch pool. Does nothing when the writer gave up on the object before the task started.
+         */
+        private byte[] fetch(Callable<byte[]> reader) throws Exception {
+            if (!started.compareAndSet(false, true)) {
+                return null;
+            }
+
+            try {
+                return reader.call();
+            } finally {
+                drop();
+            }
+        }
+
+        private void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+
+            if (content != null && started.compareAndSet(false, true)) {
+                // the task will never run, so it won't drop its hold
+                drop();
+            }
+            drop();
+        }
+
+        private void cancel() {
+            if (content != null) {
+                content.cancel(true);
+            }
+            release();
+        }
+
+        private void drop() {
+            if (holders.decrementAndGet() == 0 && reservedBytes > 0) {
+                budget.release(reservedBytes);
+            }
+        }
+    }
 }
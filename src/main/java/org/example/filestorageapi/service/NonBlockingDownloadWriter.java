@@ -0,0 +1,292 @@
+package org.example.filestorageapi.service;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Writes downloads with servlet non-blocking I/O. Chunks are read from MinIO on {@code downloadReadExecutor},
+ * at most {@value #READ_AHEAD_CHUNKS} ahead of the client, and written once the client socket can take them.
+ * Container threads never wait for MinIO, and a slow client holds no thread at all while its chunks wait.
+ */
+@Log4j2
+@Component
+public class NonBlockingDownloadWriter {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int READ_AHEAD_CHUNKS = 4;
+
+    private final Duration timeout;
+    private final TransferMetrics transferMetrics;
+    private final Executor readExecutor;
+
+    public NonBlockingDownloadWriter(@Value("${minio.download.non-blocking.timeout}") Duration timeout,
+                                     TransferMetrics transferMetrics,
+                                     @Qualifier("downloadReadExecutor") Executor readExecutor) {
+        this.timeout = timeout;
+        this.transferMetrics = transferMetrics;
+        this.readExecutor = readExecutor;
+    }
+
+    /**
+     * Puts the request in async mode and writes {@code content} once it is available. Status and headers must
+     * already be set on the response, and the handler must return without writing to it.
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response,
+                      CompletableFuture<? extends InputStream> content) {
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(timeout.toMillis());
+
+        ChunkWriter writer = new ChunkWriter(asyncContext, response, transferMetrics.start(TransferMetrics.DOWNLOAD),
+                readExecutor);
+        asyncContext.addListener(writer);
+
+        content.whenComplete(writer::start);
+    }
+
+    /**
+     * The response is only touched while holding {@code lock} and before {@code finished} is set, which happens
+     * at the latest when the container reports a timeout, an error or the completion. So neither a MinIO client
+     * thread nor a reader thread writes to a response the container has already recycled.
+     */
+    private static final class ChunkWriter implements WriteListener, AsyncListener {
+
+        private final Object lock = new Object();
+        private final AsyncContext asyncContext;
+        private final HttpServletResponse response;
+        private final TransferMetrics.Transfer transfer;
+        private final Executor readExecutor;
+
+        private final Deque<Chunk> readChunks = new ArrayDeque<>();
+        private final Deque<byte[]> freeBuffers = new ArrayDeque<>();
+        private InputStream inputStream;
+        private ServletOutputStream outputStream;
+        private boolean reading;
+        private boolean endOfContent;
+        private boolean waitingForContent;
+        private boolean finished;
+
+        private ChunkWriter(AsyncContext asyncContext, HttpServletResponse response,
+                            TransferMetrics.Transfer transfer, Executor readExecutor) {
+            this.asyncContext = asyncContext;
+            this.response = response;
+            this.transfer = transfer;
+            this.readExecutor = readExecutor;
+        }
+
+        /**
+         * Called on a MinIO client thread when the object is opened; the container calls {@link #onWritePossible}
+         * on its own thread once the listener is set.
+         */
+        private void start(InputStream content, Throwable error) {
+            synchronized (lock) {
+                if (finished) {
+                    // the request timed out or the client left before the object was opened
+                    closeQuietly(content);
+                    return;
+                }
+                if (error != null) {
+                    fail(error);
+                    return;
+                }
+
+                inputStream = content;
+                try {
+                    outputStream = response.getOutputStream();
+                    outputStream.setWriteListener(this);
+                } catch (Exception e) {
+                    log.debug("Could not start writing download: {}", e.getMessage());
+                    finish();
+                    return;
+                }
+                scheduleRead();
+            }
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            synchronized (lock) {
+                if (!finished) {
+                    writeChunks();
+                }
+            }
+        }
+
+        /**
+         * Reads one chunk on a reader thread. Only the blocking read itself runs without the lock.
+         */
+        private void readChunk() {
+            byte[] buffer;
+            InputStream content;
+            synchronized (lock) {
+                if (finished) {
+                    reading = false;
+                    return;
+                }
+                buffer = freeBuffers.isEmpty() ? new byte[CHUNK_SIZE] : freeBuffers.pop();
+                content = inputStream;
+            }
+
+            int bytesRead;
+            try {
+                bytesRead = content.read(buffer);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    reading = false;
+                    if (!finished) {
+                        fail(e);
+                    }
+                }
+                return;
+            }
+
+            synchronized (lock) {
+                reading = false;
+                if (finished) {
+                    return;
+                }
+
+                if (bytesRead == -1) {
+                    endOfContent = true;
+                } else {
+                    readChunks.add(new Chunk(buffer, bytesRead));
+                }
+                if (waitingForContent) {
+                    try {
+                        writeChunks();
+                    } catch (IOException e) {
+                        log.debug("Download aborted: {}", e.getMessage());
+                        finish();
+                        return;
+                    }
+                }
+                scheduleRead();
+            }
+        }
+
+        /**
+         * Writes read chunks while the client can take them. When it can't, the container calls
+         * {@link #onWritePossible} later; when all read chunks are written, the next read writes on.
+         */
+        private void writeChunks() throws IOException {
+            waitingForContent = false;
+            while (outputStream.isReady()) {
+                Chunk chunk = readChunks.poll();
+                if (chunk == null) {
+                    if (endOfContent) {
+                        transfer.complete();
+                        finish();
+                    } else {
+                        waitingForContent = true;
+                    }
+                    return;
+                }
+
+                outputStream.write(chunk.buffer(), 0, chunk.length());
+                transfer.addBytes(chunk.length());
+                freeBuffers.push(chunk.buffer());
+                scheduleRead();
+            }
+        }
+
+        private void scheduleRead() {
+            if (reading || endOfContent || finished || readChunks.size() >= READ_AHEAD_CHUNKS) {
+                return;
+            }
+
+            reading = true;
+            try {
+                readExecutor.execute(this::readChunk);
+            } catch (RejectedExecutionException e) {
+                reading = false;
+                fail(e);
+            }
+        }
+
+        private void fail(Throwable error) {
+            log.error("Error downloading file: {}", error.getMessage());
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+            finish();
+        }
+
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            asyncContext.complete();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            synchronized (lock) {
+                log.debug("Download aborted: {}", t.getMessage());
+                finish();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            synchronized (lock) {
+                finished = true;
+                readChunks.clear();
+                freeBuffers.clear();
+                closeQuietly(inputStream);
+            }
+            transfer.close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            synchronized (lock) {
+                log.warn("Download timed out");
+                finish();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            synchronized (lock) {
+                finish();
+            }
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private static void closeQuietly(InputStream content) {
+            if (content == null) {
+                return;
+            }
+            try {
+                content.close();
+            } catch (IOException e) {
+                log.debug("Could not close object stream: {}", e.getMessage());
+            }
+        }
+    }
+
+    private record Chunk(byte[] buffer, int length) {
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.filestorageapi.service;
+
+import org.example.filestorageapi.utils.PathUtils;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers "does this file exist" for many files of one request with one listing per parent folder
+ * instead of one stat per file. Folders with more than {@code listingLimit} entries are not listed,
+ * files in them are checked one by one.
+ * The snapshot is taken when a folder is first asked about and is meant to live for a single request.
+ * Every path asked about is claimed, so a second file of the request with the same path is answered as existing.
+ */
+public class ObjectExistenceSnapshot {
+
+    private final MinioService minioService;
+    private final int listingLimit;
+    private final Map<String, CompletableFuture<Optional<Set<String>>>> folders = new ConcurrentHashMap<>();
+    private final Set<String> claimedPaths = ConcurrentHashMap.newKeySet();
+
+    public ObjectExistenceSnapshot(MinioService minioService, int listingLimit) {
+        this.minioService = minioService;
+        this.listingLimit = listingLimit;
+    }
+
+    public boolean isFileExist(String filePath) {
+        if (!claimedPaths.add(filePath)) {
+            return true;
+        }
+
+        Optional<Set<String>> fileNames = getFolderListing(PathUtils.getParentDirectoryPath(filePath));
+
+        return fileNames
+                .map(names -> names.contains(filePath))
+                .orElseGet(() -> minioService.isFileExist(filePath));
+    }
+
+    private Optional<Set<String>> getFolderListing(String folderPath) {
+        CompletableFuture<Optional<Set<String>>> created = new CompletableFuture<>();
+        CompletableFuture<Optional<Set<String>>> listing = folders.putIfAbsent(folderPath, created);
+
+        if (listing == null) {
+            // this thread lists the folder, concurrent checks for the same folder wait for its result
+            try {
+                created.complete(Optional.ofNullable(minioService.listFileNames(folderPath, listingLimit)));
+            } catch (RuntimeException e) {
+                folders.remove(folderPath, created);
+                created.completeExceptionally(e);
+                throw e;
+            }
+            listing = created;
+        }
+
+        try {
+            return listing.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+}
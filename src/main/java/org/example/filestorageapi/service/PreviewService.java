@@ -0,0 +1,258 @@
+package org.example.filestorageapi.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.Result;
+import io.minio.messages.Item;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.filestorageapi.utils.PathUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.BiPredicate;
+
+/**
+ * Renders downscaled JPEG previews of images on {@code previewExecutor}. A preview is stored under
+ * {@code minio.preview.prefix} + size + file path + content ETag, so it never changes once written and is only
+ * ever served for the file it was rendered from: a content ETag may be an MD5, which another user's upload could
+ * be made to collide with. Previews are scheduled after an upload and, for files uploaded before previews existed
+ * or whose task was dropped by a full queue, on the first request. Only formats the JDK can decode are rendered;
+ * the image is decoded with subsampling, so a large photo doesn't have to fit in memory at full resolution.
+ * Previews of files that were deleted, moved or overwritten are removed by {@link ResourceIndexReconciler}.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class PreviewService {
+
+    private static final Set<String> SUPPORTED_EXTENSIONS = Set.copyOf(Arrays.asList(ImageIO.getReaderFileSuffixes()));
+
+    private final MinioService minioService;
+    private final MeterRegistry meterRegistry;
+
+    @Qualifier("previewExecutor")
+    private final ThreadPoolExecutor previewExecutor;
+
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    @Value("${minio.preview.enabled}")
+    private boolean enabled;
+
+    @Value("${minio.preview.prefix}")
+    private String previewPrefix;
+
+    @Value("${minio.preview.size}")
+    private int previewSize;
+
+    @Value("${minio.preview.quality}")
+    private float quality;
+
+    @Value("${minio.preview.max-source-size}")
+    private DataSize maxSourceSize;
+
+    @Value("${minio.preview.max-pixels}")
+    private long maxPixels;
+
+    public boolean isSupported(String fileName, long size) {
+        String extension = PathUtils.getFileExtension(fileName);
+
+        return enabled
+                && extension != null
+                && SUPPORTED_EXTENSIONS.contains(extension)
+                && size <= maxSourceSize.toBytes();
+    }
+
+    public String getPreviewKey(String path, String contentEtag) {
+        return previewPrefix + previewSize + "/" + path + "/" + contentEtag + ".jpg";
+    }
+
+    public int getPreviewSize() {
+        return previewSize;
+    }
+
+    /**
+     * Queues the preview of a file unless it is already being rendered. A full queue drops the task,
+     * the preview is then rendered when it is first requested.
+     */
+    public void schedule(String path, String contentEtag, long size) {
+        if (contentEtag == null || !isSupported(path, size)) {
+            return;
+        }
+
+        String previewKey = getPreviewKey(path, contentEtag);
+        if (!inProgress.add(previewKey)) {
+            return;
+        }
+
+        try {
+            previewExecutor.execute(() -> render(path, previewKey));
+        } catch (RejectedExecutionException e) {
+            inProgress.remove(previewKey);
+            meterRegistry.counter("minio.preview.rejected").increment();
+        }
+    }
+
+    /**
+     * Removes the previews stored before {@code listedBefore} whose file no longer has the content they were
+     * rendered from, as told by {@code isCurrent(path, contentEtag)}, and those of another preview size.
+     * Returns the number of removed previews.
+     */
+    public int removeOrphans(Instant listedBefore, BiPredicate<String, String> isCurrent) throws Exception {
+        String sizePrefix = previewPrefix + previewSize + "/";
+        int removedCount = 0;
+
+        for (Result<Item> result : minioService.listAllObjects(previewPrefix)) {
+            Item item = result.get();
+            String previewKey = item.objectName();
+            if (item.lastModified() == null || !item.lastModified().toInstant().isBefore(listedBefore)) {
+                continue;
+            }
+
+            // previews of another size and those keyed by content ETag alone are never requested again
+            int etagStart = previewKey.lastIndexOf('/') + 1;
+            boolean current = previewKey.startsWith(sizePrefix)
+                    && previewKey.endsWith(".jpg")
+                    && etagStart > sizePrefix.length()
+                    && isCurrent.test(previewKey.substring(sizePrefix.length(), etagStart - 1),
+                    previewKey.substring(etagStart, previewKey.length() - ".jpg".length()));
+            if (current) {
+                continue;
+            }
+
+            try {
+                minioService.removeStoredObject(previewKey);
+                removedCount++;
+            } catch (RuntimeException e) {
+                log.warn("Could not remove preview '{}': {}", previewKey, e.getMessage());
+            }
+        }
+
+        return removedCount;
+    }
+
+    private void render(String path, String previewKey) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "rendered";
+
+        try {
+            if (minioService.isStoredObjectExist(previewKey)) {
+                outcome = "exists";
+                return;
+            }
+
+            byte[] preview;
+            try (InputStream source = minioService.openFile(path)) {
+                preview = renderJpeg(source);
+            }
+
+            if (preview == null) {
+                outcome = "unsupported";
+                return;
+            }
+
+            minioService.putStoredObject(previewKey, preview, MediaType.IMAGE_JPEG_VALUE);
+            log.debug("Preview of '{}' stored as '{}' ({} bytes)", path, previewKey, preview.length);
+        } catch (Exception | OutOfMemoryError e) {
+            outcome = "error";
+            log.warn("Could not render preview of '{}': {}", path, e.getMessage());
+        } finally {
+            inProgress.remove(previewKey);
+            sample.stop(meterRegistry.timer("minio.preview.render", "outcome", outcome));
+        }
+    }
+
+    /**
+     * Returns null for content no installed reader understands or images over {@code minio.preview.max-pixels}.
+     */
+    private byte[] renderJpeg(InputStream source) throws IOException {
+        try (ImageInputStream imageInput = new MemoryCacheImageInputStream(source)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    return null;
+                }
+
+                // decoding every n-th pixel keeps about twice the target size, the rest is done by scaling
+                ImageReadParam readParam = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (previewSize * 2));
+                readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                return encodeJpeg(scale(reader.read(0, readParam)));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage image) {
+        double ratio = Math.min(1.0, (double) previewSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        // JPEG has no alpha channel, transparent areas become white
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        return scaled;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(buffer)) {
+            ImageWriteParam writeParam = writer.getDefaultWriteParam();
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setCompressionQuality(quality);
+
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), writeParam);
+        } finally {
+            writer.dispose();
+        }
+
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.filestorageapi.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.example.filestorageapi.errors.QuotaExceededException;
+import org.example.filestorageapi.errors.QuotaUnavailableException;
+import org.example.filestorageapi.repository.QuotaReservationRepository;
+import org.example.filestorageapi.repository.ResourceMetadataRepository;
+import org.example.filestorageapi.utils.PathUtils;
+import org.example.filestorageapi.utils.ResourcePath;
+import org.example.filestorageapi.utils.ResourceType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Enforces {@code resource-index.quota.max-size} across all nodes. The upload of a file reserves its bytes on the
+ * row of the user root folder with one conditional update, which only succeeds while the usage of the folder plus
+ * the reservations of all uploads in progress stay within the quota. A file is indexed, and so added to the usage,
+ * before its reservation is released, so for a moment it counts twice rather than not at all.
+ * Every reservation also has a {@code quota_reservations} row; the ones of uploads that stopped reserving, e.g. on
+ * a crashed node, are released after {@code resource-index.quota.reservation-timeout}. A streamed upload reserves
+ * a part size at a time and so keeps its row fresh for as long as it makes progress.
+ * The usage counters cover files uploaded before the index existed only once a reconciliation has completed;
+ * until then uploads are refused with {@link QuotaUnavailableException} instead of being let through unchecked.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class QuotaService {
+
+    private static final long UNAVAILABLE_RETRY_AFTER_SECONDS = 30;
+
+    private final ResourceMetadataRepository resourceMetadataRepository;
+    private final QuotaReservationRepository quotaReservationRepository;
+    private final ResourceIndexService resourceIndexService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${resource-index.quota.max-size}")
+    private DataSize maxSize;
+
+    @Value("${resource-index.quota.reservation-timeout}")
+    private Duration reservationTimeout;
+
+    @Value("${minio.upload.part-size}")
+    private DataSize reservationChunk;
+
+    public boolean isEnabled() {
+        return maxSize.toBytes() > 0;
+    }
+
+    /**
+     * Fails fast when the quota is on but can't be checked yet.
+     */
+    public void checkAvailable() {
+        if (isEnabled() && !resourceIndexService.isReconciled()) {
+            throw new QuotaUnavailableException("Storage quota can't be checked until the resource index "
+                    + "is reconciled, try again later", UNAVAILABLE_RETRY_AFTER_SECONDS);
+        }
+    }
+
+    /**
+     * A reservation for the upload of one file, holding nothing until {@link Reservation#reserve} is called.
+     */
+    public Reservation startReservation(long userId, String filename) {
+        return new Reservation((int) userId, filename);
+    }
+
+    /**
+     * Releases the reservations that didn't grow within {@code resource-index.quota.reservation-timeout}.
+     */
+    @Scheduled(initialDelayString = "${resource-index.quota.reservation-timeout}",
+            fixedDelayString = "${resource-index.quota.reservation-timeout}")
+    public void releaseExpiredReservations() {
+        int releasedCount = 0;
+        for (UUID id : quotaReservationRepository.findIdsTouchedBefore(Instant.now().minus(reservationTimeout))) {
+            if (release(id)) {
+                releasedCount++;
+            }
+        }
+
+        if (releasedCount > 0) {
+            log.warn("Released {} quota reservations of uploads that didn't finish", releasedCount);
+        }
+    }
+
+    private boolean release(UUID id) {
+        try {
+            Boolean released = transactionTemplate.execute(status -> quotaReservationRepository.findForUpdateById(id)
+                    .map(reservation -> {
+                        quotaReservationRepository.delete(reservation);
+                        resourceMetadataRepository.releaseQuota(getRootName(reservation.getOwnerId()),
+                                reservation.getSize());
+                        return true;
+                    })
+                    .orElse(false));
+            return Boolean.TRUE.equals(released);
+        } catch (RuntimeException e) {
+            log.warn("Could not release quota reservation {}: {}", id, e.getMessage());
+            return false;
+        }
+    }
+
+    private QuotaExceededException quotaExceeded(String filename) {
+        return new QuotaExceededException("File '" + filename + "' exceeds the storage quota of "
+                + maxSize.toMegabytes() + "MB");
+    }
+
+    private static String getRootName(int ownerId) {
+        return ResourcePath.of(PathUtils.getPathWithUserDir("", ownerId)).name();
+    }
+
+    public final class Reservation {
+
+        private final UUID id = UUID.randomUUID();
+        private final int ownerId;
+        private final String filename;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long reservedBytes;
+
+        private Reservation(int ownerId, String filename) {
+            this.ownerId = ownerId;
+            this.filename = filename;
+        }
+
+        /**
+         * Adds {@code size} bytes to the reservation.
+         *
+         * @throws QuotaExceededException if the quota of the user doesn't have them left
+         */
+        public void reserve(long size) {
+            if (!isEnabled() || size <= 0) {
+                return;
+            }
+
+            String rootName = getRootName(ownerId);
+            transactionTemplate.executeWithoutResult(status -> {
+                if (resourceMetadataRepository.reserveQuota(rootName, size, maxSize.toBytes()) == 0) {
+                    // a user without any indexed object yet has no root row to hold the reservation
+                    if (resourceMetadataRepository.existsByParentPathAndNameAndType("", rootName,
+                            ResourceType.DIRECTORY)) {
+                        throw quotaExceeded(filename);
+                    }
+                    Instant now = Instant.now();
+                    resourceMetadataRepository.upsertFolder(ownerId, "", rootName, 0, 0, now, now);
+                    if (resourceMetadataRepository.reserveQuota(rootName, size, maxSize.toBytes()) == 0) {
+                        throw quotaExceeded(filename);
+                    }
+                }
+                quotaReservationRepository.addSize(id, ownerId, size, Instant.now());
+            });
+            reservedBytes += size;
+        }
+
+        /**
+         * Wraps a stream of unknown length so that its bytes are reserved while they are read, a part size at a time
+         * and only the missing bytes once a whole part doesn't fit any more.
+         */
+        public InputStream limit(InputStream inputStream) {
+            if (!isEnabled()) {
+                return inputStream;
+            }
+
+            return new ProxyInputStream(inputStream) {
+                private long count;
+
+                @Override
+                protected void afterRead(int n) {
+                    if (n <= 0) {
+                        return;
+                    }
+
+                    count += n;
+                    long missing = count - reservedBytes;
+                    if (missing <= 0) {
+                        return;
+                    }
+                    try {
+                        reserve(Math.max(missing, reservationChunk.toBytes()));
+                    } catch (QuotaExceededException e) {
+                        reserve(missing);
+                    }
+                }
+            };
+        }
+
+        /**
+         * Gives the reserved bytes back, once the file is indexed or its upload failed. Only the first call counts.
+         */
+        public void release() {
+            if (reservedBytes > 0 && released.compareAndSet(false, true)) {
+                QuotaService.this.release(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.example.filestorageapi.service;
+
+import io.minio.Result;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.filestorageapi.utils.PathUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Backfills the resource index from the bucket and removes the rows of objects that are gone,
+ * e.g. after an index write failed or objects were changed directly in MinIO.
+ * The listing is sorted by key, so the objects of one user folder come in one stretch; each stretch is merged
+ * with the rows of that user by a {@link ResourceIndexService.OwnerReconciliation}, which writes only what differs.
+ * Objects are passed on as they are listed, neither the listing nor the rows of a user are held in memory.
+ * Folder usage counters are recounted from the listing and corrected by the difference to the row as it was read,
+ * so writes after that are kept; quota reservations of uploads in progress are not touched. A write between the
+ * listing of an object and the read of its folder row may still be off in the counters until the next run.
+ * The references of the blob pointers found on the way, in user folders or not, are checked and the blobs are
+ * recounted by {@link BlobReferenceService} once the whole bucket was listed. Afterwards, previews whose file
+ * is gone or has other content in the reconciled index are removed by {@link PreviewService}.
+ * Objects that fail to be written are counted and left for the next run; reads switch to the index even then,
+ * on every node, see {@link ResourceIndexService#markReconciled}.
+ * Runs {@code resource-index.reconcile-initial-delay} after startup and then every
+ * {@code resource-index.reconcile-interval}.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class ResourceIndexReconciler {
+
+    private static final int POINTER_BATCH_SIZE = 500;
+
+    private final MinioService minioService;
+    private final ResourceIndexService resourceIndexService;
+    private final BlobReferenceService blobReferenceService;
+    private final PreviewService previewService;
+
+    @Value("${resource-index.reconcile-enabled}")
+    private boolean reconcileEnabled;
+
+    @Scheduled(initialDelayString = "${resource-index.reconcile-initial-delay}",
+            fixedDelayString = "${resource-index.reconcile-interval}")
+    public void reconcile() {
+        if (!reconcileEnabled) {
+            return;
+        }
+
+        Instant reconcileStart = Instant.now();
+        Run run = new Run(reconcileStart);
+
+        try {
+            for (Result<Item> result : minioService.listAllObjects("")) {
+                Item item = result.get();
+                String objectName = item.objectName();
+
+                String blobHash = minioService.getBlobHash(item);
+                if (blobHash != null) {
+                    run.pointers.add(new BlobReferenceService.Pointer(objectName, blobHash,
+                            minioService.getContentSize(item)));
+                    if (run.pointers.size() == POINTER_BATCH_SIZE) {
+                        verifyPointers(run);
+                    }
+                }
+
+                Integer ownerId = PathUtils.getOwnerId(objectName);
+                if (ownerId == null) {
+                    continue;
+                }
+
+                if (!ownerId.equals(run.ownerId)) {
+                    finishOwner(run);
+                    if (!run.listedOwnerIds.add(ownerId)) {
+                        throw new IllegalStateException("Objects of user " + ownerId + " are not listed together");
+                    }
+                    run.ownerId = ownerId;
+                    run.owner = resourceIndexService.startOwner(ownerId, reconcileStart);
+                }
+
+                // the user root folder is created as an object without the trailing slash
+                boolean isFolder = PathUtils.hasSlashInTheEnd(objectName)
+                        || PathUtils.getPathWithUserDir("", ownerId).equals(objectName + "/");
+                Instant lastModified = item.lastModified() == null ? reconcileStart : item.lastModified().toInstant();
+
+                addToOwner(run, new ResourceIndexService.ListedObject(objectName, isFolder,
+                        minioService.getContentSize(item), minioService.getContentEtag(item), lastModified));
+                run.objectCount++;
+            }
+
+            finishOwner(run);
+            verifyPointers(run);
+        } catch (Exception e) {
+            log.error("Resource index reconciliation failed after {} objects: {}",
+                    run.objectCount, e.getMessage(), e);
+            return;
+        }
+
+        try {
+            run.removedCount += resourceIndexService.removeOtherOwners(run.listedOwnerIds, reconcileStart);
+        } catch (RuntimeException e) {
+            log.warn("Could not remove the rows of users without objects: {}", e.getMessage());
+        }
+        resourceIndexService.markReconciled();
+
+        // a reference whose pointer wasn't verified would look unused, so the recount waits for a clean run
+        int recountedBlobs = 0;
+        if (run.pointersVerified) {
+            recountedBlobs = blobReferenceService.recount(reconcileStart, minioService::removeBlob);
+        }
+
+        int removedPreviews = 0;
+        try {
+            removedPreviews = previewService.removeOrphans(reconcileStart, this::isIndexedContent);
+        } catch (Exception e) {
+            log.warn("Could not remove orphaned previews: {}", e.getMessage());
+        }
+
+        log.info("Resource index reconciled: {} objects listed, {} rows written, {} stale rows removed, "
+                        + "{} objects failed, {} blob counters corrected, {} orphaned previews removed",
+                run.objectCount, run.writtenCount, run.removedCount, run.failedCount, recountedBlobs,
+                removedPreviews);
+    }
+
+    /**
+     * A file whose row failed to be written loses its preview, which is rendered again on the next request.
+     */
+    private boolean isIndexedContent(String path, String contentEtag) {
+        return resourceIndexService.findResource(path)
+                .map(resource -> contentEtag.equals(resource.getEtag()))
+                .orElse(false);
+    }
+
+    /**
+     * Objects of a user whose reconciliation failed are only counted, the rest of the bucket goes on.
+     */
+    private void addToOwner(Run run, ResourceIndexService.ListedObject object) {
+        if (run.owner == null) {
+            run.failedCount++;
+            return;
+        }
+
+        try {
+            run.owner.add(object);
+        } catch (RuntimeException e) {
+            run.failedCount++;
+            run.owner = null;
+            log.warn("Could not reconcile the index of user {}: {}", run.ownerId, e.getMessage());
+        }
+    }
+
+    private void finishOwner(Run run) {
+        if (run.owner == null) {
+            return;
+        }
+
+        try {
+            ResourceIndexService.ReconcileResult result = run.owner.finish();
+            run.writtenCount += result.writtenCount();
+            run.removedCount += result.removedCount();
+            run.failedCount += result.failedCount();
+        } catch (RuntimeException e) {
+            log.warn("Could not reconcile the index of user {}: {}", run.ownerId, e.getMessage());
+        }
+        run.owner = null;
+    }
+
+    private void verifyPointers(Run run) {
+        if (run.pointers.isEmpty()) {
+            return;
+        }
+
+        try {
+            blobReferenceService.verifyReferences(run.pointers, run.reconcileStart);
+        } catch (RuntimeException e) {
+            run.pointersVerified = false;
+            run.failedCount += run.pointers.size();
+            log.warn("Could not verify the references of {} blob pointers: {}", run.pointers.size(), e.getMessage());
+        }
+        run.pointers.clear();
+    }
+
+    private static final class Run {
+
+        private final Instant reconcileStart;
+        private final Set<Integer> listedOwnerIds = new HashSet<>();
+        private final List<BlobReferenceService.Pointer> pointers = new ArrayList<>();
+        private Integer ownerId;
+        private ResourceIndexService.OwnerReconciliation owner;
+        private boolean pointersVerified = true;
+        private long objectCount;
+        private long writtenCount;
+        private long removedCount;
+        private long failedCount;
+
+        private Run(Instant reconcileStart) {
+            this.reconcileStart = reconcileStart;
+        }
+    }
+}
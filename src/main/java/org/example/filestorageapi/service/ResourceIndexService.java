@@ -0,0 +1,614 @@
+package org.example.filestorageapi.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.filestorageapi.dto.ResourceInfoResponseDto;
+import org.example.filestorageapi.entity.ResourceIndexState;
+import org.example.filestorageapi.entity.ResourceMetadata;
+import org.example.filestorageapi.repository.ResourceIndexStateRepository;
+import org.example.filestorageapi.repository.ResourceMetadataRepository;
+import org.example.filestorageapi.utils.PathUtils;
+import org.example.filestorageapi.utils.ResourcePath;
+import org.example.filestorageapi.utils.ResourceType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Metadata of the objects in user folders, kept in the {@code resources} table so that listings, searches and
+ * existence checks are indexed queries instead of MinIO prefix scans.
+ * Every folder on the way to an object has its own row, even if MinIO has no marker object for it,
+ * which carries the total size and number of the files below it.
+ * {@link MinioService} updates the index after each write. A failed index write is only logged, the next
+ * {@link ResourceIndexReconciler} run brings the row in line with the bucket. Writes requested inside a
+ * transaction, e.g. the user folder created during sign-up, run in their own transaction after it commits:
+ * the rows may refer to the new user, and a failed write mustn't roll the caller back.
+ * Reads are served from the index once a reconciliation has completed on any node, recorded in
+ * {@code resource_index_state}; until then callers list MinIO.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class ResourceIndexService {
+
+    private static final char LIKE_ESCAPE = '!';
+    private static final int RECONCILE_BATCH_SIZE = 500;
+    private static final long STATE_CHECK_INTERVAL_MILLIS = 5000;
+
+    private final ResourceMetadataRepository resourceMetadataRepository;
+    private final ResourceIndexStateRepository resourceIndexStateRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${resource-index.read-enabled}")
+    private boolean readEnabled;
+
+    // a reconciled index stays reconciled, so only the negative answer is checked again
+    private volatile boolean reconciled;
+    private volatile long nextStateCheck;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isReadable() {
+        return readEnabled && isReconciled();
+    }
+
+    /**
+     * Whether a reconciliation has completed on any node, so the rows and usage counters cover the whole bucket.
+     * Until one is recorded, the state is read at most every {@value #STATE_CHECK_INTERVAL_MILLIS} ms, so a node
+     * started after the first run uses the index right away.
+     */
+    public boolean isReconciled() {
+        if (reconciled) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now < nextStateCheck) {
+            return false;
+        }
+        nextStateCheck = now + STATE_CHECK_INTERVAL_MILLIS;
+        try {
+            reconciled = resourceIndexStateRepository.existsById(ResourceIndexState.ID);
+        } catch (RuntimeException e) {
+            log.warn("Could not read the state of the resource index: {}", e.getMessage());
+        }
+
+        return reconciled;
+    }
+
+    /**
+     * Records a completed reconciliation for every node. If that fails, only this node reads the index
+     * and the others wait for the next run.
+     */
+    public void markReconciled() {
+        reconciled = true;
+        try {
+            resourceIndexStateRepository.markReconciled(Instant.now());
+        } catch (RuntimeException e) {
+            log.warn("Could not record the reconciliation of the resource index: {}", e.getMessage());
+        }
+    }
+
+    public void fileWritten(String objectPath, long size, String etag) {
+        runAfterCommit(() -> {
+            Instant now = Instant.now();
+            try {
+                indexObject(objectPath, false, size, etag, now, now);
+            } catch (RuntimeException e) {
+                log.warn("Could not index file '{}': {}", objectPath, e.getMessage());
+            }
+        });
+    }
+
+    public void folderCreated(String folderPath) {
+        runAfterCommit(() -> {
+            Instant now = Instant.now();
+            try {
+                indexObject(folderPath, true, 0, null, now, now);
+            } catch (RuntimeException e) {
+                log.warn("Could not index folder '{}': {}", folderPath, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Removes the file and subtracts it from the usage of every folder above it.
+     */
+    public void fileRemoved(String objectPath) {
+        if (PathUtils.getOwnerId(objectPath) == null) {
+            return;
+        }
+
+        runAfterCommit(() -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    ResourcePath filePath = ResourcePath.of(objectPath);
+                    String parentPath = filePath.parentPath();
+                    String name = filePath.name();
+
+                    resourceMetadataRepository
+                            .findForUpdateByParentPathAndNameAndType(parentPath, name, ResourceType.FILE)
+                            .ifPresent(file -> {
+                                resourceMetadataRepository.deleteResource(parentPath, name, ResourceType.FILE);
+                                addUsageToParentFolders(objectPath, -file.getSize(), -1);
+                            });
+                });
+            } catch (RuntimeException e) {
+                log.warn("Could not remove file '{}' from the index: {}", objectPath, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Removes the folder with everything below it and subtracts its usage from every folder above it.
+     */
+    public void folderRemoved(String folderPath) {
+        String normalizedPath = PathUtils.addSlashToTheEnd(folderPath);
+        if (PathUtils.getOwnerId(normalizedPath) == null) {
+            return;
+        }
+
+        runAfterCommit(() -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    ResourcePath folderPathParts = ResourcePath.of(normalizedPath);
+                    String parentPath = folderPathParts.parentPath();
+                    String name = folderPathParts.name();
+
+                    resourceMetadataRepository
+                            .findByParentPathAndNameAndType(parentPath, name, ResourceType.DIRECTORY)
+                            .ifPresent(folder -> addUsageToParentFolders(normalizedPath,
+                                    -folder.getSize(), -folder.getObjectCount()));
+                    resourceMetadataRepository.deleteByParentPathLike(escapeLikePattern(normalizedPath) + "%");
+                    resourceMetadataRepository.deleteResource(parentPath, name, ResourceType.DIRECTORY);
+                });
+            } catch (RuntimeException e) {
+                log.warn("Could not remove folder '{}' from the index: {}", folderPath, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Upserts the object and every folder above it, and adds a new or resized file to the usage of those folders
+     * in the same transaction. Folders are written outermost first, so concurrent writers lock them in the same order.
+     * Objects outside user folders are ignored.
+     */
+    private void indexObject(String objectPath, boolean isFolder, long size, String etag,
+                             Instant updatedAt, Instant indexedAt) {
+        ResourcePath resourcePath = ResourcePath.of(objectPath);
+        Integer ownerId = resourcePath.ownerId();
+        if (ownerId == null) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            long sizeDelta = 0;
+            long countDelta = 0;
+            if (!isFolder) {
+                Optional<ResourceMetadata> existing = resourceMetadataRepository.findForUpdateByParentPathAndNameAndType(
+                        resourcePath.parentPath(), resourcePath.name(), ResourceType.FILE);
+                sizeDelta = size - existing.map(ResourceMetadata::getSize).orElse(0L);
+                countDelta = existing.isPresent() ? 0 : 1;
+            }
+
+            for (String folderPath : PathUtils.getParentFolders(objectPath)) {
+                upsertFolder(ownerId, folderPath, sizeDelta, countDelta, updatedAt, indexedAt);
+            }
+
+            if (isFolder) {
+                upsertFolder(ownerId, PathUtils.addSlashToTheEnd(objectPath), 0, 0, updatedAt, indexedAt);
+            } else {
+                resourceMetadataRepository.upsertFile(ownerId, resourcePath.parentPath(), resourcePath.name(),
+                        size, etag, updatedAt, indexedAt);
+            }
+        });
+    }
+
+    /**
+     * Starts bringing the rows of one user in line with the objects a reconciliation lists in the user folder,
+     * see {@link OwnerReconciliation}.
+     */
+    public OwnerReconciliation startOwner(int ownerId, Instant reconcileStart) {
+        return new OwnerReconciliation(ownerId, reconcileStart);
+    }
+
+    /**
+     * Returns the usage of the user root folder, i.e. of the whole user storage.
+     */
+    public Optional<ResourceMetadata> getUserUsage(long userId) {
+        return resourceMetadataRepository.findByParentPathAndNameAndType("",
+                PathUtils.extractFilenameFromPath(PathUtils.getPathWithUserDir("", userId)), ResourceType.DIRECTORY);
+    }
+
+    /**
+     * Drops the rows of users that have no objects in the bucket any more, i.e. that the reconciliation started at
+     * {@code reconcileStart} didn't pass to {@link #reconcileOwner}. Rows written by requests during the run
+     * have a later {@code indexed_at} and are kept.
+     */
+    public int removeOtherOwners(Set<Integer> listedOwnerIds, Instant reconcileStart) {
+        return listedOwnerIds.isEmpty()
+                ? resourceMetadataRepository.deleteIndexedBefore(reconcileStart)
+                : resourceMetadataRepository.deleteOtherOwnersIndexedBefore(listedOwnerIds, reconcileStart);
+    }
+
+    /**
+     * Looks the path up as a folder first and then as a file, the same order as
+     * {@link MinioService#isFolderOrThrowNotFound(String)}.
+     */
+    public Optional<ResourceInfoResponseDto> findResource(String path) {
+        ResourcePath resourcePath = ResourcePath.of(path);
+        String parentPath = resourcePath.parentPath();
+        String name = resourcePath.name();
+
+        return resourceMetadataRepository.findByParentPathAndNameAndType(parentPath, name, ResourceType.DIRECTORY)
+                .or(() -> resourceMetadataRepository.findByParentPathAndNameAndType(parentPath, name, ResourceType.FILE))
+                .map(this::createResourceInfoDto);
+    }
+
+    public boolean isFolderExists(String folderPath) {
+        ResourcePath folder = ResourcePath.of(folderPath);
+        return resourceMetadataRepository.existsByParentPathAndNameAndType(folder.parentPath(), folder.name(),
+                ResourceType.DIRECTORY);
+    }
+
+    public boolean isFileExist(String filePath) {
+        ResourcePath file = ResourcePath.of(filePath);
+        return resourceMetadataRepository.existsByParentPathAndNameAndType(file.parentPath(), file.name(),
+                ResourceType.FILE);
+    }
+
+    /**
+     * Returns up to {@code limit} entries of the folder that come after the entry named {@code startAfter}
+     * (an empty string starts from the beginning).
+     */
+    public List<ResourceInfoResponseDto> getInfoList(String folderPath, String startAfter, int limit) {
+        return resourceMetadataRepository.findFolderPage(PathUtils.addSlashToTheEnd(folderPath), startAfter, limit)
+                .stream()
+                .map(this::createResourceInfoDto)
+                .toList();
+    }
+
+    public List<ResourceInfoResponseDto> searchByName(String searchWord, long userId, int limit) {
+        String lowerCaseSearchWord = searchWord.toLowerCase();
+        String escapedSearchWord = escapeLikePattern(lowerCaseSearchWord);
+
+        return resourceMetadataRepository.searchByName((int) userId, lowerCaseSearchWord,
+                        "%" + escapedSearchWord + "%", escapedSearchWord + "%", limit)
+                .stream()
+                .map(this::createResourceInfoDto)
+                .toList();
+    }
+
+    private void runAfterCommit(Runnable write) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                write.run();
+            }
+        });
+    }
+
+    private void upsertFolder(int ownerId, String folderPath, long sizeDelta, long countDelta,
+                              Instant updatedAt, Instant indexedAt) {
+        ResourcePath folder = ResourcePath.of(folderPath);
+        resourceMetadataRepository.upsertFolder(ownerId, folder.parentPath(), folder.name(),
+                sizeDelta, countDelta, updatedAt, indexedAt);
+    }
+
+    private void addUsageToParentFolders(String objectPath, long sizeDelta, long countDelta) {
+        for (String folderPath : PathUtils.getParentFolders(objectPath)) {
+            ResourcePath folder = ResourcePath.of(folderPath);
+            resourceMetadataRepository.addFolderUsage(folder.parentPath(), folder.name(), sizeDelta, countDelta);
+        }
+    }
+
+    private ResourceInfoResponseDto createResourceInfoDto(ResourceMetadata resource) {
+        boolean isFolder = resource.getType() == ResourceType.DIRECTORY;
+
+        return ResourceInfoResponseDto.builder()
+                .path(resource.getParentPath())
+                .name(isFolder ? resource.getName() + "/" : resource.getName())
+                .size(resource.getSize())
+                .type(resource.getType())
+                .etag(resource.getEtag())
+                .lastModified(resource.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * The object key of the row, with a trailing slash for a folder.
+     */
+    private static String getKey(ResourceMetadata row) {
+        String key = row.getParentPath() + row.getName();
+        return row.getType() == ResourceType.DIRECTORY ? key + "/" : key;
+    }
+
+    /**
+     * Compares object keys by code point, which is the byte order of their UTF-8 form that MinIO lists keys in
+     * and {@code COLLATE "C"} sorts by.
+     */
+    static int compareKeys(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            int firstCodePoint = first.codePointAt(i);
+            int secondCodePoint = second.codePointAt(j);
+            if (firstCodePoint != secondCodePoint) {
+                return Integer.compare(firstCodePoint, secondCodePoint);
+            }
+            i += Character.charCount(firstCodePoint);
+            j += Character.charCount(secondCodePoint);
+        }
+
+        return Integer.compare(first.length() - i, second.length() - j);
+    }
+
+    private static String escapeLikePattern(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+
+        return escaped.toString();
+    }
+
+    /**
+     * An object of a user folder as listed by the reconciliation, with the size and ETag of its content.
+     */
+    public record ListedObject(String path, boolean folder, long size, String etag, Instant lastModified) {
+    }
+
+    public record ReconcileResult(int writtenCount, int removedCount, int failedCount) {
+    }
+
+    /**
+     * Brings the rows of one user in line with the objects of the user folder, which have to be added in the order
+     * MinIO lists keys in. They are merged with the rows of the user read in the same order,
+     * {@value #RECONCILE_BATCH_SIZE} at a time, so neither side is held in memory. Only new files, files whose ETag
+     * or size changed, new folders and folders whose totals differ are written, in transactions of up to
+     * {@value #RECONCILE_BATCH_SIZE} rows, and rows of objects that are gone are deleted. A folder is compared once
+     * the listing has passed everything below it; only the folders above the current key are open at a time.
+     * Rows written by requests since {@code reconcileStart} are kept, rows that appear behind the merge were
+     * written during the run and are skipped. A batch that fails, e.g. for a folder without a user, is counted
+     * as failed and the others go on.
+     */
+    public final class OwnerReconciliation {
+
+        private final int ownerId;
+        private final Instant reconcileStart;
+        private final Deque<ResourceMetadata> rows = new ArrayDeque<>();
+        private final Map<String, FolderTotals> openFolders = new LinkedHashMap<>();
+        private final List<Runnable> writes = new ArrayList<>();
+        private final List<Long> staleIds = new ArrayList<>();
+        private String rowsAfter = "";
+        private boolean rowsExhausted;
+        private String lastKey;
+        private int writtenCount;
+        private int removedCount;
+        private int failedCount;
+
+        private OwnerReconciliation(int ownerId, Instant reconcileStart) {
+            this.ownerId = ownerId;
+            this.reconcileStart = reconcileStart;
+        }
+
+        public void add(ListedObject object) {
+            String key = object.folder() ? PathUtils.addSlashToTheEnd(object.path()) : object.path();
+            if (lastKey != null && compareKeys(key, lastKey) <= 0) {
+                throw new IllegalStateException("Objects of user " + ownerId + " are not listed in key order: " + key);
+            }
+
+            ResourceMetadata row = null;
+            for (ResourceMetadata next = peekRow(); next != null; next = peekRow()) {
+                int order = compareKeys(getKey(next), key);
+                if (order > 0) {
+                    break;
+                }
+                rows.poll();
+                if (order == 0) {
+                    row = next;
+                    break;
+                }
+                visitUnlistedRow(next);
+            }
+            advanceTo(key);
+
+            if (object.folder()) {
+                FolderTotals totals = openFolders.computeIfAbsent(key, path -> new FolderTotals());
+                totals.listed = true;
+                totals.updatedAt = object.lastModified();
+                totals.row = row;
+                return;
+            }
+
+            for (String folderPath : PathUtils.getParentFolders(object.path())) {
+                FolderTotals totals = openFolders.computeIfAbsent(folderPath, path -> new FolderTotals());
+                totals.size += object.size();
+                totals.objectCount++;
+            }
+
+            if (row == null || row.getSize() != object.size() || !Objects.equals(row.getEtag(), object.etag())) {
+                ResourcePath file = ResourcePath.of(object.path());
+                write(() -> resourceMetadataRepository.upsertFile(ownerId, file.parentPath(), file.name(),
+                        object.size(), object.etag(), object.lastModified(), reconcileStart));
+            }
+        }
+
+        /**
+         * Deletes the rows after the last listed object and writes what is still buffered.
+         */
+        public ReconcileResult finish() {
+            for (ResourceMetadata row = peekRow(); row != null; row = peekRow()) {
+                rows.poll();
+                visitUnlistedRow(row);
+            }
+            openFolders.forEach(this::closeFolder);
+            openFolders.clear();
+
+            flushWrites();
+            flushStaleRows();
+            return new ReconcileResult(writtenCount, removedCount, failedCount);
+        }
+
+        /**
+         * The next row of the user after the last key, reading the next page when the current one is used up.
+         */
+        private ResourceMetadata peekRow() {
+            while (true) {
+                if (rows.isEmpty()) {
+                    if (rowsExhausted) {
+                        return null;
+                    }
+                    List<ResourceMetadata> page = resourceMetadataRepository.findOwnerPage(ownerId, rowsAfter,
+                            RECONCILE_BATCH_SIZE);
+                    rowsExhausted = page.size() < RECONCILE_BATCH_SIZE;
+                    if (page.isEmpty()) {
+                        return null;
+                    }
+                    rowsAfter = getKey(page.get(page.size() - 1));
+                    rows.addAll(page);
+                }
+
+                ResourceMetadata row = rows.peek();
+                if (lastKey == null || compareKeys(getKey(row), lastKey) > 0) {
+                    return row;
+                }
+                rows.poll();
+            }
+        }
+
+        private void visitUnlistedRow(ResourceMetadata row) {
+            String key = getKey(row);
+            advanceTo(key);
+
+            if (row.getType() == ResourceType.DIRECTORY) {
+                // kept if the files listed below it make it a folder
+                openFolders.computeIfAbsent(key, path -> new FolderTotals()).row = row;
+            } else {
+                markStale(row);
+            }
+        }
+
+        /**
+         * Closes the open folders the key is not inside of, nothing below them is listed after it.
+         */
+        private void advanceTo(String key) {
+            lastKey = key;
+
+            Iterator<Map.Entry<String, FolderTotals>> iterator = openFolders.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, FolderTotals> folder = iterator.next();
+                if (!key.startsWith(folder.getKey())) {
+                    closeFolder(folder.getKey(), folder.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+
+        private void closeFolder(String folderPath, FolderTotals totals) {
+            ResourceMetadata row = totals.row;
+            if (!totals.listed && totals.objectCount == 0) {
+                if (row != null) {
+                    markStale(row);
+                }
+                return;
+            }
+
+            ResourcePath folder = ResourcePath.of(folderPath);
+            if (row == null) {
+                Instant updatedAt = totals.updatedAt == null ? reconcileStart : totals.updatedAt;
+                write(() -> resourceMetadataRepository.upsertFolder(ownerId, folder.parentPath(), folder.name(),
+                        totals.size, totals.objectCount, updatedAt, reconcileStart));
+            } else if (row.getSize() != totals.size || row.getObjectCount() != totals.objectCount) {
+                // the difference to the row as it was read, so uploads and deletes since then are kept
+                long sizeDelta = totals.size - row.getSize();
+                long countDelta = totals.objectCount - row.getObjectCount();
+                write(() -> resourceMetadataRepository.addFolderUsage(folder.parentPath(), folder.name(),
+                        sizeDelta, countDelta));
+            }
+        }
+
+        private void write(Runnable write) {
+            writes.add(write);
+            if (writes.size() == RECONCILE_BATCH_SIZE) {
+                flushWrites();
+            }
+        }
+
+        private void markStale(ResourceMetadata row) {
+            staleIds.add(row.getId());
+            if (staleIds.size() == RECONCILE_BATCH_SIZE) {
+                flushStaleRows();
+            }
+        }
+
+        private void flushWrites() {
+            if (writes.isEmpty()) {
+                return;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> writes.forEach(Runnable::run));
+                writtenCount += writes.size();
+            } catch (RuntimeException e) {
+                failedCount += writes.size();
+                log.warn("Could not index {} objects of user {}: {}", writes.size(), ownerId, e.getMessage());
+            }
+            writes.clear();
+        }
+
+        private void flushStaleRows() {
+            if (staleIds.isEmpty()) {
+                return;
+            }
+
+            try {
+                removedCount += resourceMetadataRepository.deleteByIdsIndexedBefore(staleIds, reconcileStart);
+            } catch (RuntimeException e) {
+                failedCount += staleIds.size();
+                log.warn("Could not remove {} stale rows of user {}: {}", staleIds.size(), ownerId, e.getMessage());
+            }
+            staleIds.clear();
+        }
+    }
+
+    private static final class FolderTotals {
+
+        private long size;
+        private long objectCount;
+        private Instant updatedAt;
+        private boolean listed;
+        private ResourceMetadata row;
+    }
+}
@@ -1,26 +1,136 @@
 package org.example.filestorageapi.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadException;
+import org.apache.commons.fileupload2.core.FileUploadSizeException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.example.filestorageapi.dto.ResourceInfoPageDto;
 import org.example.filestorageapi.dto.ResourceInfoResponseDto;
 import org.example.filestorageapi.dto.ResourceStreamResponseDto;
+import org.example.filestorageapi.dto.ResourceUploadResultDto;
+import org.example.filestorageapi.dto.SearchSummaryDto;
+import org.example.filestorageapi.dto.UsageResponseDto;
+import org.example.filestorageapi.entity.ResourceMetadata;
+import org.example.filestorageapi.errors.ExceptionUtils;
+import org.example.filestorageapi.errors.InvalidPathException;
+import org.example.filestorageapi.errors.PartialUploadException;
+import org.example.filestorageapi.errors.PreviewNotReadyException;
+import org.example.filestorageapi.errors.QuotaExceededException;
 import org.example.filestorageapi.errors.ResourceAlreadyExistsException;
 import org.example.filestorageapi.errors.ResourceNotFoundException;
+import org.example.filestorageapi.utils.ETagUtils;
 import org.example.filestorageapi.utils.PathUtils;
+import org.example.filestorageapi.utils.RangeRequestUtils;
+import org.example.filestorageapi.utils.ResourcePath;
 import org.example.filestorageapi.utils.ResourceType;
 import org.example.filestorageapi.utils.Validator;
+import org.example.filestorageapi.utils.ZipCompressionMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
-
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
-
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Predicate;
+
+@Log4j2
 @Service
 @RequiredArgsConstructor
 public class ResourceManagerService {
 
+    private static final String FILE_FIELD = "object";
+    private static final String PATH_FIELD = "path";
+    private static final long PREVIEW_RETRY_AFTER_SECONDS = 2;
+
     private final MinioService minioService;
+    private final ResourceIndexService resourceIndexService;
+    private final PreviewService previewService;
+    private final QuotaService quotaService;
+    private final ObjectMapper objectMapper;
+
+    @Qualifier("uploadExecutor")
+    private final ExecutorService uploadExecutor;
+
+    @Value("${minio.upload.max-file-size}")
+    private DataSize maxFileSize;
+
+    @Value("${minio.upload.buffer-size}")
+    private DataSize uploadBufferSize;
+
+    @Value("${minio.upload.concurrency}")
+    private int uploadConcurrency;
+
+    @Value("${minio.upload.max-buffered-size}")
+    private DataSize uploadMaxBufferedSize;
+
+    @Value("${minio.upload.conflict-listing-limit}")
+    private int conflictListingLimit;
+
+    @Value("${minio.upload.staging-prefix}")
+    private String stagingPrefix;
 
-    public ResourceStreamResponseDto downloadResourceAsStream(String path) {
+    @Value("${minio.download.non-blocking.enabled}")
+    private boolean nonBlockingDownloads;
+
+    @Value("${directory-listing.default-limit}")
+    private int listingDefaultLimit;
+
+    @Value("${directory-listing.max-limit}")
+    private int listingMaxLimit;
+
+    @Value("${resource-index.quota.max-size}")
+    private DataSize quotaMaxSize;
+
+    @Value("${resource-index.search.default-limit}")
+    private int searchDefaultLimit;
+
+    @Value("${resource-index.search.max-limit}")
+    private int searchMaxLimit;
+
+    @Value("${resource-index.search.deadline}")
+    private Duration searchDeadline;
+
+    private Semaphore uploadBufferBudget;
+
+    @PostConstruct
+    public void init() {
+        uploadBufferBudget = new Semaphore((int) Math.min(uploadMaxBufferedSize.toBytes(), Integer.MAX_VALUE));
+    }
+
+    public ResourceStreamResponseDto downloadResourceAsStream(String path, String rangeHeader, String ifRange,
+                                                              ZipCompressionMode compressionMode) {
         Validator.validatePath(path);
 //        String fullPath = PathUtils.getPathWithUserDir(path, userId);
 
@@ -31,42 +141,194 @@ public class ResourceManagerService {
 
             return ResourceStreamResponseDto.builder()
                     .name(PathUtils.encode(filename) + ".zip")
-                    .responseBody(minioService.downloadFolderAsZipStream(path))
+                    .responseBody(minioService.downloadFolderAsZipStream(path, compressionMode))
                     .build();
 
         } else {
+            ResourceInfoResponseDto fileInfo = minioService.getFileInfo(path);
+            String contentKey = fileInfo.getContentKey();
+            long fileSize = fileInfo.getSize();
+            String etag = ETagUtils.forFile(fileInfo.getEtag());
+            List<HttpRange> ranges = RangeRequestUtils.isIfRangeMatching(ifRange, etag, fileInfo.getLastModified())
+                    ? RangeRequestUtils.parseRanges(rangeHeader, fileSize)
+                    : List.of();
+
+            if (ranges.isEmpty()) {
+                return ResourceStreamResponseDto.builder()
+                        .name(PathUtils.encode(filename))
+                        .responseBody(minioService.downloadFileAsStream(contentKey))
+                        .asyncBody(nonBlockingDownloads ? () -> minioService.getObjectAsync(contentKey, null, null) : null)
+                        .contentLength(fileSize)
+                        .rangeSupported(true)
+                        .etag(etag)
+                        .lastModified(fileInfo.getLastModified())
+                        .build();
+            }
+
+            if (ranges.size() == 1) {
+                long start = ranges.get(0).getRangeStart(fileSize);
+                long end = ranges.get(0).getRangeEnd(fileSize);
+                long length = end - start + 1;
+
+                return ResourceStreamResponseDto.builder()
+                        .name(PathUtils.encode(filename))
+                        .responseBody(minioService.downloadFileRangeAsStream(contentKey, start, length))
+                        .asyncBody(nonBlockingDownloads ? () -> minioService.getObjectAsync(contentKey, start, length)
+                                : null)
+                        .status(HttpStatus.PARTIAL_CONTENT)
+                        .contentLength(length)
+                        .contentRange("bytes " + start + "-" + end + "/" + fileSize)
+                        .rangeSupported(true)
+                        .etag(etag)
+                        .lastModified(fileInfo.getLastModified())
+                        .build();
+            }
+
+            String boundary = MimeTypeUtils.generateMultipartBoundaryString();
             return ResourceStreamResponseDto.builder()
                     .name(PathUtils.encode(filename))
-                    .responseBody(minioService.downloadFileAsStream(path))
+                    .responseBody(minioService.downloadFileRangesAsStream(contentKey, ranges, fileSize, boundary))
+                    .status(HttpStatus.PARTIAL_CONTENT)
+                    .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                    .rangeSupported(true)
+                    .etag(etag)
+                    .lastModified(fileInfo.getLastModified())
                     .build();
         }
     }
 
-    public List<ResourceInfoResponseDto> uploadResources(List<MultipartFile> files, String path, long userId) {
-        Validator.validatePath(path);
-        Validator.validateFiles(files);
+    /**
+     * Parses the multipart body while it arrives and pipes every file part straight into MinIO,
+     * nothing is spooled to memory or disk by the servlet container.
+     * The web client sends the target {@code path} as the last form field, after the files. If it wasn't given
+     * as a query parameter, parts are first streamed to a staging prefix and moved with a server-side copy
+     * once the path is known.
+     * Parts up to {@code minio.upload.buffer-size} are read into memory and uploaded on {@code uploadExecutor}
+     * while the next parts are parsed, at most {@code minio.upload.concurrency} per request. Larger parts are
+     * streamed on the request thread, and so are small ones while the buffers of all requests together
+     * take up {@code minio.upload.max-buffered-size}.
+     * With {@code atomic} set, a failure of any file removes the files already written by this request.
+     * Files that would take the user over {@code resource-index.quota.max-size} fail with
+     * {@link QuotaExceededException}; their bytes are reserved through {@link QuotaService} as they are read.
+     */
+    public List<ResourceInfoResponseDto> uploadResources(HttpServletRequest request, String path,
+                                                         boolean atomic, long userId) {
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            throw new ValidationException("Upload request must be multipart/form-data");
+        }
 
-        String fullPath = PathUtils.getPathWithUserDir(path, userId);
+        String fullPath = path == null ? null : resolveUploadDirectory(path, userId);
+        String stagingDir = stagingPrefix + UUID.randomUUID() + "/";
+        Semaphore uploadSlots = new Semaphore(uploadConcurrency);
+        ObjectExistenceSnapshot existingFiles = new ObjectExistenceSnapshot(minioService, conflictListingLimit);
+        quotaService.checkAvailable();
+
+        List<PendingUpload> pendingUploads = new ArrayList<>();
+        boolean completed = false;
+        try {
+            FileItemInputIterator parts = createFileUpload().getItemIterator(request);
+            while (parts.hasNext()) {
+                FileItemInput part = parts.next();
+
+                if (part.isFormField()) {
+                    if (PATH_FIELD.equals(part.getFieldName()) && fullPath == null) {
+                        String pathValue = new String(part.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                        fullPath = resolveUploadDirectory(pathValue, userId);
+                    }
+                    continue;
+                }
+
+                if (!FILE_FIELD.equals(part.getFieldName())) {
+                    continue;
+                }
+
+                Validator.validateFilename(part.getName());
+                String fixedFilename = part.getName().replace(":", "/");
+
+                PendingUpload pendingUpload = fullPath != null
+                        ? new PendingUpload(fixedFilename, fullPath + fixedFilename, false)
+                        : new PendingUpload(fixedFilename, stagingDir + pendingUploads.size(), true);
+                pendingUpload.result = submitUpload(part, pendingUpload, uploadSlots, existingFiles, userId);
+                pendingUploads.add(pendingUpload);
+            }
 
-        checkAllFoldersExist(fullPath);
+            if (fullPath == null) {
+                throw new InvalidPathException("Path cannot be null");
+            }
+            if (pendingUploads.isEmpty()) {
+                throw new ValidationException("Uploaded files are empty");
+            }
 
-        List<ResourceInfoResponseDto> resourceInfoList = new ArrayList<>();
-        for (MultipartFile file : files) {
-            String fixedFilename = file.getOriginalFilename().replace(":", "/");
+            String targetDir = fullPath;
+            for (PendingUpload pendingUpload : pendingUploads) {
+                if (pendingUpload.staged) {
+                    // a staged file is outside the user folder, its bytes count against the quota once it is moved
+                    pendingUpload.result = pendingUpload.result.thenApplyAsync(
+                            staged -> moveStagedFile(staged, targetDir + pendingUpload.relativeName, existingFiles),
+                            uploadExecutor)
+                            .whenComplete((moved, e) -> pendingUpload.reservation.release());
+                }
+            }
 
-            String fullFilename = fullPath + fixedFilename;
-            String filePath = PathUtils.getParentDirectoryPath(fullFilename);
-            String fileName = PathUtils.extractFilenameFromPath(fullFilename);
+            List<ResourceInfoResponseDto> resourceInfoList = collectUploadResults(pendingUploads, atomic);
+            completed = true;
 
-            if (minioService.isFileExist(fullFilename)) {
-                throw new ResourceAlreadyExistsException("File '" + fileName + "' already exist in directory: " + filePath);
+            for (ResourceInfoResponseDto uploaded : resourceInfoList) {
+                previewService.schedule(uploaded.getPath() + uploaded.getName(), uploaded.getEtag(), uploaded.getSize());
             }
 
-            ResourceInfoResponseDto response = minioService.uploadFile(file, filePath, fileName);
-            resourceInfoList.add(response);
+            return resourceInfoList;
+        } catch (FileUploadException e) {
+            throw new ValidationException("Malformed multipart request: " + e.getMessage());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read upload request", e);
+        } finally {
+            awaitUploads(pendingUploads);
+            pendingUploads.forEach(pendingUpload -> pendingUpload.reservation.release());
+
+            if (!completed && atomic) {
+                removeUploadedFiles(pendingUploads);
+            }
+            if (pendingUploads.stream().anyMatch(pendingUpload -> pendingUpload.staged)) {
+                minioService.deleteFolder(stagingDir);
+            }
+        }
+    }
+
+    /**
+     * Streams the stored preview of an image file. A preview that doesn't exist yet is queued and answered
+     * with 202, the client falls back to its icon and asks again after Retry-After.
+     *
+     * @param version content ETag of the file (its download ETag without quotes) the client built the URL from,
+     *                or {@code null}; only a URL naming the current version may be cached long-term
+     */
+    public ResourceStreamResponseDto getPreview(String path, String version) {
+        Validator.validatePath(path);
+
+        if (minioService.isFolderOrThrowNotFound(path)) {
+            throw new ResourceNotFoundException("Folders have no preview: " + path);
+        }
+
+        ResourceInfoResponseDto fileInfo = minioService.getFileInfo(path);
+        String filename = PathUtils.extractFilenameFromPath(path);
+        if (!previewService.isSupported(filename, fileInfo.getSize())) {
+            throw new ResourceNotFoundException("Preview is not available for: " + filename);
         }
 
-        return resourceInfoList;
+        String previewKey = previewService.getPreviewKey(path, fileInfo.getEtag());
+        if (!minioService.isStoredObjectExist(previewKey)) {
+            previewService.schedule(path, fileInfo.getEtag(), fileInfo.getSize());
+            throw new PreviewNotReadyException("Preview is not ready yet: " + filename, PREVIEW_RETRY_AFTER_SECONDS);
+        }
+
+        return ResourceStreamResponseDto.builder()
+                .name(PathUtils.encode(filename) + ".jpg")
+                .responseBody(minioService.downloadStoredObjectAsStream(previewKey))
+                .contentType(MediaType.IMAGE_JPEG)
+                .etag(ETagUtils.forFile(fileInfo.getEtag() + "-" + previewService.getPreviewSize()))
+                .lastModified(fileInfo.getLastModified())
+                .versioned(fileInfo.getEtag().equals(version))
+                .build();
     }
 
     public void delete(String path) {
@@ -121,6 +383,13 @@ public class ResourceManagerService {
 //        String fullPath = PathUtils.getPathWithUserDir(path, userId);
         String fullPath = path;
 
+        if (resourceIndexService.isReadable()) {
+            Optional<ResourceInfoResponseDto> indexed = resourceIndexService.findResource(fullPath);
+            if (indexed.isPresent()) {
+                return indexed.get();
+            }
+        }
+
         boolean isFolder = minioService.isFolderOrThrowNotFound(fullPath);
 
         if (isFolder) {
@@ -131,52 +400,369 @@ public class ResourceManagerService {
         }
     }
 
-    public List<ResourceInfoResponseDto> getInfoList(String path, long userId) {
-        Validator.validatePath(path);
+    /**
+     * Returns one page of the folder, ordered by the byte order of the entry keys. {@code cursor} is the
+     * {@code nextCursor} of the previous page; without a limit the page holds {@code directory-listing.default-limit}
+     * entries, a page size over {@code directory-listing.max-limit} is capped.
+     */
+    public ResourceInfoPageDto getInfoList(String path, Integer limit, String cursor, long userId) {
+        ResourcePath folder = ResourcePath.inUserFolder(path, userId);
+        if (limit != null && limit < 1) {
+            throw new ValidationException("Page limit must be positive");
+        }
+        int pageLimit = limit == null ? listingDefaultLimit : Math.min(limit, listingMaxLimit);
+        String startAfter = cursor == null ? "" : decodeCursor(cursor);
 
-        String fullPath = PathUtils.getPathWithUserDir(path, userId);
+        String fullPath = folder.value();
 
-        checkAllFoldersExist(fullPath);
+        checkAllFoldersExist(folder);
 
-        return minioService.getInfoList(fullPath);
+        // one entry more than the page tells whether there is a next page
+        List<ResourceInfoResponseDto> entries = resourceIndexService.isReadable()
+                ? resourceIndexService.getInfoList(fullPath, startAfter, pageLimit + 1)
+                : minioService.getInfoList(fullPath, startAfter, pageLimit + 1);
+
+        if (entries.size() <= pageLimit) {
+            return new ResourceInfoPageDto(entries, null);
+        }
+
+        List<ResourceInfoResponseDto> page = entries.subList(0, pageLimit);
+        ResourceInfoResponseDto last = page.get(pageLimit - 1);
+        String lastKey = (last.getPath() + last.getName()).substring(fullPath.length());
+
+        return new ResourceInfoPageDto(page, encodeCursor(lastKey));
     }
 
     public ResourceInfoResponseDto createFolder(String path, long userId) {
-        Validator.validatePath(path);
-
-        String fullPath = PathUtils.getPathWithUserDir(path, userId);
+        ResourcePath folder = ResourcePath.inUserFolder(path, userId);
+        String fullPath = folder.value();
 
         if (minioService.isFileExist(fullPath)) {
             throw new ResourceAlreadyExistsException("Folder '" + "' already exists");
         }
 
-        String parentDir = PathUtils.getParentDirectoryPath(fullPath);
-        checkAllFoldersExist(parentDir);
+        checkAllFoldersExist(ResourcePath.of(folder.parentPath()));
 
         minioService.createFolder(fullPath);
 
-        String name = PathUtils.getObjectName(fullPath, true);
-        String pathToParentDir = PathUtils.getParentDirectoryPath(fullPath);
-
         return ResourceInfoResponseDto.builder()
-                .path(pathToParentDir)
-                .name(name)
+                .path(folder.parentPath())
+                .name(folder.asFolder().displayName())
                 .type(ResourceType.DIRECTORY)
                 .build();
     }
 
-    public List<ResourceInfoResponseDto> searchResources(String searchWord, long userId) {
+    /**
+     * Returns at most {@code limit} resources (capped by {@code resource-index.search.max-limit}) whose names contain
+     * the search word: exact matches first, then names starting with it, then the rest.
+     */
+    public List<ResourceInfoResponseDto> searchResources(String searchWord, Integer limit, long userId) {
         Validator.validateQuery(searchWord);
+        int resultLimit = resolveSearchLimit(limit);
+
+        if (resourceIndexService.isReadable()) {
+            return resourceIndexService.searchByName(searchWord, userId, resultLimit);
+        }
 
         String userFolderPath = PathUtils.getPathWithUserDir("", userId);
+        String lowerCaseSearchWord = searchWord.toLowerCase();
+
+        return minioService.searchByName(searchWord, userFolderPath).stream()
+                .sorted(Comparator.<ResourceInfoResponseDto>comparingInt(info -> searchRank(info, lowerCaseSearchWord))
+                        .thenComparingInt(info -> PathUtils.removeSlashFromTheEnd(info.getName()).length())
+                        .thenComparing(ResourceInfoResponseDto::getPath)
+                        .thenComparing(ResourceInfoResponseDto::getName))
+                .limit(resultLimit)
+                .toList();
+    }
+
+    /**
+     * The counters are only trusted once the index is readable; until then the usage is reported as unknown.
+     */
+    public UsageResponseDto getUsage(long userId) {
+        Long quotaBytes = quotaMaxSize.toBytes() > 0 ? quotaMaxSize.toBytes() : null;
+        if (!resourceIndexService.isReadable()) {
+            return new UsageResponseDto(null, null, quotaBytes);
+        }
+
+        Optional<ResourceMetadata> usage = resourceIndexService.getUserUsage(userId);
+
+        return new UsageResponseDto(
+                usage.map(ResourceMetadata::getSize).orElse(0L),
+                usage.map(ResourceMetadata::getObjectCount).orElse(0L),
+                quotaBytes);
+    }
+
+    /**
+     * Streams the search results as NDJSON, one resource per line, flushing each line as soon as it is found.
+     * Stops after {@code limit} results or when {@code resource-index.search.deadline} has passed since the request,
+     * the last line is a {@link SearchSummaryDto} telling whether the results were truncated.
+     * Index results come ranked, while the index isn't readable MinIO matches are sent in listing order.
+     */
+    public StreamingResponseBody streamSearchResults(String searchWord, Integer limit, long userId) {
+        Validator.validateQuery(searchWord);
+        int resultLimit = resolveSearchLimit(limit);
+        Instant deadline = Instant.now().plus(searchDeadline);
+
+        return outputStream -> {
+            int[] count = {0};
+            boolean[] limitReached = {false};
+            // like the index query, one match past the limit is looked for, so exactly limit matches aren't truncated
+            Predicate<ResourceInfoResponseDto> writeLine = info -> {
+                if (count[0] >= resultLimit) {
+                    limitReached[0] = true;
+                    return false;
+                }
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(info));
+                    outputStream.write('\n');
+                    outputStream.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+                return true;
+            };
+
+            boolean completed;
+            if (resourceIndexService.isReadable()) {
+                List<ResourceInfoResponseDto> results = resourceIndexService.searchByName(searchWord, userId,
+                        resultLimit + 1);
+                completed = true;
+                for (ResourceInfoResponseDto result : results) {
+                    if (!writeLine.test(result)) {
+                        completed = false;
+                        break;
+                    }
+                }
+            } else {
+                String userFolderPath = PathUtils.getPathWithUserDir("", userId);
+                completed = minioService.searchByName(searchWord, userFolderPath, deadline, writeLine);
+            }
+
+            String reason = completed ? null : limitReached[0] ? "limit" : "deadline";
+            outputStream.write(objectMapper.writeValueAsBytes(new SearchSummaryDto(count[0], !completed, reason)));
+            outputStream.write('\n');
+        };
+    }
+
+    private int resolveSearchLimit(Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new ValidationException("Search limit must be positive");
+        }
+
+        return limit == null ? searchDefaultLimit : Math.min(limit, searchMaxLimit);
+    }
+
+    /**
+     * Same ranking as the index search, used while the index isn't readable.
+     */
+    private int searchRank(ResourceInfoResponseDto info, String lowerCaseSearchWord) {
+        String name = PathUtils.removeSlashFromTheEnd(info.getName()).toLowerCase();
+        if (name.equals(lowerCaseSearchWord)) {
+            return 0;
+        }
+
+        return name.startsWith(lowerCaseSearchWord) ? 1 : 2;
+    }
+
+    private String encodeCursor(String lastKey) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    private String resolveUploadDirectory(String path, long userId) {
+        ResourcePath folder = ResourcePath.inUserFolder(path, userId);
+        checkAllFoldersExist(folder);
+
+        return folder.value();
+    }
+
+    /**
+     * Starts uploading one part. The part stream is only valid until the iterator moves on, so small parts
+     * are copied into memory before their upload is handed to the executor. A full buffer is reserved from
+     * {@code uploadBufferBudget} before the part is read and the unused rest is given back once its size is known;
+     * without a reservation the part is streamed. The quota reservation of a file that is not staged is released
+     * once it is uploaded, and so indexed.
+     */
+    private CompletableFuture<ResourceInfoResponseDto> submitUpload(FileItemInput part, PendingUpload pendingUpload,
+                                                                    Semaphore uploadSlots,
+                                                                    ObjectExistenceSnapshot existingFiles,
+                                                                    long userId)
+            throws IOException {
+        ResourcePath objectPath = ResourcePath.of(pendingUpload.objectPath);
+        QuotaService.Reservation reservation = quotaService.startReservation(userId, part.getName());
+        pendingUpload.reservation = reservation;
+        String filePath = objectPath.parentPath();
+        String fileName = objectPath.name();
+
+        try {
+            uploadSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Upload was interrupted", e);
+        }
+
+        int bufferLimit = (int) uploadBufferSize.toBytes();
+        int heldBytes = uploadBufferBudget.tryAcquire(bufferLimit) ? bufferLimit : 0;
+        boolean async = false;
+        try (InputStream partStream = part.getInputStream()) {
+            byte[] head = heldBytes > 0 ? partStream.readNBytes(bufferLimit + 1) : new byte[0];
+
+            if (heldBytes > 0 && head.length <= bufferLimit) {
+                uploadBufferBudget.release(heldBytes - head.length);
+                heldBytes = head.length;
+                int bufferedBytes = heldBytes;
+
+                reservation.reserve(head.length);
+                CompletableFuture<ResourceInfoResponseDto> upload = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        if (!pendingUpload.staged) {
+                            checkFileNotExist(existingFiles, pendingUpload.objectPath);
+                        }
+                        return minioService.uploadFile(new ByteArrayInputStream(head), head.length,
+                                part.getContentType(), filePath, fileName);
+                    } finally {
+                        uploadSlots.release();
+                        uploadBufferBudget.release(bufferedBytes);
+                        if (!pendingUpload.staged) {
+                            reservation.release();
+                        }
+                    }
+                }, uploadExecutor);
+                async = true;
+
+                return upload;
+            }
+
+            uploadBufferBudget.release(heldBytes);
+            heldBytes = 0;
+
+            if (!pendingUpload.staged) {
+                checkFileNotExist(existingFiles, pendingUpload.objectPath);
+            }
+            InputStream fullStream = new SequenceInputStream(new ByteArrayInputStream(head), partStream);
+            ResourceInfoResponseDto uploaded = minioService.uploadFile(reservation.limit(fullStream), -1,
+                    part.getContentType(), filePath, fileName);
+
+            return CompletableFuture.completedFuture(uploaded);
+        } catch (FileUploadSizeException e) {
+            return CompletableFuture.failedFuture(fileTooLarge(part.getName(), e));
+        } catch (RuntimeException e) {
+            FileUploadSizeException sizeException = ExceptionUtils.findCause(e, FileUploadSizeException.class);
+            if (sizeException != null) {
+                return CompletableFuture.failedFuture(fileTooLarge(part.getName(), sizeException));
+            }
+            QuotaExceededException quotaException = ExceptionUtils.findCause(e, QuotaExceededException.class);
+            return CompletableFuture.failedFuture(quotaException != null ? quotaException : e);
+        } finally {
+            if (!async) {
+                uploadSlots.release();
+                uploadBufferBudget.release(heldBytes);
+                if (!pendingUpload.staged) {
+                    reservation.release();
+                }
+            }
+        }
+    }
 
-        return minioService.searchByName(searchWord, userFolderPath);
+    private ResourceInfoResponseDto moveStagedFile(ResourceInfoResponseDto staged, String fullFilename,
+                                                   ObjectExistenceSnapshot existingFiles) {
+        checkFileNotExist(existingFiles, fullFilename);
+
+        return minioService.moveFile(staged, fullFilename);
     }
 
-    private void checkAllFoldersExist(String fullPath) {
-        List<String> pathsToAllFolders = PathUtils.getPathsForAllFolders(fullPath);
+    /**
+     * If every file failed, or the upload is atomic, the first error is rethrown as is so that the response status
+     * stays the one of a single-file upload (409, 400...). A partly successful upload reports every file.
+     */
+    private List<ResourceInfoResponseDto> collectUploadResults(List<PendingUpload> pendingUploads, boolean atomic) {
+        List<ResourceInfoResponseDto> uploaded = new ArrayList<>();
+        List<ResourceUploadResultDto> results = new ArrayList<>();
+        RuntimeException firstError = null;
+
+        for (PendingUpload pendingUpload : pendingUploads) {
+            try {
+                ResourceInfoResponseDto info = pendingUpload.result.join();
+                uploaded.add(info);
+                results.add(ResourceUploadResultDto.uploaded(info));
+            } catch (CompletionException e) {
+                RuntimeException error = e.getCause() instanceof RuntimeException cause
+                        ? cause
+                        : new RuntimeException(e.getCause());
+                log.warn("Could not upload file '{}': {}", pendingUpload.relativeName, error.getMessage());
+
+                firstError = firstError == null ? error : firstError;
+                results.add(ResourceUploadResultDto.failed(pendingUpload.relativeName, error.getMessage()));
+            }
+        }
+
+        if (firstError == null) {
+            return uploaded;
+        }
+        if (atomic || uploaded.isEmpty()) {
+            throw firstError;
+        }
+        throw new PartialUploadException(results);
+    }
 
-        for (String folderPath : pathsToAllFolders) {
+    private void awaitUploads(List<PendingUpload> pendingUploads) {
+        for (PendingUpload pendingUpload : pendingUploads) {
+            if (pendingUpload.result != null) {
+                try {
+                    pendingUpload.result.join();
+                } catch (CompletionException | CancellationException ignored) {
+                    // reported by collectUploadResults
+                }
+            }
+        }
+    }
+
+    private void removeUploadedFiles(List<PendingUpload> pendingUploads) {
+        for (PendingUpload pendingUpload : pendingUploads) {
+            if (pendingUpload.result == null || pendingUpload.result.isCompletedExceptionally()) {
+                continue;
+            }
+
+            ResourceInfoResponseDto info = pendingUpload.result.join();
+
+            try {
+                minioService.deleteFile(info.getPath() + info.getName());
+            } catch (RuntimeException e) {
+                log.error("Could not roll back uploaded file '{}': {}", info.getPath() + info.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private ValidationException fileTooLarge(String filename, FileUploadSizeException e) {
+        return new ValidationException("File '" + filename + "' size exceeds the "
+                + DataSize.ofBytes(e.getPermitted()).toMegabytes() + "MB limit");
+    }
+
+    private void checkFileNotExist(ObjectExistenceSnapshot existingFiles, String fullFilename) {
+        if (existingFiles.isFileExist(fullFilename)) {
+            throw new ResourceAlreadyExistsException("File '" + PathUtils.extractFilenameFromPath(fullFilename)
+                    + "' already exist in directory: " + PathUtils.getParentDirectoryPath(fullFilename));
+        }
+    }
+
+    private JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> createFileUpload() {
+        JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> fileUpload = new JakartaServletFileUpload<>();
+        fileUpload.setFileSizeMax(maxFileSize.toBytes());
+
+        return fileUpload;
+    }
+
+    private void checkAllFoldersExist(ResourcePath folder) {
+        for (String folderPath : folder.folderPaths()) {
             if (!minioService.isFolderExists(folderPath)) {
                 throw new ResourceNotFoundException("Folder not found: " + folderPath);
             }
@@ -184,27 +770,31 @@ public class ResourceManagerService {
     }
 
     private ResourceInfoResponseDto getFileInfo(String fullPath) {
-        String name = PathUtils.getObjectName(fullPath, false);
-        String pathToParentDir = PathUtils.getParentDirectoryPath(fullPath);
-
-        long fileSize = minioService.getFileSize(fullPath);
-
-        return ResourceInfoResponseDto.builder()
-                .path(pathToParentDir)
-                .name(name)
-                .size(fileSize)
-                .type(ResourceType.FILE)
-                .build();
+        return minioService.getFileInfo(fullPath);
     }
 
     private ResourceInfoResponseDto getFolderInfo(String fullPath) {
-        String name = PathUtils.getObjectName(fullPath, true);
-        String pathToParentDir = PathUtils.getParentDirectoryPath(fullPath);
+        ResourcePath folder = ResourcePath.of(fullPath).asFolder();
 
         return ResourceInfoResponseDto.builder()
-                .path(pathToParentDir)
-                .name(name)
+                .path(folder.parentPath())
+                .name(folder.displayName())
                 .type(ResourceType.DIRECTORY)
                 .build();
     }
+
+    private static class PendingUpload {
+
+        private final String relativeName;
+        private final String objectPath;
+        private final boolean staged;
+        private CompletableFuture<ResourceInfoResponseDto> result;
+        private QuotaService.Reservation reservation;
+
+        private PendingUpload(String relativeName, String objectPath, boolean staged) {
+            this.relativeName = relativeName;
+            this.objectPath = objectPath;
+            this.staged = staged;
+        }
+    }
 }
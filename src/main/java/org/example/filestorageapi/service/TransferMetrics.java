@@ -0,0 +1,132 @@
+package org.example.filestorageapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transfers between the clients and this service: bytes moved ({@code minio.transfer.bytes}), duration
+ * ({@code minio.transfers}), transfers in flight ({@code minio.transfers.active}) and the part of the duration
+ * spent blocked on the client socket ({@code minio.transfers.client.io}). Together with {@code minio.requests}
+ * this tells MinIO latency, client backpressure and the work in between (ZIP compression) apart.
+ */
+@Component
+public class TransferMetrics {
+
+    public static final String DOWNLOAD = "download";
+    public static final String ZIP = "zip";
+    public static final String UPLOAD = "upload";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicInteger> activeTransfers = new ConcurrentHashMap<>();
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Starts a transfer of the given type, it must be closed when the transfer ends.
+     */
+    public Transfer start(String type) {
+        AtomicInteger active = activeTransfers.computeIfAbsent(type, transferType ->
+                meterRegistry.gauge("minio.transfers.active", Tags.of("type", transferType), new AtomicInteger()));
+        active.incrementAndGet();
+
+        return new Transfer(type, active);
+    }
+
+    public final class Transfer implements AutoCloseable {
+
+        private final String type;
+        private final AtomicInteger active;
+        private final Timer.Sample sample;
+        private final Counter bytes;
+        private long clientIoNanos;
+        private boolean completed;
+
+        private Transfer(String type, AtomicInteger active) {
+            this.type = type;
+            this.active = active;
+            this.sample = Timer.start(meterRegistry);
+            this.bytes = meterRegistry.counter("minio.transfer.bytes", "type", type);
+        }
+
+        public void addBytes(long count) {
+            bytes.increment(count);
+        }
+
+        public void addClientIoTime(long nanos) {
+            clientIoNanos += nanos;
+        }
+
+        /**
+         * Wraps the stream to the client, counting the bytes written and the time blocked on writing them.
+         */
+        public OutputStream count(OutputStream clientStream) {
+            return new ProxyOutputStream(clientStream) {
+                private long writeStart;
+
+                @Override
+                protected void beforeWrite(int n) {
+                    writeStart = System.nanoTime();
+                }
+
+                @Override
+                protected void afterWrite(int n) {
+                    addClientIoTime(System.nanoTime() - writeStart);
+                    addBytes(n);
+                }
+            };
+        }
+
+        /**
+         * Wraps the stream from the client, counting the bytes read and the time blocked on reading them.
+         */
+        public InputStream count(InputStream clientStream) {
+            return new ProxyInputStream(clientStream) {
+                private long readStart;
+
+                @Override
+                protected void beforeRead(int n) {
+                    readStart = System.nanoTime();
+                }
+
+                @Override
+                protected void afterRead(int n) {
+                    addClientIoTime(System.nanoTime() - readStart);
+                    if (n > 0) {
+                        addBytes(n);
+                    }
+                }
+            };
+        }
+
+        /**
+         * Marks the transfer as successful, a transfer closed without this counts as failed.
+         */
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void close() {
+            active.decrementAndGet();
+            String outcome = completed ? "success" : "error";
+
+            sample.stop(meterRegistry.timer("minio.transfers", "type", type, "outcome", outcome));
+            meterRegistry.timer("minio.transfers.client.io", "type", type)
+                    .record(clientIoNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
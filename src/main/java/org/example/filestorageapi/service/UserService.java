@@ -7,7 +7,7 @@ import org.example.filestorageapi.repository.UserRepository;
 import org.example.filestorageapi.utils.Roles;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 
@@ -18,6 +18,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final MinioService minioService;
+    private final TransactionTemplate transactionTemplate;
 
     public Optional<User> findUserByUsername(String username) {
         return userRepository.findByUsername(username);
@@ -27,16 +28,21 @@ public class UserService {
         return userRepository.findByUsername(username).get().getId();
     }
 
-    @Transactional
+    /**
+     * The password is hashed before anything touches the database: with open-in-view a connection, once taken,
+     * is held until the request ends, so a sign-up waiting for the hashing pool would otherwise keep one busy.
+     */
     public void registerUser(User user) {
-        if (findUserByUsername(user.getUsername()).isPresent()) {
-            throw new UserAlreadyExistException("User with name '" + user.getUsername() + "' already exists.");
-        }
-
         user.setEncryptedPassword(passwordEncoder.encode(user.getEncryptedPassword()));
         user.setRoles(Roles.ROLE_USER);
 
-        userRepository.save(user);
-        minioService.createFolder("user-" + user.getId() + "-files");
+        transactionTemplate.executeWithoutResult(status -> {
+            if (findUserByUsername(user.getUsername()).isPresent()) {
+                throw new UserAlreadyExistException("User with name '" + user.getUsername() + "' already exists.");
+            }
+
+            userRepository.save(user);
+            minioService.createFolder("user-" + user.getId() + "-files");
+        });
     }
 }
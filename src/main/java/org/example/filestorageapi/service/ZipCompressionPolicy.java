@@ -0,0 +1,92 @@
+package org.example.filestorageapi.service;
+
+import org.example.filestorageapi.utils.ZipCompressionMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+/**
+ * Decides how each folder archive entry is compressed.
+ * Media, archives and other already compressed formats don't shrink under deflate, so they are stored as is
+ * and don't cost CPU. Content is recognised by file extension and, when a sample of the first bytes is
+ * available, by its byte entropy.
+ */
+@Component
+public class ZipCompressionPolicy {
+
+    // compressed or encrypted data is close to 8 bits of entropy per byte, text is usually below 5
+    private static final double INCOMPRESSIBLE_ENTROPY_BITS = 7.5;
+    private static final int MIN_ENTROPY_SAMPLE = 256;
+
+    private final int deflateLevel;
+    private final int sampleSize;
+    private final Set<String> storedExtensions;
+
+    public ZipCompressionPolicy(@Value("${minio.zip.compression-level}") int deflateLevel,
+                                @Value("${minio.zip.entropy-sample-size}") DataSize sampleSize,
+                                @Value("${minio.zip.stored-extensions}") Set<String> storedExtensions) {
+        this.deflateLevel = deflateLevel;
+        this.sampleSize = (int) sampleSize.toBytes();
+        this.storedExtensions = storedExtensions.stream()
+                .map(extension -> extension.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Number of leading bytes to read for the entropy check, 0 if the check is disabled.
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public boolean shouldStore(String entryName, byte[] sample, int sampleLength, ZipCompressionMode mode) {
+        if (mode == ZipCompressionMode.SMALL) {
+            return false;
+        }
+
+        return hasStoredExtension(entryName) || isHighEntropy(sample, Math.min(sampleLength, sampleSize));
+    }
+
+    public int getDeflateLevel(ZipCompressionMode mode) {
+        return switch (mode) {
+            case FAST -> Deflater.BEST_SPEED;
+            case SMALL -> Deflater.BEST_COMPRESSION;
+            case AUTO -> deflateLevel;
+        };
+    }
+
+    private boolean hasStoredExtension(String entryName) {
+        int dotIndex = entryName.lastIndexOf('.');
+        if (dotIndex == -1 || dotIndex < entryName.lastIndexOf('/')) {
+            return false;
+        }
+
+        return storedExtensions.contains(entryName.substring(dotIndex + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private boolean isHighEntropy(byte[] sample, int length) {
+        if (length < MIN_ENTROPY_SAMPLE) {
+            return false;
+        }
+
+        int[] counts = new int[256];
+        for (int i = 0; i < length; i++) {
+            counts[sample[i] & 0xFF]++;
+        }
+
+        double entropy = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                double probability = (double) count / length;
+                entropy -= probability * (Math.log(probability) / Math.log(2));
+            }
+        }
+
+        return entropy >= INCOMPRESSIBLE_ENTROPY_BITS;
+    }
+}
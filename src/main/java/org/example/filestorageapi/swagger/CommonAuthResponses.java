@@ -27,6 +27,28 @@ import java.lang.annotation.Target;
                         )
                 )
         ),
+        @ApiResponse(
+                responseCode = "429",
+                description = "Too many sign-in or sign-up attempts from this address, see Retry-After",
+                content = @Content(
+                        mediaType = MediaType.APPLICATION_JSON_VALUE,
+                        schema = @Schema(implementation = ErrorResponse.class),
+                        examples = @ExampleObject(
+                                value = "{\"message\":\"Too many sign-in attempts. Try again later.\"}"
+                        )
+                )
+        ),
+        @ApiResponse(
+                responseCode = "503",
+                description = "Password hashing is saturated, see Retry-After",
+                content = @Content(
+                        mediaType = MediaType.APPLICATION_JSON_VALUE,
+                        schema = @Schema(implementation = ErrorResponse.class),
+                        examples = @ExampleObject(
+                                value = "{\"message\":\"Too many sign-in requests are being processed. Try again later.\"}"
+                        )
+                )
+        ),
         @ApiResponse(
                 responseCode = "500",
                 description = "Unknown or unexpected error",
@@ -0,0 +1,55 @@
+package org.example.filestorageapi.swagger.authController;
+
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.example.filestorageapi.dto.UserResponseDto;
+import org.example.filestorageapi.errors.ErrorResponse;
+import org.springframework.http.MediaType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@ApiResponses({
+        @ApiResponse(
+                responseCode = "200",
+                description = "New access token issued, the old one is revoked",
+                content = @Content(
+                        mediaType = MediaType.APPLICATION_JSON_VALUE,
+                        schema = @Schema(implementation = UserResponseDto.class),
+                        examples = @ExampleObject(
+                                value = "{\"username\":\"johndoe\",\"accessToken\":\"eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9.eyJqdGkiOi...\",\"expiresAt\":\"2025-01-01T12:15:00Z\"}"
+                        )
+                )
+        ),
+        @ApiResponse(
+                responseCode = "401",
+                description = "Token is missing, expired or revoked, or the sign-in is too old to refresh",
+                content = @Content(
+                        mediaType = MediaType.APPLICATION_JSON_VALUE,
+                        schema = @Schema(implementation = ErrorResponse.class),
+                        examples = @ExampleObject(
+                                value = "{\"message\":\"Your session expired. Log in again.\"}"
+                        )
+                )
+        ),
+        @ApiResponse(
+                responseCode = "404",
+                description = "Token authentication is disabled",
+                content = @Content(
+                        mediaType = MediaType.APPLICATION_JSON_VALUE,
+                        schema = @Schema(implementation = ErrorResponse.class),
+                        examples = @ExampleObject(
+                                value = "{\"message\":\"Token authentication is disabled.\"}"
+                        )
+                )
+        )
+})
+public @interface RefreshTokenResponse {
+}
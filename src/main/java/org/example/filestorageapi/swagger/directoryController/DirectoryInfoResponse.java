@@ -1,5 +1,6 @@
 package org.example.filestorageapi.swagger.directoryController;
 
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -20,6 +21,18 @@ import java.lang.annotation.Target;
         @ApiResponse(
                 responseCode = "200",
                 description = "OK",
+                headers = {
+                        @Header(
+                                name = "X-Next-Cursor",
+                                description = "Cursor of the next page, absent on the last page",
+                                schema = @Schema(type = "string")
+                        ),
+                        @Header(
+                                name = "ETag",
+                                description = "Fingerprint of the page, send it in If-None-Match to get 304 when nothing changed",
+                                schema = @Schema(type = "string")
+                        )
+                },
                 content = @Content(
                         mediaType = MediaType.APPLICATION_JSON_VALUE,
                         array = @ArraySchema(schema = @Schema(implementation = ResourceInfoResponseDto.class)),
@@ -49,6 +62,11 @@ import java.lang.annotation.Target;
                                         """
                         )
                 )
+        ),
+        @ApiResponse(
+                responseCode = "304",
+                description = "Not Modified, the page matches If-None-Match",
+                content = @Content
         )
 })
 public @interface DirectoryInfoResponse {
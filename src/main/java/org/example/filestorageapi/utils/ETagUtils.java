@@ -0,0 +1,45 @@
+package org.example.filestorageapi.utils;
+
+import lombok.experimental.UtilityClass;
+import org.example.filestorageapi.dto.ResourceInfoResponseDto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+@UtilityClass
+public class ETagUtils {
+
+    /**
+     * Strong ETag of a file: its content ETag from MinIO (or blob hash) in quotes.
+     */
+    public static String forFile(String contentEtag) {
+        return contentEtag == null ? null : "\"" + contentEtag + "\"";
+    }
+
+    /**
+     * Strong ETag of a listing, a hash over every entry including the content ETag of files,
+     * so that replacing a file with one of the same size changes it too.
+     */
+    public static String forListing(List<ResourceInfoResponseDto> entries, String nextCursor) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+
+        for (ResourceInfoResponseDto entry : entries) {
+            String line = entry.getPath() + '\0' + entry.getName() + '\0' + entry.getType() + '\0'
+                    + entry.getSize() + '\0' + entry.getEtag() + '\n';
+            digest.update(line.getBytes(StandardCharsets.UTF_8));
+        }
+        if (nextCursor != null) {
+            digest.update(nextCursor.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+    }
+}
@@ -5,10 +5,15 @@ import lombok.experimental.UtilityClass;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 @UtilityClass
 public class PathUtils {
 
+    private static final String USER_DIR_PREFIX = "user-";
+    private static final String USER_DIR_SUFFIX = "-files";
+
     public static String addSlashToTheEnd(String path) {
         return path.endsWith("/") ? path : path + "/";
     }
@@ -27,74 +32,101 @@ public class PathUtils {
     }
 
     public static String getPathWithUserDir(String path, long userId) {
-        if (path.isEmpty()) {
-            return String.format("user-%d-files/", userId);
-        } else {
-            return String.format("user-%d-files/%s", userId, path);
-        }
+        return USER_DIR_PREFIX + userId + USER_DIR_SUFFIX + "/" + path;
     }
 
-    public String getParentDirectoryPath(String pathString) {
-        boolean endsWithSlash = pathString.endsWith("/");
-
-        if (endsWithSlash) {
-            pathString = pathString.substring(0, pathString.length() - 1);
+    /**
+     * Returns the id of the user whose folder contains the object, or {@code null} for objects outside user folders.
+     */
+    public static Integer getOwnerId(String objectPath) {
+        if (!objectPath.startsWith(USER_DIR_PREFIX)) {
+            return null;
         }
 
-        int lastSlashIndex = pathString.lastIndexOf("/");
+        int digitsStart = USER_DIR_PREFIX.length();
+        int digitsEnd = digitsStart;
+        while (digitsEnd < objectPath.length() && isAsciiDigit(objectPath.charAt(digitsEnd))) {
+            digitsEnd++;
+        }
+        if (digitsEnd == digitsStart || !objectPath.startsWith(USER_DIR_SUFFIX, digitsEnd)) {
+            return null;
+        }
 
-        if (lastSlashIndex == -1) {
-            return "";
+        int suffixEnd = digitsEnd + USER_DIR_SUFFIX.length();
+        if (suffixEnd != objectPath.length() && objectPath.charAt(suffixEnd) != '/') {
+            return null;
         }
 
-        return pathString.substring(0, lastSlashIndex + 1);
+        return Integer.parseInt(objectPath, digitsStart, digitsEnd, 10);
     }
 
-    public String getObjectName(String pathString, boolean isFolder) {
-        String workingPath = pathString;
-        if (workingPath.endsWith("/")) {
-            workingPath = workingPath.substring(0, workingPath.length() - 1);
-        }
+    public String getParentDirectoryPath(String pathString) {
+        int nameEnd = pathString.endsWith("/") ? pathString.length() - 1 : pathString.length();
+        int lastSlashIndex = pathString.lastIndexOf('/', nameEnd - 1);
 
-        int lastSlashIndex = workingPath.lastIndexOf("/");
+        return lastSlashIndex == -1 ? "" : pathString.substring(0, lastSlashIndex + 1);
+    }
 
-        String lastComponent;
-        if (lastSlashIndex == -1) {
-            lastComponent = workingPath;
-        } else {
-            lastComponent = workingPath.substring(lastSlashIndex + 1);
-        }
+    public String getObjectName(String pathString, boolean isFolder) {
+        boolean endsWithSlash = pathString.endsWith("/");
+        int nameEnd = endsWithSlash ? pathString.length() - 1 : pathString.length();
+        int nameStart = pathString.lastIndexOf('/', nameEnd - 1) + 1;
 
-        if (isFolder) {
-            return lastComponent + "/";
-        } else {
-            return lastComponent;
+        if (!isFolder) {
+            return pathString.substring(nameStart, nameEnd);
         }
+        return endsWithSlash ? pathString.substring(nameStart) : pathString.substring(nameStart) + "/";
     }
 
     public static String extractFilenameFromPath(String path) {
-        if (path.endsWith("/")) {
-            path = path.substring(0, path.length() - 1);
+        int nameEnd = path.endsWith("/") ? path.length() - 1 : path.length();
+
+        return path.substring(path.lastIndexOf('/', nameEnd - 1) + 1, nameEnd);
+    }
+
+    /**
+     * Returns the lower-case extension of the last path segment, or null when it has none.
+     */
+    public static String getFileExtension(String path) {
+        int dotIndex = path.lastIndexOf('.');
+        if (dotIndex == -1 || dotIndex < path.lastIndexOf('/') || dotIndex == path.length() - 1) {
+            return null;
         }
-        int lastSlashIndex = path.lastIndexOf('/');
-        if (lastSlashIndex >= 0) {
-            return path.substring(lastSlashIndex + 1);
+
+        return path.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the folders containing the object, outermost first, each with a trailing slash.
+     */
+    public static List<String> getParentFolders(String objectPath) {
+        List<String> parentFolders = new ArrayList<>();
+
+        int slashIndex = objectPath.indexOf('/');
+        while (slashIndex != -1 && slashIndex < objectPath.length() - 1) {
+            parentFolders.add(objectPath.substring(0, slashIndex + 1));
+            slashIndex = objectPath.indexOf('/', slashIndex + 1);
         }
-        return path;
+
+        return parentFolders;
     }
 
     public static ArrayList<String> getPathsForAllFolders(String path) {
-        String[] folders = path.split("/");
         ArrayList<String> result = new ArrayList<>();
 
-        StringBuilder currentPath = new StringBuilder();
-        for (int i = 0; i < folders.length; i++) {
-            if (i > 0) {
-                currentPath.append("/");
-            }
-            currentPath.append(folders[i]);
-            result.add(currentPath.toString());
+        int slashIndex = path.indexOf('/');
+        while (slashIndex != -1) {
+            result.add(path.substring(0, slashIndex));
+            slashIndex = path.indexOf('/', slashIndex + 1);
+        }
+        if (!path.endsWith("/")) {
+            result.add(path);
         }
+
         return result;
     }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
 }
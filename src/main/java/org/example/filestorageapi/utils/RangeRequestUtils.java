@@ -0,0 +1,89 @@
+package org.example.filestorageapi.utils;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+import org.example.filestorageapi.errors.RangeNotSatisfiableException;
+import org.springframework.http.HttpRange;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Log4j2
+@UtilityClass
+public class RangeRequestUtils {
+
+    /**
+     * If-Range carries the ETag or Last-Modified date of the version the client already has part of;
+     * when it isn't the current one, Range is ignored and the whole file is sent (RFC 9110, 13.1.5).
+     * ETags are compared strongly, so a weak one never matches.
+     *
+     * @param etag strong ETag of the current version, in quotes
+     */
+    public static boolean isIfRangeMatching(String ifRange, String etag, Instant lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return value.equals(etag);
+        }
+        if (lastModified == null) {
+            return false;
+        }
+
+        try {
+            Instant date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return date.getEpochSecond() == lastModified.getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses the Range header against the file size.
+     * Returns an empty list when the whole file should be sent, which includes a header that isn't valid.
+     * Ranges that start past the end are dropped; {@link RangeNotSatisfiableException} only when none is left.
+     */
+    public static List<HttpRange> parseRanges(String rangeHeader, long fileSize) {
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return List.of();
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // a Range header that can't be parsed is ignored and the whole file is sent (RFC 9110, 14.2)
+            log.debug("Ignoring invalid Range header '{}': {}", rangeHeader, e.getMessage());
+            return List.of();
+        }
+        if (ranges.isEmpty()) {
+            // "bytes=" without a range is just as invalid
+            return List.of();
+        }
+
+        List<HttpRange> satisfiableRanges = new ArrayList<>(ranges.size());
+        for (HttpRange range : ranges) {
+            // getRangeStart throws IllegalArgumentException if the range starts past the end of the file,
+            // an empty suffix range ("bytes=-0") or an empty file ends up with start > end
+            try {
+                if (range.getRangeStart(fileSize) <= range.getRangeEnd(fileSize)) {
+                    satisfiableRanges.add(range);
+                }
+            } catch (IllegalArgumentException e) {
+                log.debug("Skipping unsatisfiable range {} of {} bytes", range, fileSize);
+            }
+        }
+
+        if (satisfiableRanges.isEmpty()) {
+            throw new RangeNotSatisfiableException("Requested range not satisfiable: " + rangeHeader, fileSize);
+        }
+
+        return satisfiableRanges;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.filestorageapi.utils;
+
+import lombok.EqualsAndHashCode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An object key parsed once: the name boundaries are found up front and the parent path and name are cut
+ * out only when asked for. Keys from MinIO and the index are trusted, paths from requests go through
+ * {@link #parse} or {@link #inUserFolder}, which validate them first.
+ */
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public final class ResourcePath {
+
+    @EqualsAndHashCode.Include
+    private final String value;
+    private final boolean folder;
+    private final int nameStart;
+    private final int nameEnd;
+
+    private ResourcePath(String value) {
+        this.value = value;
+        this.folder = value.endsWith("/");
+        this.nameEnd = folder ? value.length() - 1 : value.length();
+        this.nameStart = value.lastIndexOf('/', nameEnd - 1) + 1;
+    }
+
+    public static ResourcePath of(String key) {
+        return new ResourcePath(key);
+    }
+
+    public static ResourcePath parse(String path) {
+        Validator.validatePath(path);
+        return new ResourcePath(path);
+    }
+
+    /**
+     * Validates {@code path}, relative to the user folder, and resolves it against that folder.
+     */
+    public static ResourcePath inUserFolder(String path, long userId) {
+        Validator.validatePath(path);
+        return new ResourcePath(PathUtils.getPathWithUserDir(path, userId));
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public boolean isFolder() {
+        return folder;
+    }
+
+    /**
+     * The same path read as a folder, with a trailing slash.
+     */
+    public ResourcePath asFolder() {
+        return folder ? this : new ResourcePath(value + "/");
+    }
+
+    /**
+     * Path of the containing folder with a trailing slash, or an empty string at the top level.
+     */
+    public String parentPath() {
+        return value.substring(0, nameStart);
+    }
+
+    /**
+     * Last segment without a trailing slash.
+     */
+    public String name() {
+        return value.substring(nameStart, nameEnd);
+    }
+
+    /**
+     * Last segment as shown in listings: folders keep their trailing slash.
+     */
+    public String displayName() {
+        return value.substring(nameStart);
+    }
+
+    /**
+     * Folders from the outermost one down to this path read as a folder, each with a trailing slash.
+     */
+    public List<String> folderPaths() {
+        List<String> folderPaths = new ArrayList<>();
+
+        int slashIndex = value.indexOf('/');
+        while (slashIndex != -1) {
+            folderPaths.add(value.substring(0, slashIndex + 1));
+            slashIndex = value.indexOf('/', slashIndex + 1);
+        }
+        if (!folder && !value.isEmpty()) {
+            folderPaths.add(value + "/");
+        }
+
+        return folderPaths;
+    }
+
+    /**
+     * Id of the user whose folder contains this path, or {@code null} outside user folders.
+     */
+    public Integer ownerId() {
+        return PathUtils.getOwnerId(value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -3,53 +3,68 @@ package org.example.filestorageapi.utils;
 import jakarta.validation.ValidationException;
 import lombok.experimental.UtilityClass;
 import org.example.filestorageapi.errors.InvalidPathException;
-import org.springframework.web.multipart.MultipartFile;
-
-import java.util.List;
 
 @UtilityClass
 public class Validator {
 
+    private static final int MAX_PATH_LENGTH = 200;
+    private static final int MAX_QUERY_LENGTH = 100;
+
+    private static final String DISALLOWED_PATH_CHARS = "<>:\"|?*";
+
+    // lookup tables over ASCII, every other character is allowed in paths and rejected in queries;
+    // a disallowed path character maps to its position in DISALLOWED_PATH_CHARS plus one
+    private static final int[] DISALLOWED_PATH_CHAR_RANKS = asciiTable(DISALLOWED_PATH_CHARS);
+    private static final int[] ALLOWED_QUERY_CHARS =
+            asciiTable("abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ._-");
+
     public static void validatePath(String path) {
         if (path == null) {
             throw new InvalidPathException("Path cannot be null");
         }
 
-        if (path.contains("..")) {
+        // one pass over the path; the checks are reported in the order they used to run one after another,
+        // and of several disallowed characters the one listed first in DISALLOWED_PATH_CHARS is named
+        boolean parentReference = false;
+        boolean repeatedSlash = false;
+        int disallowedRank = 0;
+        char previous = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c < DISALLOWED_PATH_CHAR_RANKS.length) {
+                int rank = DISALLOWED_PATH_CHAR_RANKS[c];
+                if (rank != 0 && (disallowedRank == 0 || rank < disallowedRank)) {
+                    disallowedRank = rank;
+                }
+            }
+            if (c == previous) {
+                parentReference |= c == '.';
+                repeatedSlash |= c == '/' || c == '\\';
+            }
+            previous = c;
+        }
+
+        if (parentReference) {
             throw new InvalidPathException("Path cannot contain parent directory references (..)");
         }
 
-        String disallowedChars = "<>:\"|?*";
-        for (char c : disallowedChars.toCharArray()) {
-            if (path.indexOf(c) >= 0) {
-                throw new InvalidPathException("Path contains disallowed character: '" + c + "'");
-            }
+        if (disallowedRank != 0) {
+            throw new InvalidPathException("Path contains disallowed character: '"
+                    + DISALLOWED_PATH_CHARS.charAt(disallowedRank - 1) + "'");
         }
 
-        if (path.length() > 200) {
+        if (path.length() > MAX_PATH_LENGTH) {
             throw new InvalidPathException("Path length exceeds maximum of 200 characters");
         }
 
-        if (path.contains("//") || path.contains("\\\\")) {
+        if (repeatedSlash) {
             throw new InvalidPathException("Path cannot have repeated slashes (// or \\\\)");
         }
     }
 
-    public static void validateFiles(List<MultipartFile> files) {
-        if (files == null || files.isEmpty()) {
-            throw new ValidationException("Uploaded files are empty");
-        }
-
-        long maxSize = 10 * 1024 * 1024; // 10MB
-
-        for (MultipartFile file : files) {
-            if (file.getOriginalFilename() == null || file.getOriginalFilename().trim().isEmpty()) {
-                throw new ValidationException("File name can't be empty or consist of spaces");
-            }
-
-            if (file.getSize() > maxSize) {
-                throw new ValidationException("File '" + file.getOriginalFilename() + "' size exceeds the 10MB limit");
-            }
+    public static void validateFilename(String filename) {
+        if (filename == null || filename.trim().isEmpty()) {
+            throw new ValidationException("File name can't be empty or consist of spaces");
         }
     }
 
@@ -58,14 +73,23 @@ public class Validator {
             throw new ValidationException("Search query cannot be empty");
         }
 
-        if (query.length() > 100) {
+        if (query.length() > MAX_QUERY_LENGTH) {
             throw new ValidationException("Search query too long (max 100 characters)");
         }
 
-        for (char c : query.toCharArray()) {
-            if (!Character.toString(c).matches("[a-zA-Z0-9 ._-]")) {
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c >= ALLOWED_QUERY_CHARS.length || ALLOWED_QUERY_CHARS[c] == 0) {
                 throw new ValidationException("Search query contains invalid character: '" + c + "'");
             }
         }
     }
+
+    private static int[] asciiTable(String chars) {
+        int[] table = new int[128];
+        for (int i = 0; i < chars.length(); i++) {
+            table[chars.charAt(i)] = i + 1;
+        }
+        return table;
+    }
 }
@@ -0,0 +1,35 @@
+package org.example.filestorageapi.utils;
+
+import jakarta.validation.ValidationException;
+
+public enum ZipCompressionMode {
+
+    /**
+     * Already compressed content is stored as is, everything else is deflated at the configured level.
+     */
+    AUTO,
+
+    /**
+     * Same detection as {@link #AUTO}, compressible content is deflated at the fastest level.
+     */
+    FAST,
+
+    /**
+     * Every entry is deflated at the best compression level.
+     */
+    SMALL;
+
+    public static ZipCompressionMode fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return AUTO;
+        }
+
+        for (ZipCompressionMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+
+        throw new ValidationException("Unknown compression mode: '" + value + "'. Allowed values: auto, fast, small");
+    }
+}
@@ -0,0 +1,11 @@
+-- one row, written when a reconciliation of the resource index completed on any node;
+-- nodes serve reads from the index once it exists, also after a restart
+CREATE TABLE resource_index_state
+(
+    id            SMALLINT                 PRIMARY KEY,
+    reconciled_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- the reconciliation pages the rows of a user in the byte order MinIO lists object keys in
+CREATE INDEX idx_resources_owner_key ON resources
+    (owner_id, (parent_path || name || CASE WHEN type = 'DIRECTORY' THEN '/' ELSE '' END) COLLATE "C");
@@ -0,0 +1,15 @@
+-- bytes held by uploads in progress, kept on the row of the user root folder next to its usage
+-- so that a reservation is a single conditional update; the reconciliation never touches it
+ALTER TABLE resources
+    ADD COLUMN reserved BIGINT NOT NULL DEFAULT 0;
+
+-- one row per file being uploaded, so that the reservations of uploads that never finished can be dropped
+CREATE TABLE quota_reservations
+(
+    id         UUID                     PRIMARY KEY,
+    owner_id   INTEGER                  NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    size       BIGINT                   NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_quota_reservations_created_at ON quota_reservations (created_at);
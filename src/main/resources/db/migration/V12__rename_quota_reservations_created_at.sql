@@ -0,0 +1,5 @@
+-- set again whenever the upload reserves more bytes, so only reservations of stalled uploads expire
+ALTER TABLE quota_reservations
+    RENAME COLUMN created_at TO touched_at;
+
+ALTER INDEX idx_quota_reservations_created_at RENAME TO idx_quota_reservations_touched_at;
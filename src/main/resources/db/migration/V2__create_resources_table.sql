@@ -0,0 +1,19 @@
+CREATE TABLE resources
+(
+    id          BIGSERIAL PRIMARY KEY,
+    owner_id    INTEGER                  NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    parent_path VARCHAR(1024)            NOT NULL,
+    name        VARCHAR(255)             NOT NULL,
+    type        VARCHAR(20)              NOT NULL,
+    size        BIGINT                   NOT NULL DEFAULT 0,
+    etag        VARCHAR(64),
+    created_at  TIMESTAMP WITH TIME ZONE NOT NULL,
+    updated_at  TIMESTAMP WITH TIME ZONE NOT NULL,
+    indexed_at  TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_resources_parent_path_name_type UNIQUE (parent_path, name, type)
+);
+
+-- directory listings and existence checks use the unique index, folder deletes match descendants by prefix
+CREATE INDEX idx_resources_parent_path_prefix ON resources (parent_path varchar_pattern_ops);
+CREATE INDEX idx_resources_owner_id ON resources (owner_id);
+CREATE INDEX idx_resources_indexed_at ON resources (indexed_at);
@@ -0,0 +1,5 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+-- trigram index over the lower-cased names of each user, answers substring searches without a scan
+CREATE INDEX idx_resources_owner_name_trgm ON resources USING gin (owner_id, LOWER(name) gin_trgm_ops);
@@ -0,0 +1,3 @@
+-- directory pages are ordered like MinIO lists keys: by the byte order of the name, folders with a trailing slash
+CREATE INDEX idx_resources_listing ON resources
+    (parent_path, (name || CASE WHEN type = 'DIRECTORY' THEN '/' ELSE '' END) COLLATE "C");
@@ -0,0 +1,3 @@
+-- for folders size and object_count are the totals of all files below them, for files object_count is unused
+ALTER TABLE resources
+    ADD COLUMN object_count BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- content-addressed blobs of the deduplicated storage mode, one row per unique SHA-256
+CREATE TABLE blobs
+(
+    hash       VARCHAR(64)              PRIMARY KEY,
+    size       BIGINT                   NOT NULL,
+    ref_count  BIGINT                   NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,10 @@
+-- one row per pointer object, so a reference is released only by the delete that removed its row;
+-- pointers written before this table existed get their rows from the next reconciliation
+CREATE TABLE blob_refs
+(
+    path       VARCHAR(1024)            PRIMARY KEY,
+    hash       VARCHAR(64)              NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_blob_refs_hash ON blob_refs (hash);
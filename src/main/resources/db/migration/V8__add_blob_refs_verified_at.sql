@@ -0,0 +1,3 @@
+-- set by the reconciliation that found the pointer of the reference in the bucket
+ALTER TABLE blob_refs
+    ADD COLUMN verified_at TIMESTAMP WITH TIME ZONE;
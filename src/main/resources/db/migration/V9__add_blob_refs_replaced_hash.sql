@@ -0,0 +1,5 @@
+-- blob the pointer referred to before an upload re-pointed it, still counted until the new pointer is written
+ALTER TABLE blob_refs
+    ADD COLUMN replaced_hash VARCHAR(64);
+
+CREATE INDEX idx_blob_refs_replaced_hash ON blob_refs (replaced_hash) WHERE replaced_hash IS NOT NULL;
@@ -0,0 +1,99 @@
+package org.example.filestorageapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.session.MapSession;
+import org.springframework.session.MapSessionRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CoalescingSessionRepositoryTest {
+
+    private static final Duration WRITE_INTERVAL = Duration.ofSeconds(60);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MapSessionRepository delegate;
+    private CoalescingSessionRepository repository;
+
+    private String sessionId;
+    private Instant lastAccessedTime;
+
+    @BeforeEach
+    void setup() {
+        delegate = spy(new MapSessionRepository(new ConcurrentHashMap<>()));
+        repository = new CoalescingSessionRepository(delegate, WRITE_INTERVAL, meterRegistry);
+
+        CoalescingSessionRepository.CoalescedSession session = repository.createSession();
+        repository.save(session);
+        sessionId = session.getId();
+        lastAccessedTime = delegate.findById(sessionId).getLastAccessedTime();
+    }
+
+    @Test
+    void testNewSession_shouldBeSaved() {
+        verify(delegate, times(1)).save(any(MapSession.class));
+        assertEquals(1, meterRegistry.counter("session.redis.operations", "operation", "save").count());
+    }
+
+    @Test
+    void testAccessWithinWriteInterval_shouldSkipSave() {
+        CoalescingSessionRepository.CoalescedSession session = repository.findById(sessionId);
+        Instant accessTime = lastAccessedTime.plus(WRITE_INTERVAL).minusSeconds(1);
+        session.setLastAccessedTime(accessTime);
+
+        repository.save(session);
+
+        verify(delegate, times(1)).save(any(MapSession.class));
+        assertEquals(1, meterRegistry.counter("session.redis.saves.skipped").count());
+        assertEquals(accessTime, session.getLastAccessedTime());
+        assertEquals(lastAccessedTime, delegate.findById(sessionId).getLastAccessedTime());
+    }
+
+    @Test
+    void testAccessAfterWriteInterval_shouldSaveAccessTime() {
+        CoalescingSessionRepository.CoalescedSession session = repository.findById(sessionId);
+        Instant accessTime = lastAccessedTime.plus(WRITE_INTERVAL);
+        session.setLastAccessedTime(accessTime);
+
+        repository.save(session);
+
+        verify(delegate, times(2)).save(any(MapSession.class));
+        assertEquals(accessTime, delegate.findById(sessionId).getLastAccessedTime());
+    }
+
+    @Test
+    void testAttributeChange_shouldSaveWithPendingAccessTime() {
+        CoalescingSessionRepository.CoalescedSession session = repository.findById(sessionId);
+        Instant accessTime = lastAccessedTime.plusSeconds(1);
+        session.setLastAccessedTime(accessTime);
+        session.setAttribute("name", "value");
+
+        repository.save(session);
+
+        MapSession stored = delegate.findById(sessionId);
+        assertEquals("value", stored.getAttribute("name"));
+        assertEquals(accessTime, stored.getLastAccessedTime());
+    }
+
+    @Test
+    void testSessionSavedOnce_shouldNotBeSavedAgainUntilChanged() {
+        CoalescingSessionRepository.CoalescedSession session = repository.findById(sessionId);
+        session.removeAttribute("name");
+
+        repository.save(session);
+        repository.save(session);
+
+        verify(delegate, times(2)).save(any(MapSession.class));
+        assertEquals(1, meterRegistry.counter("session.redis.saves.skipped").count());
+    }
+}
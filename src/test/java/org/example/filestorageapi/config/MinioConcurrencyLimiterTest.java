@@ -0,0 +1,172 @@
+package org.example.filestorageapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.example.filestorageapi.errors.StorageOverloadedException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MinioConcurrencyLimiterTest {
+
+    private static final Request GET = new Request.Builder().url("http://minio:9000/user-files/file.txt").build();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testFastResponseAtLimit_shouldRaiseLimit() throws IOException {
+        MinioConcurrencyLimiter limiter = createLimiter(2, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        limiter.intercept(respondingChain(200, "OK"));
+        assertEquals(2, limit(), "one request of two doesn't use the limit");
+
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Response> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.intercept(blockingChain(holding, release));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        await(holding);
+
+        limiter.intercept(respondingChain(200, "OK"));
+        release.countDown();
+        first.join();
+
+        assertEquals(2.5, limit(), 1e-9);
+    }
+
+    @Test
+    void testSlowDownResponse_shouldBackOff() throws IOException {
+        MinioConcurrencyLimiter limiter = createLimiter(10, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        Response response = limiter.intercept(respondingChain(503, "Slow Down"));
+
+        assertEquals(503, response.code());
+        assertEquals(9, limit(), 1e-9);
+    }
+
+    @Test
+    void testBackOff_shouldStopAtMinLimit() throws IOException {
+        MinioConcurrencyLimiter limiter = createLimiter(2, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        for (int i = 0; i < 20; i++) {
+            limiter.intercept(respondingChain(429, "Too Many Requests"));
+        }
+
+        assertEquals(1, limit(), 1e-9);
+    }
+
+    @Test
+    void testSlowResponse_shouldBackOff() throws IOException {
+        MinioConcurrencyLimiter limiter = createLimiter(10, Duration.ZERO, Duration.ofSeconds(1));
+
+        limiter.intercept(respondingChain(200, "OK"));
+
+        assertEquals(9, limit(), 1e-9);
+    }
+
+    @Test
+    void testIoError_shouldBackOffAndRethrow() throws IOException {
+        MinioConcurrencyLimiter limiter = createLimiter(10, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(GET);
+        when(chain.proceed(any())).thenThrow(new SocketTimeoutException("timeout"));
+
+        assertThrows(SocketTimeoutException.class, () -> limiter.intercept(chain));
+        assertEquals(9, limit(), 1e-9);
+
+        // the slot was given back
+        assertEquals(200, limiter.intercept(respondingChain(200, "OK")).code());
+    }
+
+    @Test
+    void testNoSlotWithinMaxWait_shouldReject() throws IOException {
+        MinioConcurrencyLimiter limiter = createLimiter(1, Duration.ofMinutes(1), Duration.ofMillis(50));
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Response> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.intercept(blockingChain(holding, release));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        await(holding);
+
+        StorageOverloadedException e = assertThrows(StorageOverloadedException.class,
+                () -> limiter.intercept(respondingChain(200, "OK")));
+
+        assertEquals(1, e.getRetryAfterSeconds());
+        assertEquals(1, meterRegistry.counter("minio.limiter.rejected").count());
+
+        release.countDown();
+        first.join();
+        assertEquals(200, limiter.intercept(respondingChain(200, "OK")).code());
+    }
+
+    private MinioConcurrencyLimiter createLimiter(int initialLimit, Duration latencyThreshold, Duration maxWait) {
+        return new MinioConcurrencyLimiter(initialLimit, 1, 100, latencyThreshold, 0.9, maxWait, meterRegistry);
+    }
+
+    private double limit() {
+        return meterRegistry.get("minio.limiter.limit").gauge().value();
+    }
+
+    private static Interceptor.Chain respondingChain(int code, String message) throws IOException {
+        Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(GET);
+        when(chain.proceed(any())).thenReturn(response(code, message));
+        return chain;
+    }
+
+    /**
+     * A chain that holds its slot until {@code release} is counted down.
+     */
+    private static Interceptor.Chain blockingChain(CountDownLatch holding, CountDownLatch release) throws IOException {
+        Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(GET);
+        when(chain.proceed(any())).thenAnswer(invocation -> {
+            holding.countDown();
+            await(release);
+            return response(200, "OK");
+        });
+        return chain;
+    }
+
+    private static Response response(int code, String message) {
+        return new Response.Builder()
+                .request(GET)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message(message)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.filestorageapi.controller;
+
+import org.example.filestorageapi.dto.ResourceStreamResponseDto;
+import org.example.filestorageapi.errors.GlobalExceptionHandler;
+import org.example.filestorageapi.errors.PreviewNotReadyException;
+import org.example.filestorageapi.errors.RangeNotSatisfiableException;
+import org.example.filestorageapi.service.NonBlockingDownloadWriter;
+import org.example.filestorageapi.service.ResourceManagerService;
+import org.example.filestorageapi.utils.ZipCompressionMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ResourceControllerTest {
+
+    private static final String PATH = "user-1-files/notes.txt";
+    private static final String ETAG = "\"5d41402abc4b2a76b9719d911017c592\"";
+    private static final Instant LAST_MODIFIED = Instant.parse("2025-03-07T10:15:30Z");
+
+    private final ResourceManagerService resourceManagerService = mock(ResourceManagerService.class);
+    private final AtomicBoolean bodyWritten = new AtomicBoolean();
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() {
+        ResourceController controller = new ResourceController(resourceManagerService,
+                mock(NonBlockingDownloadWriter.class));
+        ReflectionTestUtils.setField(controller, "previewCacheMaxAge", Duration.ofDays(7));
+
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void testMatchingIfNoneMatch_shouldAnswer304WithoutOpeningFile() throws Exception {
+        when(resourceManagerService.downloadResourceAsStream(eq(PATH), isNull(), isNull(), any()))
+                .thenReturn(fileResponse(HttpStatus.OK));
+
+        mockMvc.perform(get("/api/resource/download").param("path", PATH)
+                        .header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(content().bytes(new byte[0]));
+
+        assertFalse(bodyWritten.get());
+    }
+
+    @Test
+    void testUnmodifiedSince_shouldAnswer304() throws Exception {
+        when(resourceManagerService.downloadResourceAsStream(eq(PATH), isNull(), isNull(), any()))
+                .thenReturn(fileResponse(HttpStatus.OK));
+
+        mockMvc.perform(get("/api/resource/download").param("path", PATH)
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 07 Mar 2025 10:15:30 GMT"))
+                .andExpect(status().isNotModified());
+
+        assertFalse(bodyWritten.get());
+    }
+
+    @Test
+    void testChangedFile_shouldAnswer200WithValidators() throws Exception {
+        when(resourceManagerService.downloadResourceAsStream(eq(PATH), isNull(), isNull(), any()))
+                .thenReturn(fileResponse(HttpStatus.OK));
+
+        MvcResult result = mockMvc.perform(get("/api/resource/download").param("path", PATH)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"outdated\""))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().string("hello"));
+    }
+
+    @Test
+    void testRangeAndIfRange_shouldBePassedToService() throws Exception {
+        when(resourceManagerService.downloadResourceAsStream(PATH, "bytes=1-3", ETAG, ZipCompressionMode.AUTO))
+                .thenReturn(fileResponse(HttpStatus.PARTIAL_CONTENT));
+
+        MvcResult result = mockMvc.perform(get("/api/resource/download").param("path", PATH)
+                        .header(HttpHeaders.RANGE, "bytes=1-3")
+                        .header(HttpHeaders.IF_RANGE, ETAG))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-3/5"));
+    }
+
+    @Test
+    void testUnsatisfiableRange_shouldAnswer416() throws Exception {
+        when(resourceManagerService.downloadResourceAsStream(eq(PATH), eq("bytes=10-"), isNull(), any()))
+                .thenThrow(new RangeNotSatisfiableException("Requested range not satisfiable: bytes=10-", 5));
+
+        mockMvc.perform(get("/api/resource/download").param("path", PATH)
+                        .header(HttpHeaders.RANGE, "bytes=10-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */5"));
+    }
+
+    @Test
+    void testVersionedPreview_shouldBeCachedLongTerm() throws Exception {
+        when(resourceManagerService.getPreview(PATH, "5d41402abc4b2a76b9719d911017c592"))
+                .thenReturn(previewResponse(true));
+
+        mockMvc.perform(get("/api/resource/preview").param("path", PATH)
+                        .param("v", "5d41402abc4b2a76b9719d911017c592"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=604800, private, immutable"));
+    }
+
+    @Test
+    void testUnversionedPreview_shouldBeRevalidated() throws Exception {
+        when(resourceManagerService.getPreview(PATH, null)).thenReturn(previewResponse(false));
+
+        mockMvc.perform(get("/api/resource/preview").param("path", PATH))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG));
+    }
+
+    @Test
+    void testPreviewNotReady_shouldAnswer202WithRetryAfter() throws Exception {
+        when(resourceManagerService.getPreview(PATH, null))
+                .thenThrow(new PreviewNotReadyException("Preview is not ready yet: notes.jpg", 2));
+
+        mockMvc.perform(get("/api/resource/preview").param("path", PATH))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
+    }
+
+    private ResourceStreamResponseDto previewResponse(boolean versioned) {
+        return ResourceStreamResponseDto.builder()
+                .name("notes.jpg.jpg")
+                .responseBody(outputStream -> outputStream.write(new byte[]{1, 2, 3}))
+                .contentType(MediaType.IMAGE_JPEG)
+                .etag(ETAG)
+                .lastModified(LAST_MODIFIED)
+                .versioned(versioned)
+                .build();
+    }
+
+    private ResourceStreamResponseDto fileResponse(HttpStatus status) {
+        boolean partial = status == HttpStatus.PARTIAL_CONTENT;
+
+        return ResourceStreamResponseDto.builder()
+                .name("notes.txt")
+                .responseBody(outputStream -> {
+                    bodyWritten.set(true);
+                    outputStream.write((partial ? "ell" : "hello").getBytes(StandardCharsets.UTF_8));
+                })
+                .status(status)
+                .contentLength(partial ? 3L : 5L)
+                .contentRange(partial ? "bytes 1-3/5" : null)
+                .rangeSupported(true)
+                .etag(ETAG)
+                .lastModified(LAST_MODIFIED)
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.filestorageapi.integrationTests;
+
+import org.example.filestorageapi.entity.Blob;
+import org.example.filestorageapi.entity.BlobRef;
+import org.example.filestorageapi.repository.BlobRefRepository;
+import org.example.filestorageapi.repository.BlobRepository;
+import org.example.filestorageapi.service.BlobReferenceService;
+import org.example.filestorageapi.service.BlobReferenceService.Pointer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlobReferenceServiceIT extends AbstractIntegrationTest {
+
+    private static final String FIRST_HASH = "a".repeat(64);
+    private static final String SECOND_HASH = "b".repeat(64);
+    private static final String THIRD_HASH = "c".repeat(64);
+
+    @Autowired
+    private BlobReferenceService blobReferenceService;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private BlobRefRepository blobRefRepository;
+
+    private final List<String> removedBlobs = new ArrayList<>();
+    private Duration referenceGrace;
+
+    @BeforeEach
+    void setup() {
+        blobRefRepository.deleteAll();
+        blobRepository.deleteAll();
+        referenceGrace = (Duration) ReflectionTestUtils.getField(blobReferenceService, "referenceGrace");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(blobReferenceService, "referenceGrace", referenceGrace);
+    }
+
+    @Test
+    void testAddAndRemoveSamePath_shouldRemoveBlob() {
+        blobReferenceService.addReference("user-1-files/a.txt", FIRST_HASH, 5);
+        blobReferenceService.addReference("user-1-files/a.txt", FIRST_HASH, 5);
+        assertEquals(1, refCount(FIRST_HASH));
+
+        blobReferenceService.removeReference("user-1-files/a.txt", removedBlobs::add);
+
+        assertFalse(blobRepository.existsById(FIRST_HASH));
+        assertFalse(blobRefRepository.existsById("user-1-files/a.txt"));
+        assertEquals(List.of(FIRST_HASH), removedBlobs);
+    }
+
+    @Test
+    void testDoubleRemove_shouldDecrementOnce() {
+        blobReferenceService.addReference("user-1-files/a.txt", FIRST_HASH, 5);
+        blobReferenceService.addReference("user-1-files/b.txt", FIRST_HASH, 5);
+
+        blobReferenceService.removeReference("user-1-files/a.txt", removedBlobs::add);
+        blobReferenceService.removeReference("user-1-files/a.txt", removedBlobs::add);
+
+        assertEquals(1, refCount(FIRST_HASH));
+        assertTrue(removedBlobs.isEmpty());
+    }
+
+    @Test
+    void testRepointConfirmed_shouldReleaseReplacedBlobAfterPointerWrite() {
+        blobReferenceService.addReference("user-1-files/a.txt", FIRST_HASH, 5);
+        blobReferenceService.addReference("user-1-files/b.txt", FIRST_HASH, 5);
+
+        blobReferenceService.addReference("user-1-files/a.txt", SECOND_HASH, 7);
+        assertEquals(2, refCount(FIRST_HASH));
+        assertEquals(1, refCount(SECOND_HASH));
+
+        blobReferenceService.confirmReference("user-1-files/a.txt", SECOND_HASH, removedBlobs::add);
+
+        assertEquals(1, refCount(FIRST_HASH));
+        assertEquals(1, refCount(SECOND_HASH));
+        assertNull(blobRefRepository.findById("user-1-files/a.txt").orElseThrow().getReplacedHash());
+        assertTrue(removedBlobs.isEmpty());
+    }
+
+    @Test
+    void testRepointOfLastReference_shouldRemoveReplacedBlobOnConfirm() {
+        blobReferenceService.addReference("user-1-files/a.txt", FIRST_HASH, 5);
+        blobReferenceService.addReference("user-1-files/a.txt", SECOND_HASH, 7);
+
+        blobReferenceService.confirmReference("user-1-files/a.txt", SECOND_HASH, removedBlobs::add);
+
+        assertFalse(blobRepository.existsById(FIRST_HASH));
+        assertEquals(List.of(FIRST_HASH), removedBlobs);
+    }
+
+    @Test
+    void testRepointReverted_shouldKeepReplacedBlob() {
+        blobReferenceService.addReference("user-1-files/a.txt", FIRST_HASH, 5);
+        blobReferenceService.addReference("user-1-files/a.txt", SECOND_HASH, 7);
+
+        blobReferenceService.revertReference("user-1-files/a.txt", SECOND_HASH, removedBlobs::add);
+
+        BlobRef ref = blobRefRepository.findById("user-1-files/a.txt").orElseThrow();
+        assertEquals(FIRST_HASH, ref.getHash());
+        assertNull(ref.getReplacedHash());
+        assertEquals(1, refCount(FIRST_HASH));
+        assertFalse(blobRepository.existsById(SECOND_HASH));
+        assertEquals(List.of(SECOND_HASH), removedBlobs);
+    }
+
+    @Test
+    void testRemoveOfRepointedPath_shouldReleaseBothBlobs() {
+        blobReferenceService.addReference("user-1-files/a.txt", FIRST_HASH, 5);
+        blobReferenceService.addReference("user-1-files/a.txt", SECOND_HASH, 7);
+
+        blobReferenceService.removeReference("user-1-files/a.txt", removedBlobs::add);
+
+        assertEquals(0, blobRepository.count());
+        assertEquals(List.of(SECOND_HASH, FIRST_HASH), removedBlobs);
+    }
+
+    @Test
+    void testRecountAfterCrash_shouldRestoreCountsFromPointers() {
+        blobReferenceService.addReference("user-1-files/a.txt", FIRST_HASH, 5);
+        blobReferenceService.addReference("user-1-files/b.txt", FIRST_HASH, 5);
+        // crashed after writing the new pointer of a.txt, before confirming it
+        blobReferenceService.addReference("user-1-files/a.txt", SECOND_HASH, 7);
+        // crashed between counting a reference and writing its row
+        blobRepository.save(new Blob(THIRD_HASH, 9, 2, Instant.now()));
+        // pointer deleted by hand, its reference is older than the grace
+        blobReferenceService.addReference("user-1-files/c.txt", FIRST_HASH, 5);
+        ReflectionTestUtils.setField(blobReferenceService, "referenceGrace", Duration.ZERO);
+
+        Instant reconcileStart = Instant.now();
+        blobReferenceService.verifyReferences(List.of(
+                new Pointer("user-1-files/a.txt", SECOND_HASH, 7),
+                new Pointer("user-1-files/b.txt", FIRST_HASH, 5)), reconcileStart);
+        int corrected = blobReferenceService.recount(reconcileStart, removedBlobs::add);
+
+        assertEquals(2, corrected);
+        assertEquals(1, refCount(FIRST_HASH));
+        assertEquals(1, refCount(SECOND_HASH));
+        assertFalse(blobRepository.existsById(THIRD_HASH));
+        assertFalse(blobRefRepository.existsById("user-1-files/c.txt"));
+        assertEquals(List.of(THIRD_HASH), removedBlobs);
+    }
+
+    private long refCount(String hash) {
+        return blobRepository.findById(hash).map(Blob::getRefCount).orElse(0L);
+    }
+}
@@ -0,0 +1,207 @@
+package org.example.filestorageapi.integrationTests;
+
+import org.example.filestorageapi.entity.ResourceMetadata;
+import org.example.filestorageapi.errors.QuotaExceededException;
+import org.example.filestorageapi.errors.QuotaUnavailableException;
+import org.example.filestorageapi.repository.QuotaReservationRepository;
+import org.example.filestorageapi.repository.ResourceIndexStateRepository;
+import org.example.filestorageapi.repository.ResourceMetadataRepository;
+import org.example.filestorageapi.service.QuotaService;
+import org.example.filestorageapi.service.ResourceIndexService;
+import org.example.filestorageapi.utils.ResourceType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class QuotaServiceIT extends AbstractIntegrationTest {
+
+    private static final int OWNER_ID = 9001;
+    private static final String ROOT_NAME = "user-" + OWNER_ID + "-files";
+
+    @Autowired
+    private QuotaService quotaService;
+
+    @Autowired
+    private ResourceIndexService resourceIndexService;
+
+    @Autowired
+    private ResourceMetadataRepository resourceMetadataRepository;
+
+    @Autowired
+    private QuotaReservationRepository quotaReservationRepository;
+
+    @Autowired
+    private ResourceIndexStateRepository resourceIndexStateRepository;
+
+    private DataSize maxSize;
+    private DataSize reservationChunk;
+    private Duration reservationTimeout;
+
+    @BeforeEach
+    void setup() {
+        quotaReservationRepository.deleteAll();
+        resourceMetadataRepository.deleteAll();
+        resourceIndexStateRepository.markReconciled(Instant.now());
+
+        maxSize = (DataSize) ReflectionTestUtils.getField(quotaService, "maxSize");
+        reservationChunk = (DataSize) ReflectionTestUtils.getField(quotaService, "reservationChunk");
+        reservationTimeout = (Duration) ReflectionTestUtils.getField(quotaService, "reservationTimeout");
+        ReflectionTestUtils.setField(quotaService, "maxSize", DataSize.ofBytes(100));
+        ReflectionTestUtils.setField(quotaService, "reservationChunk", DataSize.ofBytes(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(quotaService, "maxSize", maxSize);
+        ReflectionTestUtils.setField(quotaService, "reservationChunk", reservationChunk);
+        ReflectionTestUtils.setField(quotaService, "reservationTimeout", reservationTimeout);
+    }
+
+    @Test
+    void testReserve_shouldCountUsageAndOtherReservations() {
+        createRoot(40);
+        quotaService.startReservation(OWNER_ID, "a.bin").reserve(30);
+
+        QuotaService.Reservation second = quotaService.startReservation(OWNER_ID, "b.bin");
+        assertThrows(QuotaExceededException.class, () -> second.reserve(31));
+        second.reserve(30);
+
+        assertEquals(60, root().getReserved());
+    }
+
+    @Test
+    void testConcurrentReservations_shouldNotExceedQuota() throws Exception {
+        createRoot(0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> {
+                    try {
+                        quotaService.startReservation(OWNER_ID, "file.bin").reserve(10);
+                        return true;
+                    } catch (QuotaExceededException e) {
+                        return false;
+                    }
+                }));
+            }
+
+            int reservedCount = 0;
+            for (Future<Boolean> result : results) {
+                reservedCount += result.get() ? 1 : 0;
+            }
+            assertEquals(10, reservedCount);
+            assertEquals(100, root().getReserved());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRelease_shouldGiveBytesBackOnce() {
+        createRoot(0);
+        QuotaService.Reservation first = quotaService.startReservation(OWNER_ID, "a.bin");
+        first.reserve(50);
+        quotaService.startReservation(OWNER_ID, "b.bin").reserve(20);
+
+        first.release();
+        first.release();
+
+        assertEquals(20, root().getReserved());
+        assertEquals(1, quotaReservationRepository.count());
+    }
+
+    @Test
+    void testExpiredReservations_shouldBeReleased() {
+        createRoot(0);
+        quotaService.startReservation(OWNER_ID, "a.bin").reserve(50);
+
+        ReflectionTestUtils.setField(quotaService, "reservationTimeout", Duration.ZERO);
+        quotaService.releaseExpiredReservations();
+
+        assertEquals(0, root().getReserved());
+        assertEquals(0, quotaReservationRepository.count());
+    }
+
+    @Test
+    void testGrowingReservation_shouldNotExpire() {
+        createRoot(0);
+        QuotaService.Reservation reservation = quotaService.startReservation(OWNER_ID, "large.bin");
+        reservation.reserve(30);
+        quotaReservationRepository.findAll().forEach(row -> {
+            row.setTouchedAt(Instant.now().minus(Duration.ofHours(2)));
+            quotaReservationRepository.save(row);
+        });
+
+        reservation.reserve(30);
+        ReflectionTestUtils.setField(quotaService, "reservationTimeout", Duration.ofHours(1));
+        quotaService.releaseExpiredReservations();
+
+        assertEquals(60, root().getReserved());
+        assertEquals(1, quotaReservationRepository.count());
+    }
+
+    @Test
+    void testReserveWithoutRootRow_shouldCreateIt() {
+        quotaService.startReservation(OWNER_ID, "a.bin").reserve(10);
+
+        assertEquals(10, root().getReserved());
+        assertEquals(0, root().getSize());
+    }
+
+    @Test
+    void testLimitedStream_shouldReserveInChunksUpToTheQuota() throws Exception {
+        createRoot(25);
+        QuotaService.Reservation fitting = quotaService.startReservation(OWNER_ID, "fits.bin");
+        try (InputStream stream = fitting.limit(new ByteArrayInputStream(new byte[75]))) {
+            stream.readAllBytes();
+        }
+        assertEquals(75, root().getReserved());
+        fitting.release();
+
+        QuotaService.Reservation tooLarge = quotaService.startReservation(OWNER_ID, "too-large.bin");
+        try (InputStream stream = tooLarge.limit(new ByteArrayInputStream(new byte[76]))) {
+            assertThrows(QuotaExceededException.class, stream::readAllBytes);
+        }
+        tooLarge.release();
+        assertEquals(0, root().getReserved());
+    }
+
+    @Test
+    void testQuotaBeforeReconciliation_shouldBeUnavailable() {
+        resourceIndexStateRepository.deleteAll();
+        ReflectionTestUtils.setField(resourceIndexService, "reconciled", false);
+        ReflectionTestUtils.setField(resourceIndexService, "nextStateCheck", 0L);
+        try {
+            assertThrows(QuotaUnavailableException.class, () -> quotaService.checkAvailable());
+        } finally {
+            resourceIndexService.markReconciled();
+        }
+    }
+
+    private void createRoot(long usedBytes) {
+        Instant now = Instant.now();
+        resourceMetadataRepository.upsertFolder(OWNER_ID, "", ROOT_NAME, usedBytes, 1, now, now);
+    }
+
+    private ResourceMetadata root() {
+        return resourceMetadataRepository.findByParentPathAndNameAndType("", ROOT_NAME, ResourceType.DIRECTORY)
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.filestorageapi.integrationTests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.filestorageapi.entity.User;
+import org.example.filestorageapi.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "auth.token.enabled=true",
+        "auth.token.secret=integration-test-secret-of-32-bytes!",
+        "auth.login.throttle.max-attempts=0"
+})
+public class TokenAuthenticationIT extends AbstractIntegrationTest {
+
+    private static final String PASSWORD = "secret";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String username;
+
+    @BeforeEach
+    void setup() {
+        username = "token-" + UUID.randomUUID().toString().substring(0, 8);
+        userService.registerUser(User.builder()
+                .username(username)
+                .encryptedPassword(PASSWORD)
+                .build());
+    }
+
+    @Test
+    void testSignIn_shouldReturnTokenThatAuthenticatesRequests() throws Exception {
+        String token = signIn();
+
+        mockMvc.perform(get("/api/user/me").header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value(username));
+    }
+
+    @Test
+    void testSessionSignIn_shouldStillCreateSession() throws Exception {
+        String body = objectMapper.writeValueAsString(new SignInRequest(username, PASSWORD));
+
+        mockMvc.perform(post("/api/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(cookie().exists("SESSION"))
+                .andExpect(jsonPath("$.accessToken").exists());
+    }
+
+    @Test
+    void testForgedToken_shouldBeAnsweredWith401() throws Exception {
+        String token = signIn();
+
+        mockMvc.perform(get("/api/user/me").header(HttpHeaders.AUTHORIZATION, bearer(token + "x")))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testRefresh_shouldReplaceTokenAndRejectReplay() throws Exception {
+        String token = signIn();
+
+        String refreshed = readToken(mockMvc.perform(post("/api/auth/refresh")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertNotEquals(token, refreshed);
+
+        mockMvc.perform(get("/api/user/me").header(HttpHeaders.AUTHORIZATION, bearer(refreshed)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/user/me").header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/auth/refresh").header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testSignOut_shouldRevokeToken() throws Exception {
+        String token = signIn();
+
+        mockMvc.perform(post("/api/auth/sign-out").header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/user/me").header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/auth/refresh").header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private String signIn() throws Exception {
+        String body = objectMapper.writeValueAsString(new SignInRequest(username, PASSWORD));
+
+        return readToken(mockMvc.perform(post("/api/auth/sign-in")
+                        .param("token", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(cookie().doesNotExist("SESSION"))
+                .andExpect(jsonPath("$.username").value(username))
+                .andReturn());
+    }
+
+    private String readToken(MvcResult result) throws Exception {
+        JsonNode response = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertNotNull(response.get("expiresAt"));
+        assertEquals(3, response.get("accessToken").asText().split("\\.").length);
+
+        return response.get("accessToken").asText();
+    }
+
+    private static String bearer(String token) {
+        return "Bearer " + token;
+    }
+
+    private record SignInRequest(String username, String password) {
+    }
+}
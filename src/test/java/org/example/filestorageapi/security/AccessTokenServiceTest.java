@@ -0,0 +1,159 @@
+package org.example.filestorageapi.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.filestorageapi.errors.SessionExpiredException;
+import org.example.filestorageapi.utils.Roles;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AccessTokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final TokenDenyList denyList = mock(TokenDenyList.class);
+    private final CustomUserDetails userDetails = new CustomUserDetails(42L, "johndoe", EnumSet.of(Roles.ROLE_USER));
+
+    private AccessTokenService accessTokenService;
+
+    @BeforeEach
+    void setup() throws GeneralSecurityException {
+        accessTokenService = createService(SECRET, Duration.ofMinutes(15));
+        when(denyList.deny(anyString(), anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void testIssuedToken_shouldVerifyWithItsClaims() {
+        AccessTokenService.IssuedToken token = accessTokenService.issue(userDetails);
+
+        AccessTokenClaims claims = accessTokenService.verify(token.value());
+
+        assertNotNull(claims);
+        assertEquals(42L, claims.getUserId());
+        assertEquals("johndoe", claims.getUsername());
+        assertEquals(Set.of(Roles.ROLE_USER), claims.getRoles());
+        assertEquals(token.expiresAt().getEpochSecond(), claims.getExpiresAt());
+        assertEquals(claims.getIssuedAt() + Duration.ofMinutes(15).toSeconds(), claims.getExpiresAt());
+        assertEquals(claims.getIssuedAt(), claims.getAuthTime());
+    }
+
+    @Test
+    void testTamperedPayload_shouldBeRejected() {
+        String[] parts = accessTokenService.issue(userDetails).value().split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                .replace("\"sub\":42", "\"sub\":1");
+        String forged = parts[0] + "."
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+                + "." + parts[2];
+
+        assertNull(accessTokenService.verify(forged));
+    }
+
+    @Test
+    void testTamperedSignature_shouldBeRejected() {
+        String token = accessTokenService.issue(userDetails).value();
+        int position = token.length() - 10;
+        char replaced = token.charAt(position) == 'A' ? 'B' : 'A';
+        String forged = token.substring(0, position) + replaced + token.substring(position + 1);
+
+        assertNull(accessTokenService.verify(forged));
+    }
+
+    @Test
+    void testTokenOfAnotherSecret_shouldBeRejected() throws GeneralSecurityException {
+        AccessTokenService otherService = createService("fedcba9876543210fedcba9876543210", Duration.ofMinutes(15));
+
+        assertNull(accessTokenService.verify(otherService.issue(userDetails).value()));
+    }
+
+    @Test
+    void testExpiredToken_shouldBeRejected() throws GeneralSecurityException {
+        AccessTokenService expiringService = createService(SECRET, Duration.ZERO);
+
+        assertNull(accessTokenService.verify(expiringService.issue(userDetails).value()));
+    }
+
+    @Test
+    void testDeniedToken_shouldBeRejected() {
+        String token = accessTokenService.issue(userDetails).value();
+        String tokenId = accessTokenService.verify(token).getTokenId();
+
+        when(denyList.isDenied(tokenId)).thenReturn(true);
+
+        assertNull(accessTokenService.verify(token));
+    }
+
+    @Test
+    void testMalformedToken_shouldBeRejected() {
+        assertNull(accessTokenService.verify(""));
+        assertNull(accessTokenService.verify("not-a-token"));
+        assertNull(accessTokenService.verify("a.b.c"));
+        assertNull(accessTokenService.verify(accessTokenService.issue(userDetails).value() + ".extra"));
+    }
+
+    @Test
+    void testRefresh_shouldDenyOldTokenAndKeepSignInTime() {
+        AccessTokenClaims claims = accessTokenService.verify(accessTokenService.issue(userDetails).value());
+
+        AccessTokenClaims refreshed = accessTokenService.verify(accessTokenService.refresh(claims).value());
+
+        verify(denyList).deny(claims.getTokenId(), claims.getExpiresAt());
+        assertNotNull(refreshed);
+        assertNotEquals(claims.getTokenId(), refreshed.getTokenId());
+        assertEquals(claims.getAuthTime(), refreshed.getAuthTime());
+    }
+
+    @Test
+    void testRefreshOfRevokedToken_shouldThrowSessionExpired() {
+        AccessTokenClaims claims = accessTokenService.verify(accessTokenService.issue(userDetails).value());
+        when(denyList.deny(eq(claims.getTokenId()), anyLong())).thenReturn(false);
+
+        assertThrows(SessionExpiredException.class, () -> accessTokenService.refresh(claims));
+    }
+
+    @Test
+    void testRefreshAfterMaxLifetime_shouldThrowSessionExpired() {
+        long now = Instant.now().getEpochSecond();
+        AccessTokenClaims claims = new AccessTokenClaims("token-id", 42L, "johndoe", Set.of(Roles.ROLE_USER),
+                now, now + 60, now - Duration.ofHours(12).toSeconds());
+
+        assertThrows(SessionExpiredException.class, () -> accessTokenService.refresh(claims));
+        verify(denyList, never()).deny(anyString(), anyLong());
+    }
+
+    @Test
+    void testShortSecret_shouldFailStartup() {
+        assertThrows(IllegalStateException.class, () -> createService("too-short", Duration.ofMinutes(15)));
+    }
+
+    private AccessTokenService createService(String secret, Duration ttl) throws GeneralSecurityException {
+        AccessTokenService service = new AccessTokenService(new ObjectMapper(), denyList);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "secret", secret);
+        ReflectionTestUtils.setField(service, "ttl", ttl);
+        ReflectionTestUtils.setField(service, "maxLifetime", Duration.ofHours(12));
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.filestorageapi.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.filestorageapi.errors.PasswordHashingOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundedPasswordEncoderTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ThreadPoolExecutor executor =
+            new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+    private final CountDownLatch running = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testFreePool_shouldReturnDelegateResult() {
+        BoundedPasswordEncoder encoder = createEncoder(new PrefixEncoder(), Duration.ofSeconds(5));
+
+        assertEquals("hashed:secret", encoder.encode("secret"));
+        assertTrue(encoder.matches("secret", "hashed:secret"));
+        assertEquals(1, meterRegistry.timer("auth.password.hash", "operation", "encode").count());
+    }
+
+    @Test
+    void testFullQueue_shouldRejectImmediately() throws InterruptedException {
+        BoundedPasswordEncoder encoder = createEncoder(new BlockingEncoder(), Duration.ofSeconds(5));
+        CompletableFuture.runAsync(() -> encoder.encode("first"));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture.runAsync(() -> encoder.encode("queued"));
+        awaitQueued();
+
+        long start = System.nanoTime();
+        PasswordHashingOverloadedException e = assertThrows(PasswordHashingOverloadedException.class,
+                () -> encoder.matches("rejected", "hash"));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(5, e.getRetryAfterSeconds());
+        assertEquals(1, meterRegistry.counter("auth.password.rejected").count());
+    }
+
+    @Test
+    void testHashNotDoneWithinMaxWait_shouldThrowOverloaded() {
+        BoundedPasswordEncoder encoder = createEncoder(new BlockingEncoder(), Duration.ofMillis(50));
+
+        PasswordHashingOverloadedException e = assertThrows(PasswordHashingOverloadedException.class,
+                () -> encoder.encode("slow"));
+
+        assertEquals(1, e.getRetryAfterSeconds());
+        assertEquals(1, meterRegistry.counter("auth.password.rejected").count());
+    }
+
+    @Test
+    void testTimedOutQueuedHash_shouldFreeItsQueueSlot() throws InterruptedException {
+        BoundedPasswordEncoder slowEncoder = createEncoder(new BlockingEncoder(), Duration.ofMillis(50));
+        CompletableFuture.runAsync(() -> slowEncoder.encode("first"));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertThrows(PasswordHashingOverloadedException.class, () -> slowEncoder.encode("queued"));
+
+        assertTrue(executor.getQueue().isEmpty());
+    }
+
+    @Test
+    void testDelegateFailure_shouldBeRethrown() {
+        PasswordEncoder failing = new PrefixEncoder() {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                throw new IllegalArgumentException("Encoded password does not look like BCrypt");
+            }
+        };
+        BoundedPasswordEncoder encoder = createEncoder(failing, Duration.ofSeconds(5));
+
+        assertThrows(IllegalArgumentException.class, () -> encoder.matches("secret", "plain"));
+        assertEquals(0, meterRegistry.counter("auth.password.rejected").count());
+    }
+
+    private BoundedPasswordEncoder createEncoder(PasswordEncoder delegate, Duration maxWait) {
+        return new BoundedPasswordEncoder(delegate, executor, maxWait, meterRegistry);
+    }
+
+    private void awaitQueued() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getQueue().isEmpty()) {
+            assertTrue(System.nanoTime() < deadline, "task was not queued");
+            Thread.sleep(5);
+        }
+    }
+
+    private static class PrefixEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+
+    private class BlockingEncoder extends PrefixEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.encode(rawPassword);
+        }
+    }
+}
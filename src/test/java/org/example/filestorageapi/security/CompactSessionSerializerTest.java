@@ -0,0 +1,134 @@
+package org.example.filestorageapi.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.filestorageapi.utils.Roles;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactSessionSerializerTest {
+
+    private static final byte JDK_STREAM_MAGIC = (byte) 0xAC;
+
+    private final CompactSessionSerializer serializer =
+            new CompactSessionSerializer(getClass().getClassLoader(), new SimpleMeterRegistry());
+
+    @Test
+    void testLong_shouldRoundTripInNineBytes() {
+        byte[] bytes = serializer.serialize(1_700_000_000_000L);
+
+        assertEquals(9, bytes.length);
+        assertEquals(1, bytes[0]);
+        assertEquals(1_700_000_000_000L, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void testInteger_shouldRoundTripInFiveBytes() {
+        byte[] bytes = serializer.serialize(1800);
+
+        assertEquals(5, bytes.length);
+        assertEquals(2, bytes[0]);
+        assertEquals(1800, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void testSecurityContext_shouldRoundTripCompactly() {
+        CustomUserDetails userDetails = new CustomUserDetails(42L, "johndoe", EnumSet.of(Roles.ROLE_USER));
+        SecurityContext context = new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(
+                userDetails, null, userDetails.getAuthorities()));
+
+        byte[] bytes = serializer.serialize(context);
+        SecurityContext restored = (SecurityContext) serializer.deserialize(bytes);
+
+        assertEquals(3, bytes[0]);
+        assertTrue(bytes.length < 64);
+        assertTrue(restored.getAuthentication().isAuthenticated());
+        assertNull(restored.getAuthentication().getCredentials());
+        assertEquals(Set.of(new SimpleGrantedAuthority("ROLE_USER")),
+                Set.copyOf(restored.getAuthentication().getAuthorities()));
+
+        CustomUserDetails restoredUser = (CustomUserDetails) restored.getAuthentication().getPrincipal();
+        assertEquals(42L, restoredUser.getId());
+        assertEquals("johndoe", restoredUser.getUsername());
+        assertEquals(Set.of(Roles.ROLE_USER), restoredUser.getRoles());
+    }
+
+    @Test
+    void testContextWithDetails_shouldFallBackToJdkSerialization() {
+        CustomUserDetails userDetails = new CustomUserDetails(42L, "johndoe", EnumSet.of(Roles.ROLE_USER));
+        UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(
+                userDetails, null, userDetails.getAuthorities());
+        authentication.setDetails("remote address");
+
+        byte[] bytes = serializer.serialize(new SecurityContextImpl(authentication));
+        SecurityContext restored = (SecurityContext) serializer.deserialize(bytes);
+
+        assertEquals(JDK_STREAM_MAGIC, bytes[0]);
+        assertEquals("remote address", restored.getAuthentication().getDetails());
+    }
+
+    @Test
+    void testForeignPrincipal_shouldFallBackToJdkSerialization() {
+        SecurityContext context = new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(
+                "johndoe", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+        byte[] bytes = serializer.serialize(context);
+        SecurityContext restored = (SecurityContext) serializer.deserialize(bytes);
+
+        assertEquals(JDK_STREAM_MAGIC, bytes[0]);
+        assertEquals("johndoe", restored.getAuthentication().getPrincipal());
+    }
+
+    @Test
+    void testValuesWrittenBeforeCompactForm_shouldBeReadWithJdkSerialization() {
+        JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+        assertEquals(1_700_000_000_000L, serializer.deserialize(jdkSerializer.serialize(1_700_000_000_000L)));
+        assertEquals(1800, serializer.deserialize(jdkSerializer.serialize(1800)));
+        assertEquals("attribute", serializer.deserialize(jdkSerializer.serialize("attribute")));
+    }
+
+    @Test
+    void testOtherValue_shouldRoundTripWithJdkSerialization() {
+        byte[] bytes = serializer.serialize("attribute");
+
+        assertArrayEquals(new JdkSerializationRedisSerializer().serialize("attribute"), bytes);
+        assertEquals("attribute", serializer.deserialize(bytes));
+    }
+
+    @Test
+    void testUnknownContextVersion_shouldThrowSerializationException() {
+        assertThrows(SerializationException.class, () -> serializer.deserialize(new byte[]{3, 9, 0, 0}));
+    }
+
+    @Test
+    void testNullAndEmpty_shouldMapToEachOther() {
+        assertEquals(0, serializer.serialize(null).length);
+        assertNull(serializer.deserialize(new byte[0]));
+        assertNull(serializer.deserialize(null));
+    }
+
+    @Test
+    void testTruncatedValue_shouldThrowSerializationException() {
+        SerializationException e = assertThrows(SerializationException.class,
+                () -> serializer.deserialize(new byte[]{1, 0, 0}));
+
+        assertInstanceOf(IOException.class, e.getCause());
+    }
+}
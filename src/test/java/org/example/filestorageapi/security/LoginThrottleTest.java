@@ -0,0 +1,86 @@
+package org.example.filestorageapi.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.filestorageapi.errors.TooManyLoginAttemptsException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LoginThrottleTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LoginThrottle throttle = new LoginThrottle(3, Duration.ofMinutes(1), meterRegistry, nanos::get);
+
+    @Test
+    void testAttemptsWithinLimit_shouldPass() {
+        for (int i = 0; i < 3; i++) {
+            assertDoesNotThrow(() -> throttle.acquire("10.0.0.1"));
+        }
+    }
+
+    @Test
+    void testAttemptOverLimit_shouldThrowWithRemainingWindowAsRetryAfter() {
+        exhaust("10.0.0.1");
+        advance(Duration.ofSeconds(20));
+
+        TooManyLoginAttemptsException e = assertThrows(TooManyLoginAttemptsException.class,
+                () -> throttle.acquire("10.0.0.1"));
+
+        assertEquals(40, e.getRetryAfterSeconds());
+        assertEquals(1, meterRegistry.counter("auth.login.throttled").count());
+    }
+
+    @Test
+    void testRetryAfter_shouldBeAtLeastOneSecond() {
+        exhaust("10.0.0.1");
+        advance(Duration.ofSeconds(59).plusMillis(900));
+
+        TooManyLoginAttemptsException e = assertThrows(TooManyLoginAttemptsException.class,
+                () -> throttle.acquire("10.0.0.1"));
+
+        assertEquals(1, e.getRetryAfterSeconds());
+    }
+
+    @Test
+    void testNewWindow_shouldResetAttempts() {
+        exhaust("10.0.0.1");
+        assertThrows(TooManyLoginAttemptsException.class, () -> throttle.acquire("10.0.0.1"));
+
+        advance(Duration.ofMinutes(1));
+
+        assertDoesNotThrow(() -> throttle.acquire("10.0.0.1"));
+    }
+
+    @Test
+    void testAddresses_shouldBeCountedSeparately() {
+        exhaust("10.0.0.1");
+
+        assertDoesNotThrow(() -> throttle.acquire("10.0.0.2"));
+    }
+
+    @Test
+    void testZeroMaxAttempts_shouldDisableThrottle() {
+        LoginThrottle disabled = new LoginThrottle(0, Duration.ofMinutes(1), meterRegistry, nanos::get);
+
+        for (int i = 0; i < 100; i++) {
+            disabled.acquire("10.0.0.1");
+        }
+    }
+
+    private void exhaust(String address) {
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire(address);
+        }
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.filestorageapi.security;
+
+import org.example.filestorageapi.utils.Roles;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TokenAuthenticationFilterTest {
+
+    private final AccessTokenService accessTokenService = mock(AccessTokenService.class);
+    private final TokenAuthenticationFilter filter = new TokenAuthenticationFilter(accessTokenService);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testValidBearerToken_shouldAuthenticateWithClaimsAsDetails() throws Exception {
+        AccessTokenClaims claims = new AccessTokenClaims("token-id", 42L, "johndoe", Set.of(Roles.ROLE_USER),
+                0, 60, 0);
+        when(accessTokenService.verify("valid")).thenReturn(claims);
+
+        MockFilterChain chain = filter(HttpHeaders.AUTHORIZATION, "bearer valid");
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(chain.getRequest());
+        assertEquals("johndoe", ((CustomUserDetails) authentication.getPrincipal()).getUsername());
+        assertSame(claims, authentication.getDetails());
+    }
+
+    @Test
+    void testInvalidBearerToken_shouldLeaveRequestAnonymous() throws Exception {
+        MockFilterChain chain = filter(HttpHeaders.AUTHORIZATION, "Bearer forged");
+
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testRequestWithoutBearerToken_shouldPassUntouched() throws Exception {
+        MockFilterChain chain = filter(HttpHeaders.AUTHORIZATION, "Basic am9objpzZWNyZXQ=");
+
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(accessTokenService, never()).verify(anyString());
+    }
+
+    private MockFilterChain filter(String header, String value) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/user/me");
+        request.addHeader(header, value);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return chain;
+    }
+}
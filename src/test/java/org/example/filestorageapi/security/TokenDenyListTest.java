@@ -0,0 +1,99 @@
+package org.example.filestorageapi.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TokenDenyListTest {
+
+    private static final String KEY = "auth:denied-tokens";
+
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> zSetOperations = mock(ZSetOperations.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+
+    private TokenDenyList denyList;
+    private long expiresAt;
+
+    @BeforeEach
+    void setup() {
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        denyList = new TokenDenyList(redisTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(denyList, "tokenAuthEnabled", true);
+        expiresAt = Instant.now().getEpochSecond() + 600;
+    }
+
+    @Test
+    void testFirstDeny_shouldAddToRedisAndDenyLocally() {
+        when(zSetOperations.addIfAbsent(KEY, "token", expiresAt)).thenReturn(true);
+
+        assertTrue(denyList.deny("token", expiresAt));
+        assertTrue(denyList.isDenied("token"));
+        verify(zSetOperations).addIfAbsent(KEY, "token", expiresAt);
+    }
+
+    @Test
+    void testTokenDeniedOnAnotherInstance_shouldNotBeDeniedAgain() {
+        when(zSetOperations.addIfAbsent(KEY, "token", expiresAt)).thenReturn(false);
+
+        assertFalse(denyList.deny("token", expiresAt));
+        assertTrue(denyList.isDenied("token"));
+    }
+
+    @Test
+    void testTokenDeniedOnThisInstance_shouldNotBeDeniedAgain() {
+        when(zSetOperations.addIfAbsent(KEY, "token", expiresAt)).thenReturn(true);
+
+        assertTrue(denyList.deny("token", expiresAt));
+        assertFalse(denyList.deny("token", expiresAt));
+    }
+
+    @Test
+    void testRedisUnavailable_shouldDenyLocallyOnce() {
+        when(zSetOperations.addIfAbsent(anyString(), anyString(), anyDouble()))
+                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+
+        assertTrue(denyList.deny("token", expiresAt));
+        assertFalse(denyList.deny("token", expiresAt));
+        assertTrue(denyList.isDenied("token"));
+    }
+
+    @Test
+    void testSync_shouldPullRevocationsOfOtherInstances() {
+        when(zSetOperations.rangeByScoreWithScores(eq(KEY), anyDouble(), eq(Double.POSITIVE_INFINITY)))
+                .thenReturn(Set.of(new DefaultTypedTuple<>("remote", (double) expiresAt)));
+
+        assertFalse(denyList.isDenied("remote"));
+        denyList.sync();
+
+        assertTrue(denyList.isDenied("remote"));
+        verify(zSetOperations).removeRangeByScore(eq(KEY), eq(Double.NEGATIVE_INFINITY), anyDouble());
+    }
+
+    @Test
+    void testSync_shouldDropExpiredEntries() {
+        when(zSetOperations.addIfAbsent(anyString(), anyString(), anyDouble())).thenReturn(true);
+        denyList.deny("expired", Instant.now().getEpochSecond() - 1);
+
+        denyList.sync();
+
+        assertFalse(denyList.isDenied("expired"));
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.filestorageapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FolderExistenceCacheTest {
+
+    private final FolderExistenceCache cache =
+            new FolderExistenceCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+    @Test
+    void testRemoveFile_shouldKeepItsFolders() {
+        cache.addParentFolders("user-1-files/docs/a.txt");
+
+        cache.removeObject("user-1-files/docs/a.txt");
+
+        assertTrue(cache.isKnownFolder("user-1-files/"));
+        assertTrue(cache.isKnownFolder("user-1-files/docs/"));
+    }
+
+    @Test
+    void testRemoveFolderMarker_shouldDropOnlyItsSubtree() {
+        cache.addFolder("user-1-files/docs/photos/2024/");
+        cache.addFolder("user-1-files/docs/notes/");
+
+        cache.removeObject("user-1-files/docs/photos/");
+
+        assertFalse(cache.isKnownFolder("user-1-files/docs/photos/"));
+        assertFalse(cache.isKnownFolder("user-1-files/docs/photos/2024/"));
+        assertTrue(cache.isKnownFolder("user-1-files/docs/"));
+        assertTrue(cache.isKnownFolder("user-1-files/docs/notes/"));
+    }
+}
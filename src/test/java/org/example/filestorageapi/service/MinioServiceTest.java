@@ -0,0 +1,144 @@
+package org.example.filestorageapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.messages.Contents;
+import io.minio.messages.Item;
+import okhttp3.Headers;
+import org.example.filestorageapi.errors.PartialDeleteException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MinioServiceTest {
+
+    private static final String FOLDER = "user-1-files/docs/";
+
+    private final MinioClient minioClient = mock(MinioClient.class);
+    private final ResourceIndexService resourceIndexService = mock(ResourceIndexService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FolderExistenceCache folderExistenceCache =
+            new FolderExistenceCache(100, Duration.ofMinutes(5), meterRegistry);
+    private final ExecutorService deleteExecutor = Executors.newFixedThreadPool(2);
+
+    private MinioService minioService;
+
+    @BeforeEach
+    void setup() {
+        minioService = new MinioService(minioClient, mock(MinioAsyncClient.class), mock(ZipCompressionPolicy.class),
+                folderExistenceCache, resourceIndexService, mock(BlobReferenceService.class), meterRegistry,
+                new TransferMetrics(meterRegistry), mock(ExecutorService.class), deleteExecutor);
+        ReflectionTestUtils.setField(minioService, "bucketName", "user-files");
+        ReflectionTestUtils.setField(minioService, "deleteBatchSize", 2);
+        ReflectionTestUtils.setField(minioService, "deleteParallelBatches", 1);
+        when(resourceIndexService.isReadable()).thenReturn(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteExecutor.shutdownNow();
+    }
+
+    @Test
+    void testDeleteFolder_shouldRemoveFolderFromIndexAndCache() {
+        listing(item(FOLDER), item(FOLDER + "a.txt"), item(FOLDER + "b.txt"));
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenReturn(List.of());
+        folderExistenceCache.addFolder(FOLDER + "photos/");
+
+        minioService.deleteFolder("user-1-files/docs");
+
+        verify(resourceIndexService).folderRemoved(FOLDER);
+        verify(resourceIndexService, never()).fileRemoved(anyString());
+        assertFalse(folderExistenceCache.isKnownFolder(FOLDER + "photos/"));
+        assertTrue(folderExistenceCache.isKnownFolder("user-1-files/"));
+        assertEquals(3, meterRegistry.counter("minio.delete.objects", "outcome", "deleted").count());
+    }
+
+    @Test
+    void testPartiallyFailedDelete_shouldForgetOnlyDeletedObjects() {
+        listing(item(FOLDER + "a.txt"), item(FOLDER + "b.txt"), item(FOLDER + "c.txt"));
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class)))
+                .thenReturn(List.of())
+                .thenThrow(new IllegalStateException("storage unavailable"));
+        folderExistenceCache.addFolder(FOLDER);
+
+        PartialDeleteException e = assertThrows(PartialDeleteException.class,
+                () -> minioService.deleteFolder(FOLDER));
+
+        assertEquals(1, e.getErrors().size());
+        verify(resourceIndexService).fileRemoved(FOLDER + "a.txt");
+        verify(resourceIndexService).fileRemoved(FOLDER + "b.txt");
+        verify(resourceIndexService, never()).fileRemoved(FOLDER + "c.txt");
+        verify(resourceIndexService, never()).folderRemoved(anyString());
+        assertTrue(folderExistenceCache.isKnownFolder(FOLDER));
+        assertTrue(folderExistenceCache.isKnownFolder("user-1-files/"));
+    }
+
+    @Test
+    void testFailedListing_shouldKeepIndexAndCache() {
+        when(minioClient.listObjects(any(ListObjectsArgs.class)))
+                .thenReturn(List.of(new Result<>(new IOException("connection reset"))));
+        folderExistenceCache.addFolder(FOLDER);
+
+        assertThrows(RuntimeException.class, () -> minioService.deleteFolder(FOLDER));
+
+        verify(minioClient, never()).removeObjects(any(RemoveObjectsArgs.class));
+        verify(resourceIndexService, never()).folderRemoved(anyString());
+        verify(resourceIndexService, never()).fileRemoved(anyString());
+        assertTrue(folderExistenceCache.isKnownFolder(FOLDER));
+    }
+
+    @Test
+    void testRangeDownload_shouldReadContentKeyWithoutStat() throws Exception {
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenReturn(new GetObjectResponse(Headers.of(),
+                "user-files", null, "blobs/abc", new ByteArrayInputStream("ell".getBytes(StandardCharsets.UTF_8))));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        minioService.downloadFileRangeAsStream("blobs/abc", 1L, 3L).writeTo(outputStream);
+
+        ArgumentCaptor<GetObjectArgs> args = ArgumentCaptor.forClass(GetObjectArgs.class);
+        verify(minioClient).getObject(args.capture());
+        assertEquals("blobs/abc", args.getValue().object());
+        assertEquals(1L, args.getValue().offset());
+        assertEquals("ell", outputStream.toString(StandardCharsets.UTF_8));
+        verify(minioClient, never()).statObject(any(StatObjectArgs.class));
+    }
+
+    @SafeVarargs
+    private void listing(Result<Item>... results) {
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(List.of(results));
+    }
+
+    private static Result<Item> item(String objectName) {
+        return new Result<>(new Contents(objectName));
+    }
+}
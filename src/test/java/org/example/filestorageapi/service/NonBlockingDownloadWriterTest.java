@@ -0,0 +1,179 @@
+package org.example.filestorageapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NonBlockingDownloadWriterTest {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final HttpServletRequest request = mock(HttpServletRequest.class);
+    private final HttpServletResponse response = mock(HttpServletResponse.class);
+    private final AsyncContext asyncContext = mock(AsyncContext.class);
+    private final ClientStream clientStream = new ClientStream();
+    private final Deque<Runnable> readTasks = new ArrayDeque<>();
+
+    private NonBlockingDownloadWriter writer;
+
+    @BeforeEach
+    void setup() throws IOException {
+        when(request.startAsync(request, response)).thenReturn(asyncContext);
+        when(response.getOutputStream()).thenReturn(clientStream);
+        writer = new NonBlockingDownloadWriter(Duration.ofMinutes(1), new TransferMetrics(new SimpleMeterRegistry()),
+                readTasks::add);
+    }
+
+    @Test
+    void testSlowClient_shouldReadOnlyAFewChunksAhead() throws IOException {
+        byte[] content = randomBytes(16 * CHUNK_SIZE);
+        CountingStream objectStream = new CountingStream(content);
+        clientStream.ready = false;
+
+        writer.write(request, response, CompletableFuture.completedFuture(objectStream));
+        runReadTasks();
+
+        assertEquals(4 * CHUNK_SIZE, objectStream.bytesRead);
+        assertEquals(0, clientStream.written.size());
+
+        clientStream.ready = true;
+        clientStream.listener.onWritePossible();
+        runReadTasks();
+
+        assertArrayEquals(content, clientStream.written.toByteArray());
+        verify(asyncContext, times(1)).complete();
+    }
+
+    @Test
+    void testTimeoutBeforeObjectOpened_shouldNotTouchResponse() throws IOException {
+        CompletableFuture<InputStream> object = new CompletableFuture<>();
+        CountingStream objectStream = new CountingStream(new byte[10]);
+
+        writer.write(request, response, object);
+        listener().onTimeout(mock(AsyncEvent.class));
+        object.complete(objectStream);
+
+        verify(response, never()).getOutputStream();
+        assertTrue(objectStream.closed.get());
+        assertTrue(readTasks.isEmpty());
+        verify(asyncContext, times(1)).complete();
+    }
+
+    @Test
+    void testTimeoutWhileReading_shouldDropReadChunk() throws IOException {
+        CountingStream objectStream = new CountingStream(new byte[10]);
+
+        writer.write(request, response, CompletableFuture.completedFuture(objectStream));
+        clientStream.listener.onWritePossible();
+        listener().onTimeout(mock(AsyncEvent.class));
+        listener().onComplete(mock(AsyncEvent.class));
+        runReadTasks();
+
+        assertEquals(0, clientStream.written.size());
+        assertTrue(objectStream.closed.get());
+        verify(asyncContext, times(1)).complete();
+    }
+
+    @Test
+    void testFailedObject_shouldAnswer500() {
+        writer.write(request, response, CompletableFuture.failedFuture(new IOException("connection refused")));
+
+        verify(response).setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        verify(asyncContext).complete();
+    }
+
+    private AsyncListener listener() {
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(asyncContext).addListener(listener.capture());
+        return listener.getValue();
+    }
+
+    private void runReadTasks() {
+        while (!readTasks.isEmpty()) {
+            readTasks.poll().run();
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static final class ClientStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private WriteListener listener;
+        private boolean ready = true;
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            listener = writeListener;
+        }
+
+        @Override
+        public void write(int b) {
+            written.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written.write(b, off, len);
+        }
+    }
+
+    private static final class CountingStream extends ByteArrayInputStream {
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private int bytesRead;
+
+        private CountingStream(byte[] content) {
+            super(content);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            int n = super.read(b, off, len);
+            bytesRead += Math.max(n, 0);
+            return n;
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.filestorageapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ObjectExistenceSnapshotTest {
+
+    private static final String FOLDER = "user-1-files/docs/";
+
+    private final MinioService minioService = mock(MinioService.class);
+    private final ObjectExistenceSnapshot snapshot = new ObjectExistenceSnapshot(minioService, 100);
+
+    @Test
+    void testFolderListing_shouldAnswerEveryFileOfTheFolder() {
+        when(minioService.listFileNames(FOLDER, 100)).thenReturn(Set.of(FOLDER + "a.txt"));
+
+        assertTrue(snapshot.isFileExist(FOLDER + "a.txt"));
+        assertFalse(snapshot.isFileExist(FOLDER + "b.txt"));
+        assertFalse(snapshot.isFileExist(FOLDER + "c.txt"));
+
+        verify(minioService, times(1)).listFileNames(FOLDER, 100);
+        verify(minioService, never()).isFileExist(anyString());
+    }
+
+    @Test
+    void testLargeFolder_shouldCheckFilesOneByOne() {
+        when(minioService.listFileNames(FOLDER, 100)).thenReturn(null);
+        when(minioService.isFileExist(FOLDER + "a.txt")).thenReturn(true);
+
+        assertTrue(snapshot.isFileExist(FOLDER + "a.txt"));
+        assertFalse(snapshot.isFileExist(FOLDER + "b.txt"));
+    }
+
+    @Test
+    void testSamePathTwice_shouldExistTheSecondTime() {
+        when(minioService.listFileNames(FOLDER, 100)).thenReturn(Set.of());
+
+        assertFalse(snapshot.isFileExist(FOLDER + "a.txt"));
+        assertTrue(snapshot.isFileExist(FOLDER + "a.txt"));
+    }
+
+    @Test
+    void testConcurrentChecksOfSamePath_shouldLetOneThrough() throws Exception {
+        when(minioService.listFileNames(FOLDER, 100)).thenReturn(Set.of());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> checks = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                checks.add(() -> snapshot.isFileExist(FOLDER + "a.txt"));
+            }
+
+            int freeCount = 0;
+            for (Future<Boolean> check : executor.invokeAll(checks)) {
+                freeCount += check.get() ? 0 : 1;
+            }
+            assertEquals(1, freeCount);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.filestorageapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.Result;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PreviewServiceTest {
+
+    private static final Instant LISTED_BEFORE = Instant.parse("2026-01-01T12:00:00Z");
+
+    private final MinioService minioService = mock(MinioService.class);
+    private PreviewService previewService;
+
+    @BeforeEach
+    void setup() {
+        previewService = new PreviewService(minioService, new SimpleMeterRegistry(), mock(ThreadPoolExecutor.class));
+        ReflectionTestUtils.setField(previewService, "previewPrefix", ".previews/");
+        ReflectionTestUtils.setField(previewService, "previewSize", 256);
+    }
+
+    @Test
+    void testPreviewKey_shouldNotBeSharedBetweenFilesWithSameEtag() {
+        assertEquals(".previews/256/user-1-files/cat.png/abc.jpg",
+                previewService.getPreviewKey("user-1-files/cat.png", "abc"));
+        assertEquals(".previews/256/user-2-files/cat.png/abc.jpg",
+                previewService.getPreviewKey("user-2-files/cat.png", "abc"));
+    }
+
+    @Test
+    void testRemoveOrphans_shouldKeepOnlyPreviewsOfCurrentContent() throws Exception {
+        Map<String, String> indexedEtags = Map.of(
+                "user-1-files/a/cat.png", "abc",
+                "user-1-files/dog.png", "new");
+        List<Result<Item>> previews = List.of(
+                preview(".previews/256/user-1-files/a/cat.png/abc.jpg", LISTED_BEFORE.minusSeconds(60)),
+                preview(".previews/256/user-1-files/dog.png/old.jpg", LISTED_BEFORE.minusSeconds(60)),
+                preview(".previews/256/user-1-files/gone.png/abc.jpg", LISTED_BEFORE.minusSeconds(60)),
+                preview(".previews/128/user-1-files/a/cat.png/abc.jpg", LISTED_BEFORE.minusSeconds(60)),
+                preview(".previews/256/abc.jpg", LISTED_BEFORE.minusSeconds(60)),
+                preview(".previews/256/user-1-files/new.png/abc.jpg", LISTED_BEFORE.plusSeconds(1)));
+        when(minioService.listAllObjects(".previews/")).thenReturn(previews);
+
+        int removedCount = previewService.removeOrphans(LISTED_BEFORE,
+                (path, etag) -> etag.equals(indexedEtags.get(path)));
+
+        assertEquals(4, removedCount);
+        verify(minioService, never()).removeStoredObject(".previews/256/user-1-files/a/cat.png/abc.jpg");
+        verify(minioService).removeStoredObject(".previews/256/user-1-files/dog.png/old.jpg");
+        verify(minioService).removeStoredObject(".previews/256/user-1-files/gone.png/abc.jpg");
+        verify(minioService).removeStoredObject(".previews/128/user-1-files/a/cat.png/abc.jpg");
+        verify(minioService).removeStoredObject(".previews/256/abc.jpg");
+        verify(minioService, never()).removeStoredObject(".previews/256/user-1-files/new.png/abc.jpg");
+    }
+
+    private static Result<Item> preview(String objectName, Instant lastModified) {
+        Item item = mock(Item.class);
+        when(item.objectName()).thenReturn(objectName);
+        when(item.lastModified()).thenReturn(ZonedDateTime.ofInstant(lastModified, ZoneOffset.UTC));
+        return new Result<>(item);
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.filestorageapi.service;
+
+import org.example.filestorageapi.entity.ResourceIndexState;
+import org.example.filestorageapi.entity.ResourceMetadata;
+import org.example.filestorageapi.repository.ResourceIndexStateRepository;
+import org.example.filestorageapi.repository.ResourceMetadataRepository;
+import org.example.filestorageapi.utils.ResourceType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResourceIndexServiceTest {
+
+    private static final Instant RECONCILE_START = Instant.parse("2025-03-07T10:15:30Z");
+    private static final Instant LAST_MODIFIED = Instant.parse("2025-03-01T08:00:00Z");
+
+    private final ResourceMetadataRepository resourceMetadataRepository = mock(ResourceMetadataRepository.class);
+    private final ResourceIndexStateRepository resourceIndexStateRepository = mock(ResourceIndexStateRepository.class);
+    private final List<ResourceMetadata> rows = new ArrayList<>();
+    private final List<Long> deletedIds = new ArrayList<>();
+
+    private ResourceIndexService resourceIndexService;
+
+    @BeforeEach
+    void setup() {
+        resourceIndexService = new ResourceIndexService(resourceMetadataRepository, resourceIndexStateRepository,
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(resourceIndexService, "readEnabled", true);
+        resourceIndexService.init();
+
+        // pages of the rows sorted by key, like the query sorts them
+        when(resourceMetadataRepository.findOwnerPage(eq(1), anyString(), anyInt())).thenAnswer(invocation -> {
+            String startAfter = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return rows.stream()
+                    .filter(row -> ResourceIndexService.compareKeys(key(row), startAfter) > 0)
+                    .sorted((first, second) -> ResourceIndexService.compareKeys(key(first), key(second)))
+                    .limit(limit)
+                    .toList();
+        });
+        when(resourceMetadataRepository.deleteByIdsIndexedBefore(anyCollection(), eq(RECONCILE_START)))
+                .thenAnswer(invocation -> {
+                    List<Long> ids = new ArrayList<>(invocation.getArgument(0));
+                    deletedIds.addAll(ids);
+                    return ids.size();
+                });
+    }
+
+    @Test
+    void testReconcileOwner_shouldWriteOnlyWhatDiffers() {
+        rows.add(folder(1, "", "user-1-files", 3, 1));
+        rows.add(folder(2, "user-1-files/", "docs", 3, 1));
+        rows.add(file(3, "user-1-files/docs/", "a.txt", 3, "etag-a"));
+        rows.add(file(4, "user-1-files/docs/", "gone.txt", 7, "etag-gone"));
+        rows.add(folder(5, "user-1-files/", "empty", 0, 0));
+
+        ResourceIndexService.OwnerReconciliation owner = resourceIndexService.startOwner(1, RECONCILE_START);
+        owner.add(listedFolder("user-1-files"));
+        owner.add(listedFile("user-1-files/docs/a.txt", 3, "etag-a"));
+        owner.add(listedFile("user-1-files/docs/b.txt", 5, "etag-b"));
+        owner.add(listedFolder("user-1-files/photos/"));
+        ResourceIndexService.ReconcileResult result = owner.finish();
+
+        verify(resourceMetadataRepository).upsertFile(1, "user-1-files/docs/", "b.txt", 5, "etag-b",
+                LAST_MODIFIED, RECONCILE_START);
+        verify(resourceMetadataRepository, never()).upsertFile(anyInt(), anyString(), eq("a.txt"), anyLong(),
+                any(), any(), any());
+        verify(resourceMetadataRepository).addFolderUsage("user-1-files/", "docs", 5, 1);
+        verify(resourceMetadataRepository).addFolderUsage("", "user-1-files", 5, 1);
+        verify(resourceMetadataRepository).upsertFolder(1, "user-1-files/", "photos", 0, 0,
+                LAST_MODIFIED, RECONCILE_START);
+        assertEquals(List.of(4L, 5L), deletedIds);
+        assertEquals(new ResourceIndexService.ReconcileResult(4, 2, 0), result);
+    }
+
+    @Test
+    void testReconcileOwner_shouldPageThroughRows() {
+        for (int i = 0; i < 1200; i++) {
+            rows.add(file(i + 10, "user-1-files/", String.format("file-%04d", i), 1, "etag"));
+        }
+
+        ResourceIndexService.OwnerReconciliation owner = resourceIndexService.startOwner(1, RECONCILE_START);
+        for (int i = 0; i < 1200; i += 2) {
+            owner.add(listedFile(String.format("user-1-files/file-%04d", i), 1, "etag"));
+        }
+        ResourceIndexService.ReconcileResult result = owner.finish();
+
+        verify(resourceMetadataRepository, times(3)).findOwnerPage(eq(1), anyString(), eq(500));
+        verify(resourceMetadataRepository, never()).upsertFile(anyInt(), anyString(), anyString(), anyLong(),
+                any(), any(), any());
+        assertEquals(600, deletedIds.size());
+        assertEquals(600, result.removedCount());
+    }
+
+    @Test
+    void testObjectsOutOfKeyOrder_shouldBeRejected() {
+        ResourceIndexService.OwnerReconciliation owner = resourceIndexService.startOwner(1, RECONCILE_START);
+        owner.add(listedFile("user-1-files/b.txt", 1, "etag"));
+
+        assertThrows(IllegalStateException.class, () -> owner.add(listedFile("user-1-files/a.txt", 1, "etag")));
+    }
+
+    @Test
+    void testCompareKeys_shouldFollowUtf8ByteOrder() {
+        // U+FFFF sorts before U+1F600 in UTF-8, but after its surrogate pair in UTF-16
+        assertTrue(ResourceIndexService.compareKeys("a\uFFFF", "a\uD83D\uDE00") < 0);
+        assertTrue(ResourceIndexService.compareKeys("a/", "a/b") < 0);
+        assertTrue(ResourceIndexService.compareKeys("a!", "a/") < 0);
+        assertEquals(0, ResourceIndexService.compareKeys("a/b", "a/b"));
+    }
+
+    @Test
+    void testIsReadable_shouldFollowPersistedState() {
+        when(resourceIndexStateRepository.existsById(ResourceIndexState.ID)).thenReturn(false);
+        assertFalse(resourceIndexService.isReadable());
+
+        ReflectionTestUtils.setField(resourceIndexService, "nextStateCheck", 0L);
+        when(resourceIndexStateRepository.existsById(ResourceIndexState.ID)).thenReturn(true);
+        assertTrue(resourceIndexService.isReadable());
+        assertTrue(resourceIndexService.isReadable());
+
+        verify(resourceIndexStateRepository, times(2)).existsById(ResourceIndexState.ID);
+    }
+
+    @Test
+    void testMarkReconciled_shouldPersistState() {
+        resourceIndexService.markReconciled();
+
+        assertTrue(resourceIndexService.isReadable());
+        verify(resourceIndexStateRepository).markReconciled(any());
+        verify(resourceIndexStateRepository, never()).existsById(any());
+    }
+
+    private static ResourceIndexService.ListedObject listedFile(String path, long size, String etag) {
+        return new ResourceIndexService.ListedObject(path, false, size, etag, LAST_MODIFIED);
+    }
+
+    private static ResourceIndexService.ListedObject listedFolder(String path) {
+        return new ResourceIndexService.ListedObject(path, true, 0, null, LAST_MODIFIED);
+    }
+
+    private static ResourceMetadata file(long id, String parentPath, String name, long size, String etag) {
+        return ResourceMetadata.builder()
+                .id(id)
+                .ownerId(1)
+                .parentPath(parentPath)
+                .name(name)
+                .type(ResourceType.FILE)
+                .size(size)
+                .etag(etag)
+                .build();
+    }
+
+    private static ResourceMetadata folder(long id, String parentPath, String name, long size, long objectCount) {
+        return ResourceMetadata.builder()
+                .id(id)
+                .ownerId(1)
+                .parentPath(parentPath)
+                .name(name)
+                .type(ResourceType.DIRECTORY)
+                .size(size)
+                .objectCount(objectCount)
+                .build();
+    }
+
+    private static String key(ResourceMetadata row) {
+        String key = row.getParentPath() + row.getName();
+        return row.getType() == ResourceType.DIRECTORY ? key + "/" : key;
+    }
+}
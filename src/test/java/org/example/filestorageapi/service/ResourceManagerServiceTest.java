@@ -0,0 +1,319 @@
+package org.example.filestorageapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ValidationException;
+import org.example.filestorageapi.dto.ResourceInfoResponseDto;
+import org.example.filestorageapi.errors.InvalidPathException;
+import org.example.filestorageapi.errors.PartialUploadException;
+import org.example.filestorageapi.errors.ResourceAlreadyExistsException;
+import org.example.filestorageapi.utils.ResourceType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResourceManagerServiceTest {
+
+    private static final long USER_ID = 1;
+    private static final String USER_DIR = "user-1-files/";
+    private static final int BUFFER_SIZE = 16;
+    private static final String BOUNDARY = "test-boundary";
+
+    private final MinioService minioService = mock(MinioService.class);
+    private final QuotaService quotaService = mock(QuotaService.class);
+    private final ExecutorService uploadExecutor = Executors.newFixedThreadPool(4);
+
+    // object path -> content and size argument of the uploadFile call that wrote it
+    private final Map<String, byte[]> uploadedContents = new ConcurrentHashMap<>();
+    private final Map<String, Long> uploadedSizes = new ConcurrentHashMap<>();
+
+    private ResourceManagerService resourceManagerService;
+
+    @BeforeEach
+    void setup() {
+        resourceManagerService = new ResourceManagerService(minioService, mock(ResourceIndexService.class),
+                mock(PreviewService.class), quotaService, new ObjectMapper(), uploadExecutor);
+        ReflectionTestUtils.setField(resourceManagerService, "maxFileSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(resourceManagerService, "uploadBufferSize", DataSize.ofBytes(BUFFER_SIZE));
+        ReflectionTestUtils.setField(resourceManagerService, "uploadConcurrency", 4);
+        ReflectionTestUtils.setField(resourceManagerService, "uploadMaxBufferedSize", DataSize.ofKilobytes(1));
+        ReflectionTestUtils.setField(resourceManagerService, "conflictListingLimit", 100);
+        ReflectionTestUtils.setField(resourceManagerService, "stagingPrefix", ".upload-staging/");
+        resourceManagerService.init();
+
+        QuotaService.Reservation reservation = mock(QuotaService.Reservation.class);
+        when(reservation.limit(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(quotaService.startReservation(anyLong(), anyString())).thenReturn(reservation);
+
+        when(minioService.isFolderExists(anyString())).thenReturn(true);
+        when(minioService.listFileNames(anyString(), anyInt())).thenReturn(Set.of());
+        when(minioService.uploadFile(any(), anyLong(), any(), anyString(), anyString()))
+                .thenAnswer(this::storeUpload);
+        when(minioService.moveFile(any(), anyString())).thenAnswer(invocation -> {
+            String targetPath = invocation.getArgument(1);
+            int nameStart = targetPath.lastIndexOf('/') + 1;
+            return fileInfo(targetPath.substring(0, nameStart), targetPath.substring(nameStart),
+                    invocation.<ResourceInfoResponseDto>getArgument(0).getSize());
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploadExecutor.shutdownNow();
+    }
+
+    @Test
+    void testUploadWithPathParameter_shouldStreamEveryPartIntoItsFolder() {
+        byte[] small = content(10);
+        byte[] large = content(BUFFER_SIZE * 4);
+
+        List<ResourceInfoResponseDto> uploaded = resourceManagerService.uploadResources(
+                multipart(file("small.txt", small), file("nested:large.bin", large)), "docs/", false, USER_ID);
+
+        assertEquals(2, uploaded.size());
+        assertArrayEquals(small, uploadedContents.get(USER_DIR + "docs/small.txt"));
+        assertArrayEquals(large, uploadedContents.get(USER_DIR + "docs/nested/large.bin"));
+        // a part within the buffer size is uploaded with its size, a larger one is streamed with size unknown
+        assertEquals(small.length, uploadedSizes.get(USER_DIR + "docs/small.txt"));
+        assertEquals(-1, uploadedSizes.get(USER_DIR + "docs/nested/large.bin"));
+        verify(minioService, never()).moveFile(any(), anyString());
+    }
+
+    @Test
+    void testPathAfterFiles_shouldStageFilesAndMoveThem() {
+        byte[] small = content(10);
+        byte[] large = content(BUFFER_SIZE * 4);
+
+        List<ResourceInfoResponseDto> uploaded = resourceManagerService.uploadResources(
+                multipart(file("a.txt", small), file("b.bin", large), field("path", "docs/")), null, false, USER_ID);
+
+        assertEquals(List.of("a.txt", "b.bin"), uploaded.stream().map(ResourceInfoResponseDto::getName).toList());
+        assertEquals(USER_DIR + "docs/", uploaded.get(0).getPath());
+        assertTrue(uploadedContents.keySet().stream().allMatch(path -> path.startsWith(".upload-staging/")));
+        verify(minioService).moveFile(any(), eq(USER_DIR + "docs/a.txt"));
+        verify(minioService).moveFile(any(), eq(USER_DIR + "docs/b.bin"));
+        verify(minioService).deleteFolder(startsWith(".upload-staging/"));
+    }
+
+    @Test
+    void testMissingPath_shouldBeRejectedAfterParsing() {
+        assertThrows(InvalidPathException.class, () -> resourceManagerService.uploadResources(
+                multipart(file("a.txt", content(10))), null, false, USER_ID));
+        verify(minioService).deleteFolder(startsWith(".upload-staging/"));
+    }
+
+    @Test
+    void testTruncatedBody_shouldBeValidationError() {
+        MockHttpServletRequest request = multipart(file("a.txt", content(10)));
+        byte[] body = request.getContentAsByteArray();
+        request.setContent(Arrays.copyOf(body, body.length - 20));
+
+        assertThrows(ValidationException.class,
+                () -> resourceManagerService.uploadResources(request, "docs/", false, USER_ID));
+    }
+
+    @Test
+    void testNonMultipartRequest_shouldBeValidationError() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/resource");
+        request.setContentType("application/json");
+
+        assertThrows(ValidationException.class,
+                () -> resourceManagerService.uploadResources(request, "docs/", false, USER_ID));
+        verify(minioService, never()).uploadFile(any(), anyLong(), any(), anyString(), anyString());
+    }
+
+    @Test
+    void testSmallParts_shouldUploadInParallel() {
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (invocation.getArgument(4).equals("a.txt")) {
+                // only returns if b.txt is uploaded while a.txt is still in flight
+                assertTrue(secondStarted.await(10, TimeUnit.SECONDS));
+            } else {
+                secondStarted.countDown();
+            }
+            return storeUpload(invocation);
+        }).when(minioService).uploadFile(any(), anyLong(), any(), anyString(), anyString());
+
+        resourceManagerService.uploadResources(multipart(file("a.txt", content(10)), file("b.txt", content(10))),
+                "docs/", false, USER_ID);
+
+        assertEquals(10, uploadedSizes.get(USER_DIR + "docs/a.txt"));
+        assertEquals(10, uploadedSizes.get(USER_DIR + "docs/b.txt"));
+        assertEquals(1024, uploadBufferBudget().availablePermits());
+    }
+
+    @Test
+    void testExhaustedBufferBudget_shouldStreamFurtherParts() {
+        ReflectionTestUtils.setField(resourceManagerService, "uploadMaxBufferedSize", DataSize.ofBytes(BUFFER_SIZE));
+        resourceManagerService.init();
+        CountDownLatch streamed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (invocation.getArgument(4).equals("a.txt")) {
+                // a.txt keeps its 10 buffered bytes until b.txt, which can't get a whole buffer any more, is streamed
+                assertTrue(streamed.await(10, TimeUnit.SECONDS));
+            } else {
+                streamed.countDown();
+            }
+            return storeUpload(invocation);
+        }).when(minioService).uploadFile(any(), anyLong(), any(), anyString(), anyString());
+
+        resourceManagerService.uploadResources(multipart(file("a.txt", content(10)), file("b.txt", content(10))),
+                "docs/", false, USER_ID);
+
+        assertEquals(10, uploadedSizes.get(USER_DIR + "docs/a.txt"));
+        assertEquals(-1, uploadedSizes.get(USER_DIR + "docs/b.txt"));
+        assertEquals(BUFFER_SIZE, uploadBufferBudget().availablePermits());
+    }
+
+    @Test
+    void testFailedBufferedUpload_shouldGiveItsBufferBack() {
+        doThrow(new RuntimeException("storage unavailable"))
+                .when(minioService).uploadFile(any(), anyLong(), any(), anyString(), anyString());
+
+        assertThrows(RuntimeException.class, () -> resourceManagerService.uploadResources(
+                multipart(file("a.txt", content(10)), file("b.bin", content(BUFFER_SIZE * 4))), "docs/", false,
+                USER_ID));
+
+        assertEquals(1024, uploadBufferBudget().availablePermits());
+    }
+
+    @Test
+    void testConflicts_shouldBeFoundWithOneListingPerFolder() {
+        when(minioService.listFileNames(USER_DIR + "docs/", 100)).thenReturn(Set.of(USER_DIR + "docs/b.txt"));
+
+        PartialUploadException e = assertThrows(PartialUploadException.class, () -> resourceManagerService
+                .uploadResources(multipart(file("a.txt", content(10)), file("b.txt", content(10)),
+                        file("c.bin", content(BUFFER_SIZE * 4))), "docs/", false, USER_ID));
+
+        assertEquals(3, e.getResults().size());
+        assertFalse(uploadedContents.containsKey(USER_DIR + "docs/b.txt"));
+        verify(minioService, times(1)).listFileNames(USER_DIR + "docs/", 100);
+        verify(minioService, never()).isFileExist(anyString());
+    }
+
+    @Test
+    void testSamePathTwiceInOneRequest_shouldConflictAndRollBack() {
+        assertThrows(ResourceAlreadyExistsException.class, () -> resourceManagerService.uploadResources(
+                multipart(file("a.txt", content(10)), file("a.txt", content(12))), "docs/", true, USER_ID));
+
+        verify(minioService, times(1)).uploadFile(any(), anyLong(), any(), eq(USER_DIR + "docs/"), eq("a.txt"));
+        verify(minioService).deleteFile(USER_DIR + "docs/a.txt");
+    }
+
+    @Test
+    void testStagedFileConflict_shouldBeFoundWhenMoved() {
+        when(minioService.listFileNames(USER_DIR + "docs/", 100)).thenReturn(Set.of(USER_DIR + "docs/a.txt"));
+
+        assertThrows(ResourceAlreadyExistsException.class, () -> resourceManagerService.uploadResources(
+                multipart(file("a.txt", content(10)), field("path", "docs/")), null, false, USER_ID));
+
+        verify(minioService, never()).moveFile(any(), anyString());
+        verify(minioService).deleteFolder(startsWith(".upload-staging/"));
+    }
+
+    private Semaphore uploadBufferBudget() {
+        return (Semaphore) ReflectionTestUtils.getField(resourceManagerService, "uploadBufferBudget");
+    }
+
+    private ResourceInfoResponseDto storeUpload(InvocationOnMock invocation) {
+        String objectPath = invocation.<String>getArgument(3) + invocation.getArgument(4);
+        byte[] content = readAll(invocation.getArgument(0));
+        uploadedContents.put(objectPath, content);
+        uploadedSizes.put(objectPath, invocation.getArgument(1));
+        return fileInfo(invocation.getArgument(3), invocation.getArgument(4), content.length);
+    }
+
+    private static ResourceInfoResponseDto fileInfo(String path, String name, long size) {
+        return ResourceInfoResponseDto.builder()
+                .path(path)
+                .name(name)
+                .size(size)
+                .type(ResourceType.FILE)
+                .etag("etag-" + name)
+                .build();
+    }
+
+    private static byte[] readAll(InputStream inputStream) {
+        try {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        return content;
+    }
+
+    private static String[] file(String filename, byte[] content) {
+        return new String[]{"object", filename, new String(content, StandardCharsets.ISO_8859_1)};
+    }
+
+    private static String[] field(String name, String value) {
+        return new String[]{name, null, value};
+    }
+
+    /**
+     * Builds a multipart/form-data request from parts given as {field name, file name or null, content}.
+     */
+    private static MockHttpServletRequest multipart(String[]... parts) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (String[] part : parts) {
+            String disposition = "Content-Disposition: form-data; name=\"" + part[0] + "\""
+                    + (part[1] == null ? "" : "; filename=\"" + part[1] + "\"\r\nContent-Type: text/plain");
+            body.writeBytes(("--" + BOUNDARY + "\r\n" + disposition + "\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            body.writeBytes(part[2].getBytes(StandardCharsets.ISO_8859_1));
+            body.writeBytes("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/resource");
+        request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+        request.setContent(body.toByteArray());
+        return request;
+    }
+}
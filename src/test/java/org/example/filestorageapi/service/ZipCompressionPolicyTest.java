@@ -0,0 +1,49 @@
+package org.example.filestorageapi.service;
+
+import org.example.filestorageapi.utils.ZipCompressionMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZipCompressionPolicyTest {
+
+    private final ZipCompressionPolicy policy =
+            new ZipCompressionPolicy(6, DataSize.ofKilobytes(4), Set.of("jpg", "zip"));
+
+    @Test
+    void testKnownCompressedExtension_shouldBeStored() {
+        assertTrue(policy.shouldStore("photos/IMG_001.JPG", new byte[0], 0, ZipCompressionMode.AUTO));
+        assertFalse(policy.shouldStore("jpg/notes.txt", new byte[0], 0, ZipCompressionMode.AUTO));
+    }
+
+    @Test
+    void testRandomBytes_shouldBeStored() {
+        byte[] sample = new byte[4096];
+        new Random(42).nextBytes(sample);
+
+        assertTrue(policy.shouldStore("data.bin", sample, sample.length, ZipCompressionMode.FAST));
+    }
+
+    @Test
+    void testText_shouldBeDeflated() {
+        byte[] sample = "The quick brown fox jumps over the lazy dog. ".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(policy.shouldStore("readme.txt", sample, sample.length, ZipCompressionMode.AUTO));
+    }
+
+    @Test
+    void testSmallMode_shouldDeflateEverything() {
+        assertFalse(policy.shouldStore("archive.zip", new byte[0], 0, ZipCompressionMode.SMALL));
+        assertEquals(Deflater.BEST_COMPRESSION, policy.getDeflateLevel(ZipCompressionMode.SMALL));
+        assertEquals(Deflater.BEST_SPEED, policy.getDeflateLevel(ZipCompressionMode.FAST));
+        assertEquals(6, policy.getDeflateLevel(ZipCompressionMode.AUTO));
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.filestorageapi.utils;
+
+import org.example.filestorageapi.errors.RangeNotSatisfiableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpRange;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RangeRequestUtilsTest {
+
+    private static final long FILE_SIZE = 1000;
+    private static final String ETAG = "\"d41d8cd98f00b204e9800998ecf8427e\"";
+    private static final Instant LAST_MODIFIED = Instant.parse("2025-03-07T10:15:30.250Z");
+
+    @Test
+    void testNoRangeHeader_shouldSendWholeFile() {
+        assertTrue(RangeRequestUtils.parseRanges(null, FILE_SIZE).isEmpty());
+        assertTrue(RangeRequestUtils.parseRanges("  ", FILE_SIZE).isEmpty());
+    }
+
+    @Test
+    void testClosedRange_shouldBeReturnedAsIs() {
+        assertRange(0, 99, RangeRequestUtils.parseRanges("bytes=0-99", FILE_SIZE));
+    }
+
+    @Test
+    void testRangePastEnd_shouldBeCutAtLastByte() {
+        assertRange(500, 999, RangeRequestUtils.parseRanges("bytes=500-5000", FILE_SIZE));
+    }
+
+    @Test
+    void testOpenEndedRange_shouldRunToLastByte() {
+        assertRange(900, 999, RangeRequestUtils.parseRanges("bytes=900-", FILE_SIZE));
+    }
+
+    @Test
+    void testSuffixRange_shouldSelectLastBytes() {
+        assertRange(900, 999, RangeRequestUtils.parseRanges("bytes=-100", FILE_SIZE));
+        assertRange(0, 999, RangeRequestUtils.parseRanges("bytes=-5000", FILE_SIZE));
+    }
+
+    @Test
+    void testMultipleRanges_shouldAllBeReturned() {
+        List<HttpRange> ranges = RangeRequestUtils.parseRanges("bytes=0-9, 20-29", FILE_SIZE);
+
+        assertEquals(2, ranges.size());
+        assertEquals(20, ranges.get(1).getRangeStart(FILE_SIZE));
+        assertEquals(29, ranges.get(1).getRangeEnd(FILE_SIZE));
+    }
+
+    @Test
+    void testMultipleRangesWithOnePastEnd_shouldDropIt() {
+        assertRange(0, 9, RangeRequestUtils.parseRanges("bytes=0-9,2000-2999", FILE_SIZE));
+    }
+
+    @Test
+    void testInvalidHeader_shouldSendWholeFile() {
+        assertTrue(RangeRequestUtils.parseRanges("items=0-9", FILE_SIZE).isEmpty());
+        assertTrue(RangeRequestUtils.parseRanges("bytes=9-0", FILE_SIZE).isEmpty());
+        assertTrue(RangeRequestUtils.parseRanges("bytes=abc", FILE_SIZE).isEmpty());
+        assertTrue(RangeRequestUtils.parseRanges("bytes=", FILE_SIZE).isEmpty());
+    }
+
+    @Test
+    void testTooManyRanges_shouldSendWholeFile() {
+        StringBuilder header = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= 100; i++) {
+            header.append(',').append(i).append('-').append(i);
+        }
+
+        assertTrue(RangeRequestUtils.parseRanges(header.toString(), FILE_SIZE).isEmpty());
+    }
+
+    @Test
+    void testRangeStartingPastEnd_shouldNotBeSatisfiable() {
+        RangeNotSatisfiableException e = assertThrows(RangeNotSatisfiableException.class,
+                () -> RangeRequestUtils.parseRanges("bytes=1000-", FILE_SIZE));
+
+        assertEquals(FILE_SIZE, e.getResourceSize());
+    }
+
+    @Test
+    void testEmptySuffixOrEmptyFile_shouldNotBeSatisfiable() {
+        assertThrows(RangeNotSatisfiableException.class, () -> RangeRequestUtils.parseRanges("bytes=-0", FILE_SIZE));
+        assertThrows(RangeNotSatisfiableException.class, () -> RangeRequestUtils.parseRanges("bytes=0-", 0));
+    }
+
+    @Test
+    void testNoIfRange_shouldMatch() {
+        assertTrue(RangeRequestUtils.isIfRangeMatching(null, ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void testStrongIfRange_shouldMatchCurrentEtagOnly() {
+        assertTrue(RangeRequestUtils.isIfRangeMatching(" " + ETAG + " ", ETAG, LAST_MODIFIED));
+        assertFalse(RangeRequestUtils.isIfRangeMatching("\"other\"", ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void testWeakIfRange_shouldNeverMatch() {
+        assertFalse(RangeRequestUtils.isIfRangeMatching("W/" + ETAG, ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void testDateIfRange_shouldMatchLastModifiedToTheSecond() {
+        assertTrue(RangeRequestUtils.isIfRangeMatching("Fri, 07 Mar 2025 10:15:30 GMT", ETAG, LAST_MODIFIED));
+        assertFalse(RangeRequestUtils.isIfRangeMatching("Fri, 07 Mar 2025 10:15:29 GMT", ETAG, LAST_MODIFIED));
+        assertFalse(RangeRequestUtils.isIfRangeMatching("Fri, 07 Mar 2025 10:15:30 GMT", ETAG, null));
+    }
+
+    @Test
+    void testInvalidIfRange_shouldNotMatch() {
+        assertFalse(RangeRequestUtils.isIfRangeMatching("yesterday", ETAG, LAST_MODIFIED));
+    }
+
+    private static void assertRange(long start, long end, List<HttpRange> ranges) {
+        assertEquals(1, ranges.size());
+        assertEquals(start, ranges.get(0).getRangeStart(FILE_SIZE));
+        assertEquals(end, ranges.get(0).getRangeEnd(FILE_SIZE));
+    }
+}
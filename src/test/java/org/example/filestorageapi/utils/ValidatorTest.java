@@ -0,0 +1,129 @@
+package org.example.filestorageapi.utils;
+
+import jakarta.validation.ValidationException;
+import org.example.filestorageapi.errors.InvalidPathException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the lookup-table validator against the rules it replaced, kept below as {@link PreviousRules}.
+ */
+public class ValidatorTest {
+
+    private static final String PATH_ALPHABET = "ab/\\.<>:\"|?* é";
+    private static final String QUERY_ALPHABET = "aZ9 ._-/\\é*%";
+
+    @Test
+    void testPaths_shouldBeJudgedLikeThePreviousRules() {
+        List<String> paths = new ArrayList<>(List.of(
+                "", "docs/", "docs/a.txt", "a..b", "../etc", "a//b", "a\\\\b", "a/\\b",
+                "a*b<c", "a?b:c", "x|y\"z", "a..b*c//d", "x".repeat(200), "x".repeat(201), "x".repeat(201) + "//",
+                "x".repeat(201) + "*", "файл.txt", "\u0000"));
+        paths.addAll(randomStrings(PATH_ALPHABET, 20_000, 12));
+
+        for (String path : paths) {
+            assertSameOutcome(path, Validator::validatePath, PreviousRules::validatePath);
+        }
+    }
+
+    @Test
+    void testQueries_shouldBeJudgedLikeThePreviousRules() {
+        List<String> queries = new ArrayList<>(List.of(
+                "", "  ", "report", "report 2024.pdf", "a-b_c", "a/b", "é", "x".repeat(100), "x".repeat(101),
+                "😀"));
+        queries.addAll(randomStrings(QUERY_ALPHABET, 20_000, 8));
+
+        for (String query : queries) {
+            assertSameOutcome(query, Validator::validateQuery, PreviousRules::validateQuery);
+        }
+    }
+
+    @Test
+    void testSeveralDisallowedCharacters_shouldNameTheFirstListedOne() {
+        InvalidPathException e = assertThrows(InvalidPathException.class, () -> Validator.validatePath("a*b<c"));
+
+        assertEquals("Path contains disallowed character: '<'", e.getMessage());
+    }
+
+    @Test
+    void testNullPath_shouldBeRejected() {
+        assertThrows(InvalidPathException.class, () -> Validator.validatePath(null));
+    }
+
+    private static void assertSameOutcome(String input, Consumer<String> current, Consumer<String> previous) {
+        assertEquals(outcome(previous, input), outcome(current, input), () -> "Input: '" + input + "'");
+    }
+
+    private static String outcome(Consumer<String> validator, String input) {
+        try {
+            validator.accept(input);
+            return "valid";
+        } catch (ValidationException | InvalidPathException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private static List<String> randomStrings(String alphabet, int count, int maxLength) {
+        Random random = new Random(42);
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder string = new StringBuilder();
+            int length = random.nextInt(maxLength + 1);
+            for (int j = 0; j < length; j++) {
+                string.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            strings.add(string.toString());
+        }
+        return strings;
+    }
+
+    /**
+     * The path and query rules as they were before the lookup tables.
+     */
+    private static final class PreviousRules {
+
+        private static void validatePath(String path) {
+            if (path.contains("..")) {
+                throw new InvalidPathException("Path cannot contain parent directory references (..)");
+            }
+
+            String disallowedChars = "<>:\"|?*";
+            for (char c : disallowedChars.toCharArray()) {
+                if (path.indexOf(c) >= 0) {
+                    throw new InvalidPathException("Path contains disallowed character: '" + c + "'");
+                }
+            }
+
+            if (path.length() > 200) {
+                throw new InvalidPathException("Path length exceeds maximum of 200 characters");
+            }
+
+            if (path.contains("//") || path.contains("\\\\")) {
+                throw new InvalidPathException("Path cannot have repeated slashes (// or \\\\)");
+            }
+        }
+
+        private static void validateQuery(String query) {
+            if (query == null || query.trim().isEmpty()) {
+                throw new ValidationException("Search query cannot be empty");
+            }
+
+            if (query.length() > 100) {
+                throw new ValidationException("Search query too long (max 100 characters)");
+            }
+
+            for (char c : query.toCharArray()) {
+                if (!Character.toString(c).matches("[a-zA-Z0-9 ._-]")) {
+                    throw new ValidationException("Search query contains invalid character: '" + c + "'");
+                }
+            }
+        }
+    }
+}